@@ -10,31 +10,45 @@
 
 package com.ibm.atlas.webservice.resource;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Logger;
 
 import javax.inject.Inject;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import com.ibm.atlas.model.datasets.DataSetContentResponse;
 import com.ibm.atlas.webservice.Messages;
 import com.ibm.atlas.webservice.resource.datasets.entity.DatasetAttributes;
+import com.ibm.atlas.webservice.services.MemberStatistics;
+import com.ibm.atlas.webservice.services.MemberStatistics.SortKey;
 import com.ibm.atlas.webservice.services.ZosmfDatasetsService;
+import com.ibm.atlas.webservice.utilities.AsyncUtilities;
 import com.ibm.json.java.JSONArray;
 import com.ibm.json.java.JSONObject;
 
@@ -49,6 +63,11 @@ import io.swagger.annotations.ApiResponses;
 @Api(value = "Zowe : Dataset APIs")
 public class Datasets {
 
+	private static final int DEFAULT_MEMBER_PAGE_SIZE = 1000;
+	private static final int DEFAULT_DATASET_PAGE_SIZE = 1000;
+	private static final String TEXT_MODE = "text"; //$NON-NLS-1$
+	private static final String BINARY_MODE = "binary"; //$NON-NLS-1$
+
 	@Context
 	private UriInfo uriInfo;
 
@@ -63,27 +82,39 @@ public class Datasets {
 	 * 
 	 * @param filter
 	 *            Dataset name filter, e.g. HLQ.**, **.SUFFIX, etc
-	 * @return List of dataset names that match the given filter.
+	 * @param start
+	 *            The first data set of a page, from the nextStart of the
+	 *            previous page
+	 * @param limit
+	 *            Maximum number of data sets on a page
+	 * @param asyncResponse
+	 *            Resumed with the list of dataset names that match the given
+	 *            filter, or if a start or limit is given, with a page of them
 	 */
 	@GET
 	@Path(value = "{filter}")
 	@Produces(MediaType.APPLICATION_JSON)
 	@ApiOperation(value = "Get a list of data sets by filter", 
-	  notes = "This API returns a list of data sets according to a given filter.")
+	  notes = "This API returns a list of data sets according to a given filter. "
+			+ "If a start or limit is given, a page of data sets is returned in the form {\"items\":[...],\"nextStart\":\"DSNAME\"}, "
+			+ "where nextStart is the start of the next page and is left out on the last page.")
 	@ApiResponses({@ApiResponse(code = 200, message = "Ok", response = String.class, responseContainer = "List")})
-	public List<String> getDSNs(
-			@ApiParam(value = "Dataset filter string, e.g. HLQ.\\*\\*, \\*\\*.SUF, etc.", required = true) @PathParam("filter") String filter) {
-
-		JSONObject datasets = zosmfService.listDatasets(filter);
-
-		List<String> datasetNames = new LinkedList<>();
-		JSONArray dsnList = (JSONArray) datasets.get("items"); //$NON-NLS-1$
-		for (int i = 0; i < dsnList.size(); i++) {
-			JSONObject entry = (JSONObject) dsnList.get(i);
-			datasetNames.add((String) entry.get("dsname")); //$NON-NLS-1$
+	public void getDSNs(@Suspended AsyncResponse asyncResponse,
+			@ApiParam(value = "Dataset filter string, e.g. HLQ.\\*\\*, \\*\\*.SUF, etc.", required = true) @PathParam("filter") String filter,
+			@ApiParam(value = "no-cache to list the data sets again rather than use a recent listing") @HeaderParam(HttpHeaders.CACHE_CONTROL) String cacheControl,
+			@ApiParam(value = "First data set of the page, from nextStart of the previous page", required = false) @QueryParam("start") String start,
+			@ApiParam(value = "Maximum number of data sets to return in a page", required = false) @QueryParam("limit") Integer limit) {
+
+		if (start == null && limit == null) {
+			AsyncUtilities.resume(asyncResponse, zosmfService.listDatasetNamesAsync(filter, isNoCache(cacheControl)).thenApply(Arrays::asList), zosmfService.getAsyncTimeoutMillis());
+			return;
 		}
+		AsyncUtilities.resume(asyncResponse, zosmfService.listDatasetsPageAsync(filter, start, limit != null ? Math.max(limit, 1) : DEFAULT_DATASET_PAGE_SIZE)
+				.thenApply(page -> Response.ok(page, MediaType.APPLICATION_JSON).build()), zosmfService.getAsyncTimeoutMillis());
+	}
 
-		return datasetNames;
+	private static boolean isNoCache(String cacheControl) {
+		return cacheControl != null && cacheControl.toLowerCase(Locale.ENGLISH).contains("no-cache"); //$NON-NLS-1$
 	}
 
 	/**
@@ -91,27 +122,110 @@ public class Datasets {
 	 * 
 	 * @param dsn
 	 *            The PDS(E) for which the member list is required
-	 * @return List of members
+	 * @param start
+	 *            The first member of a page, from the nextStart of the
+	 *            previous page
+	 * @param limit
+	 *            Maximum number of members on a page, or with attributes, in
+	 *            the list
+	 * @param attributes
+	 *            base to list the members with their ISPF statistics
+	 * @param pattern
+	 *            With attributes, only members whose names match this pattern
+	 * @param changedSince
+	 *            With attributes, only members changed at or after this local
+	 *            date or date and time
+	 * @param user
+	 *            With attributes, only members last changed by this user
+	 * @param sort
+	 *            With attributes, the statistic to sort by, with a leading -
+	 *            for descending order
+	 * @param asyncResponse
+	 *            Resumed with the list of members, or if a start or limit is
+	 *            given, with a page of them
 	 */
 	@GET
 	@Path(value = "{dsn}/members")
 	@Produces(MediaType.APPLICATION_JSON)
 	@ApiOperation(value = "Get a list of members for a partitioned data set", 
-	  notes = "This API returns a list of members for a given partitioned data set.")
+	  notes = "This API returns a list of members for a given partitioned data set. "
+			+ "If a start or limit is given, a page of members is returned in the form {\"items\":[...],\"nextStart\":\"MEMBER\"}, "
+			+ "where nextStart is the start of the next page and is left out on the last page. "
+			+ "With attributes=base, a list of {\"name\",\"version\",\"created\",\"modified\",\"records\",\"user\"} objects is returned "
+			+ "from the ISPF statistics of the members, which can be filtered and sorted; members without statistics have only a name.")
 	@ApiResponses({@ApiResponse(code = 200, message = "Ok", response = String.class, responseContainer = "List")})
-	public List<String> getDSNMembers(
-			@ApiParam(value = "Partitioned data set name", required = true) @PathParam("dsn") String dsn) {
+	public void getDSNMembers(@Suspended AsyncResponse asyncResponse,
+			@ApiParam(value = "Partitioned data set name", required = true) @PathParam("dsn") String dsn,
+			@ApiParam(value = "no-cache to list the members again rather than use a recent listing") @HeaderParam(HttpHeaders.CACHE_CONTROL) String cacheControl,
+			@ApiParam(value = "First member of the page, from nextStart of the previous page", required = false) @QueryParam("start") String start,
+			@ApiParam(value = "Maximum number of members to return in a page", required = false) @QueryParam("limit") Integer limit,
+			@ApiParam(value = "base to include the ISPF statistics of the members", required = false) @QueryParam("attributes") String attributes,
+			@ApiParam(value = "With attributes, member name pattern, where * matches any characters and % any one", required = false) @QueryParam("pattern") String pattern,
+			@ApiParam(value = "With attributes, only members changed since this date or date and time, e.g. 2018-06-01 or 2018-06-01T12:00", required = false) @QueryParam("changedSince") String changedSince,
+			@ApiParam(value = "With attributes, only members last changed by this user", required = false) @QueryParam("user") String user,
+			@ApiParam(value = "With attributes, one of name, version, created, modified, records or user, with a leading - for descending order", required = false) @QueryParam("sort") String sort) {
+
+		if (attributes != null) {
+			getMemberStatistics(asyncResponse, dsn, attributes, pattern, changedSince, user, sort, limit);
+			return;
+		}
+		if (start == null && limit == null) {
+			AsyncUtilities.resume(asyncResponse, zosmfService.listDatasetMemberNamesAsync(dsn, isNoCache(cacheControl)).thenApply(Arrays::asList), zosmfService.getAsyncTimeoutMillis());
+			return;
+		}
+		AsyncUtilities.resume(asyncResponse, zosmfService.listDatasetMembersPageAsync(dsn, start, limit != null ? Math.max(limit, 1) : DEFAULT_MEMBER_PAGE_SIZE)
+				.thenApply(page -> Response.ok(page, MediaType.APPLICATION_JSON).build()), zosmfService.getAsyncTimeoutMillis());
+	}
 
-		JSONObject members = zosmfService.listDatasetMembers(dsn);
+	private void getMemberStatistics(AsyncResponse asyncResponse, String dsn, String attributes, String pattern, String changedSince,
+			String user, String sort, Integer limit) {
+		if (!"base".equalsIgnoreCase(attributes)) { //$NON-NLS-1$
+			throw createBadRequestException(String.format(Messages.getString("Datasets.InvalidAttributes"), attributes)); //$NON-NLS-1$
+		}
+		long since = parseChangedSince(changedSince);
+		boolean descending = sort != null && sort.startsWith("-"); //$NON-NLS-1$
+		SortKey sortKey = parseSortKey(descending ? sort.substring(1) : sort);
+		int maximum = limit != null ? Math.max(limit, 0) : Integer.MAX_VALUE;
+
+		AsyncUtilities.resume(asyncResponse, zosmfService.listMemberStatisticsAsync(dsn).thenApply(statistics -> {
+			int[] order = statistics.select(pattern, since, user);
+			if (sortKey != null) {
+				statistics.sort(order, sortKey, descending);
+			}
+			return Response.ok(statistics.toJson(order, maximum), MediaType.APPLICATION_JSON).build();
+		}), zosmfService.getAsyncTimeoutMillis());
+	}
+
+	/**
+	 * @return The time in seconds from the epoch, as the local date and time
+	 *         of the system held as UTC, or
+	 *         {@link MemberStatistics#UNKNOWN_TIME} if not given
+	 */
+	private static long parseChangedSince(String changedSince) {
+		if (changedSince == null) {
+			return MemberStatistics.UNKNOWN_TIME;
+		}
+		try {
+			LocalDateTime since = changedSince.indexOf('T') >= 0 ? LocalDateTime.parse(changedSince) : LocalDate.parse(changedSince).atStartOfDay();
+			return since.toEpochSecond(ZoneOffset.UTC);
+		} catch (DateTimeParseException e) {
+			throw createBadRequestException(String.format(Messages.getString("Datasets.InvalidChangedSince"), changedSince)); //$NON-NLS-1$
+		}
+	}
 
-		List<String> memberNames = new LinkedList<>();
-		JSONArray memberList = (JSONArray) members.get("items"); //$NON-NLS-1$
-		for (int i = 0; i < memberList.size(); i++) {
-			JSONObject entry = (JSONObject) memberList.get(i);
-			memberNames.add((String) entry.get("member")); //$NON-NLS-1$
+	private static SortKey parseSortKey(String sort) {
+		if (sort == null || sort.isEmpty()) {
+			return null;
+		}
+		try {
+			return SortKey.valueOf(sort.toUpperCase(Locale.ENGLISH));
+		} catch (IllegalArgumentException e) {
+			throw createBadRequestException(String.format(Messages.getString("Datasets.InvalidSort"), sort)); //$NON-NLS-1$
 		}
+	}
 
-		return memberNames;
+	private static WebApplicationException createBadRequestException(String error) {
+		return new WebApplicationException(Response.status(Status.BAD_REQUEST).entity(error).type(MediaType.TEXT_PLAIN).build());
 	}
 
 	/**
@@ -125,21 +239,41 @@ public class Datasets {
 	 * @param end
 	 *            Optional query paramater indicating ending relative record
 	 *            number to read
-	 * @return The requested content from the named dataset
+	 * @param mode
+	 *            binary to download the content as it is stored
+	 * @param range
+	 *            In binary mode, the range of bytes to download
+	 * @param asyncResponse
+	 *            Resumed with the requested content from the named dataset
 	 */
 	@GET
 	@Path(value = "{dsn}/content")
-	@Produces(MediaType.APPLICATION_JSON)
+	@Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_OCTET_STREAM })
 	@ApiOperation(value = "Read content from a data set or member", 
-	  notes = "This API reads content from a sequential data set or member of a partitioned data set.")
-	@ApiResponses({@ApiResponse(code = 200, message = "Ok", response = DataSetContentResponse.class)})
-	public DataSetContentResponse getDSNContent(@ApiParam(value = "Data set name, e.g. HLQ.PS or HLQ.PO(MEMBER)", required = true) @PathParam("dsn") String dsn,
+	  notes = "This API reads content from a sequential data set or member of a partitioned data set. "
+			+ "With mode=binary, the bytes of the data set are returned as application/octet-stream without conversion, "
+			+ "and a single byte range can be asked for with a Range header.")
+	@ApiResponses({@ApiResponse(code = 200, message = "Ok", response = DataSetContentResponse.class),
+			@ApiResponse(code = 206, message = "Part of the content in binary mode"),
+			@ApiResponse(code = 416, message = "The range lies beyond the content in binary mode")})
+	public void getDSNContent(@Suspended AsyncResponse asyncResponse,
+			@ApiParam(value = "Data set name, e.g. HLQ.PS or HLQ.PO(MEMBER)", required = true) @PathParam("dsn") String dsn,
 			@ApiParam(value = "Indicator to codepage convert content", required = false) @QueryParam("convert") @DefaultValue("true") boolean convert,
 			@ApiParam(value = "Indicator to return a checksum (if planning subsequent write)", required = false) @QueryParam("checksum") boolean checksum,
 			@ApiParam(value = "Starting relative record number to read. Defaults to record 0.", required = false) @QueryParam("start") String start,
-			@ApiParam(value = "Ending relative record number to read. If not specified, all records are read.", required = false) @QueryParam("end") String end) {
+			@ApiParam(value = "Ending relative record number to read. If not specified, all records are read.", required = false) @QueryParam("end") String end,
+			@ApiParam(value = "text for records in JSON (the default), or binary for the bytes as stored, which ignores the other options", required = false) @QueryParam("mode") String mode,
+			@ApiParam(value = "In binary mode, a single byte range, e.g. bytes=0-1023") @HeaderParam("Range") String range) {
 
-		return zosmfService.getContent(dsn, convert, checksum, start, end);
+		if (BINARY_MODE.equalsIgnoreCase(mode)) {
+			AsyncUtilities.resume(asyncResponse, zosmfService.getBinaryContentAsync(dsn, range), zosmfService.getAsyncTimeoutMillis());
+			return;
+		}
+		if (mode != null && !TEXT_MODE.equalsIgnoreCase(mode)) {
+			throw createBadRequestException(String.format(Messages.getString("Datasets.InvalidMode"), mode)); //$NON-NLS-1$
+		}
+		AsyncUtilities.resume(asyncResponse, zosmfService.getContentAsync(dsn, convert, checksum, start, end)
+				.thenApply(content -> Response.ok(content, MediaType.APPLICATION_JSON).build()), zosmfService.getAsyncTimeoutMillis());
 	}
 
 	@PUT
@@ -266,46 +400,31 @@ public class Datasets {
 	 * 
 	 * @param dsn
 	 *            The dataset name. Can be fully or partially qualified.
-	 * @return Attributes of named dataset(s).
+	 * @param start
+	 *            The first data set of a page, from the nextStart of the
+	 *            previous page
+	 * @param limit
+	 *            Maximum number of data sets on a page
+	 * @param asyncResponse
+	 *            Resumed with the attributes of named dataset(s), or if a
+	 *            start or limit is given, with a page of them
 	 */
 	@GET
 	@Path(value = "{dsn}/attributes")
 	@Produces(MediaType.APPLICATION_JSON)
 	@ApiOperation(value = "Retrieve attributes of a data set(s)", 
-	  notes = "This API returns the attributes of a data set (or data sets) including the RECFM, BLKSIZE, and LRECL.")
+	  notes = "This API returns the attributes of a data set (or data sets) including the RECFM, BLKSIZE, and LRECL. "
+			+ "If a start or limit is given, a page of data sets is returned in the form {\"items\":[...],\"nextStart\":\"DSNAME\"}, "
+			+ "where nextStart is the start of the next page and is left out on the last page.")
 	@ApiResponses({@ApiResponse(code = 200, message = "Ok", response = DatasetAttributes.class, responseContainer = "List")})
-	public List<DatasetAttributes> getDSNMemberDetails(
-			@ApiParam(value = "Data set name, e.g. HLQ.SEQ, HLQ.\\*\\*, \\*\\*.SUF, etc.", required = true) @PathParam("dsn") String dsn) {
-
-		JSONObject output = zosmfService.getDatasetAttributes(dsn);
-
-		List<DatasetAttributes> list = new LinkedList<>();
-		JSONArray dataset = (JSONArray) output.get("items"); //$NON-NLS-1$
-		for (int i = 0; i < dataset.size(); i++) {
-			JSONObject details = (JSONObject) dataset.get(i);
-			if (details != null) {
-				DatasetAttributes attributes = new DatasetAttributes();
-				attributes.setName((String) details.get("dsname")); //$NON-NLS-1$
-				attributes.setBlksize((String) details.get("blksz")); //$NON-NLS-1$
-				attributes.setLrecl((String) details.get("lrecl")); //$NON-NLS-1$
-				attributes.setRecfm((String) details.get("recfm")); //$NON-NLS-1$
-				attributes.setDsorg((String) details.get("dsorg")); //$NON-NLS-1$
-//				attributes.setCatnm((String) details.get("catnm")); //$NON-NLS-1$
-//				attributes.setCdate((String) details.get("cdate")); //$NON-NLS-1$
-//				attributes.setDev((String) details.get("dev")); //$NON-NLS-1$				
-//				attributes.setEdate((String) details.get("edate")); //$NON-NLS-1$
-//				attributes.setExtx((String) details.get("extx")); //$NON-NLS-1$				
-//				attributes.setMigr((String) details.get("migr")); //$NON-NLS-1$
-//				attributes.setOvf((String) details.get("ovf")); //$NON-NLS-1$
-//				attributes.setRdate((String) details.get("rdate")); //$NON-NLS-1$
-//				attributes.setSizex((String) details.get("sizex")); //$NON-NLS-1$
-//				attributes.setSpacu((String) details.get("spacu")); //$NON-NLS-1$	
-//				attributes.setUsed((String) details.get("used")); //$NON-NLS-1$
-//				attributes.setVol((String) details.get("vol")); //$NON-NLS-1$				
-				list.add(attributes);
-			}
-		}
-		return list;
+	public void getDSNMemberDetails(@Suspended AsyncResponse asyncResponse,
+			@ApiParam(value = "Data set name, e.g. HLQ.SEQ, HLQ.\\*\\*, \\*\\*.SUF, etc.", required = true) @PathParam("dsn") String dsn,
+			@ApiParam(value = "First data set of the page, from nextStart of the previous page", required = false) @QueryParam("start") String start,
+			@ApiParam(value = "Maximum number of data sets to return in a page", required = false) @QueryParam("limit") Integer limit) {
+
+		CompletionStage<StreamingOutput> attributes = start == null && limit == null ? zosmfService.listDatasetAttributesAsync(dsn)
+				: zosmfService.listDatasetAttributesPageAsync(dsn, start, limit != null ? Math.max(limit, 1) : DEFAULT_DATASET_PAGE_SIZE);
+		AsyncUtilities.resume(asyncResponse, attributes.thenApply(output -> Response.ok(output, MediaType.APPLICATION_JSON).build()), zosmfService.getAsyncTimeoutMillis());
 	}
 
-}
\ No newline at end of file
+}
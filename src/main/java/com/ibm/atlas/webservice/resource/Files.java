@@ -21,6 +21,8 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -34,6 +36,7 @@ import com.ibm.atlas.model.files.GetFileContentResponse;
 import com.ibm.atlas.model.files.UpdateFileContentsRequest;
 import com.ibm.atlas.webservice.exceptions.AtlasException;
 import com.ibm.atlas.webservice.services.ZosmfFilesService;
+import com.ibm.atlas.webservice.utilities.AsyncUtilities;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -60,13 +63,10 @@ public class Files {
 	@Produces(MediaType.APPLICATION_JSON)
 	@ApiOperation(value = "Get USS file content", notes = "This API returns USS file content")
 	@ApiResponses({@ApiResponse(code = 200, message = "Ok", response = GetFileContentResponse.class)})
-	public Response getContent(@ApiParam(value = "Full path of file to get content for", required = true) @PathParam("path") String path) {
-		try {
-			GetFileContentResponse response = zosmfFilesService.getContent(path);
-			return Response.status(Status.OK).entity(response).build();
-		} catch (AtlasException e) {
-			throw e.createWebApplicationException();
-		}
+	public void getContent(@Suspended AsyncResponse asyncResponse,
+			@ApiParam(value = "Full path of file to get content for", required = true) @PathParam("path") String path) {
+		AsyncUtilities.resume(asyncResponse, zosmfFilesService.getContentAsync(path)
+			.thenApply(response -> Response.status(Status.OK).entity(response).build()), zosmfFilesService.getAsyncTimeoutMillis());
 	}
 	
 	@POST
@@ -11,6 +11,7 @@
 package com.ibm.atlas.webservice.resource;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.logging.Logger;
@@ -24,10 +25,13 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.core.UriBuilder;
@@ -37,6 +41,7 @@ import com.ibm.atlas.model.jobs.Job;
 import com.ibm.atlas.model.jobs.JobStatus;
 import com.ibm.atlas.webservice.Messages;
 import com.ibm.atlas.webservice.exceptions.JobNotFoundException;
+import com.ibm.atlas.webservice.resource.jobs.JobListPage;
 import com.ibm.atlas.webservice.resource.jobs.ZosmfJobsWithCacheService;
 import com.ibm.atlas.webservice.resource.jobs.entity.DD;
 import com.ibm.atlas.webservice.resource.jobs.entity.JobFile;
@@ -46,6 +51,9 @@ import com.ibm.atlas.webservice.resource.jobs.entity.Step;
 import com.ibm.atlas.webservice.resource.jobs.entity.Subsystem;
 import com.ibm.atlas.webservice.services.ZosmfJobsService;
 import com.ibm.atlas.webservice.utilities.JobUtilities;
+import com.ibm.atlas.webservice.utilities.AsyncUtilities;
+import com.ibm.atlas.webservice.utilities.StreamUtilities;
+import com.ibm.atlas.webservice.utilities.ZosUtilities;
 import com.ibm.json.java.JSONArray;
 import com.ibm.json.java.JSONObject;
 
@@ -60,6 +68,9 @@ import io.swagger.annotations.ApiResponses;
 public class Jobs {
 
 	private static final String JOB_NOT_FOUND = Messages.getString("Jobs.JESNameNotFound"); //$NON-NLS-1$
+	private static final String TOTAL_COUNT_HEADER = "X-Total-Count"; //$NON-NLS-1$
+	private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor"; //$NON-NLS-1$
+	private static final int DEFAULT_PAGE_SIZE = 100;
 
 	@Context
 	UriInfo uriInfo;
@@ -76,17 +87,33 @@ public class Jobs {
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
 	@ApiOperation(value = "Get a list of jobs", 
-                  notes = "This API returns the a list of jobs for a given prefix and owner.")
+                  notes = "This API returns the a list of jobs for a given prefix and owner. "
+                        + "If a limit or cursor is given, the list is sorted by job name and returned a page at a time. "
+                        + "The X-Total-Count header gives the number of job names in the whole list and, "
+                        + "if there are more, the X-Next-Cursor header gives the cursor for the next page.")
 	@ApiResponses({@ApiResponse(code = 200, message = "Ok", response = JobNameList.class, responseContainer = "List")})
-	public List<JobNameList> getJobs(@Context SecurityContext securityContext,
+	public Response getJobs(@Context SecurityContext securityContext,
 			@ApiParam(value = "Job name prefix. If omitted, defaults to '*'.", required = false) @DefaultValue("*") @QueryParam("prefix") String prefix,
 			@ApiParam(value = "Job owner. Defaults to requester's userid.", required = false) @QueryParam("owner") String owner,
-			@ApiParam(value = "Job status to filter on, defaults to ALL.", allowableValues = "ACTIVE, OUTPUT, INPUT, ALL", required = false) @QueryParam("status") JobStatus status) {
+			@ApiParam(value = "Job status to filter on, defaults to ALL.", allowableValues = "ACTIVE, OUTPUT, INPUT, ALL", required = false) @QueryParam("status") JobStatus status,
+			@ApiParam(value = "If false, the subsystem of each job is included. Defaults to true.", required = false) @DefaultValue("true") @QueryParam("concise") boolean concise,
+			@ApiParam(value = "Maximum number of job names to return in a page.", required = false) @QueryParam("limit") Integer limit,
+			@ApiParam(value = "Cursor from the X-Next-Cursor header of the previous page. The other filters are ignored.", required = false) @QueryParam("cursor") String cursor) {
 		String ownerFilter = JobUtilities.getOwnerFilterValue(securityContext, owner);
 		if (status == null) {
 			status = JobStatus.ALL;
 		}
-		return zosmfService.getJobs(prefix, ownerFilter, status);
+		if (limit == null && cursor == null) {
+			return Response.ok(zosmfWithCacheService.getJobs(prefix, ownerFilter, status, concise)).build();
+		}
+		String user = ZosUtilities.getUsername(securityContext);
+		JobListPage page = zosmfWithCacheService.getJobs(prefix, ownerFilter, status, concise, user != null ? user : "", //$NON-NLS-1$
+				limit != null ? Math.max(limit, 1) : DEFAULT_PAGE_SIZE, cursor);
+		ResponseBuilder response = Response.ok(page.getItems()).header(TOTAL_COUNT_HEADER, page.getTotalCount());
+		if (page.getNextCursor() != null) {
+			response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+		}
+		return response.build();
 	}
 
 	//TODO LATER - remove this as equivalent to getJobs?
@@ -205,24 +232,39 @@ public class Jobs {
 
 	@GET
 	@Path(value = "{jobName}/ids/{jobId}/files/{fileId}")
-	@Produces(MediaType.APPLICATION_JSON)
+	@Produces({ MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN })
 	@ApiOperation(value = "Read content from a specific job output file", 
-	              notes = "This API reads content from a specific job output file. The API can read all output, or a relative record range.")
+	              notes = "This API reads content from a specific job output file. The API can read all output, or a relative record range. "
+	                    + "In stream mode the records are returned as plain text as they are read from z/OSMF, which suits very large files.")
 	@ApiResponses({@ApiResponse(code = 200, message = "Ok", response = OutputFile.class)})
-	public OutputFile getJobOutputFile(@ApiParam(value = "Job name.", required = true) @PathParam("jobName") String jobName,
+	public void getJobOutputFile(@Suspended AsyncResponse asyncResponse, @Context SecurityContext securityContext,
+			@ApiParam(value = "Job name.", required = true) @PathParam("jobName") String jobName,
 			@ApiParam(value = "Job identifier.", required = true) @PathParam("jobId") String jobId,
 			@ApiParam(value = "Job file id number.", required = true) @PathParam("fileId") String fileId,
 			@ApiParam(value = "Optional starting relative record number to read.", required = false) @QueryParam("start") String start,
-			@ApiParam(value = "Optional ending relative record number to read. If omitted, all records are returned.", required = false) @QueryParam("end") String end) {
+			@ApiParam(value = "Optional ending relative record number to read. If omitted, all records are returned.", required = false) @QueryParam("end") String end,
+			@ApiParam(value = "If true, stream the records as plain text. Defaults to false.", required = false) @DefaultValue("false") @QueryParam("stream") boolean stream) {
+
+		String user = ZosUtilities.getUsername(securityContext);
+		AsyncUtilities.resume(asyncResponse, zosmfService.supplyAsync(() -> {
+			if (stream) {
+				InputStream records = zosmfService.getJobFileRecordsStreamByRange(jobName, jobId, fileId, start, end);
+				if (records == null) {
+					String error = String.format(Messages.getString("Jobs.NoFile"), jobName, jobId, fileId); //$NON-NLS-1$
+					throw createNotFoundException(error);
+				}
+				return Response.ok(StreamUtilities.streamingOutput(records), MediaType.TEXT_PLAIN).build();
+			}
 
-		String output = zosmfService.getJobFileRecordsByRange(jobName, jobId, fileId, start, end);
+			String output = zosmfWithCacheService.getJobFileRecordsByRange(user, jobName, jobId, fileId, start, end);
 
-		if (output == null) {
-			String error = String.format(Messages.getString("Jobs.NoFile"), jobName, jobId, fileId); //$NON-NLS-1$
-			throw createNotFoundException(error);
-		}
+			if (output == null) {
+				String error = String.format(Messages.getString("Jobs.NoFile"), jobName, jobId, fileId); //$NON-NLS-1$
+				throw createNotFoundException(error);
+			}
 
-		return new OutputFile(output);
+			return Response.ok(new OutputFile(output), MediaType.APPLICATION_JSON).build();
+		}), zosmfService.getAsyncTimeoutMillis());
 	}
 
 	@GET
@@ -231,11 +273,18 @@ public class Jobs {
 	@ApiOperation(value = "Read the tail of a job's output file", 
 	              notes = "This API returns the tail end of a job's output file. The number of records to tail can be specified.")
 	@ApiResponses({@ApiResponse(code = 200, message = "Ok", response = OutputFile.class)})
-	public OutputFile getJobOutputTail(@ApiParam(value = "Job name.", required = true) @PathParam("jobName") String jobName,
+	public OutputFile getJobOutputTail(@Context SecurityContext securityContext,
+			@ApiParam(value = "Job name.", required = true) @PathParam("jobName") String jobName,
 			@ApiParam(value = "Job identifier.", required = true) @PathParam("jobId") String jobId,
 			@ApiParam(value = "Job file id number.", required = true) @PathParam("fileId") String fileId,
 			@ApiParam(value = "Number of records to tail. Default is 24.", required = false) @DefaultValue("24") @QueryParam("records") String records) {
 
+		// Completed jobs that have been read before are answered from a local copy
+		String cached = zosmfWithCacheService.getJobFileTail(ZosUtilities.getUsername(securityContext), jobName, jobId, fileId, Integer.parseInt(records));
+		if (cached != null) {
+			return new OutputFile(cached);
+		}
+
 		JSONArray fileList = zosmfService.getJobFiles(jobName, jobId);
 
 		if (fileList == null) {
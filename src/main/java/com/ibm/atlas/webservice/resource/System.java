@@ -10,6 +10,8 @@
 
 package com.ibm.atlas.webservice.resource;
 
+import java.util.Locale;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import javax.inject.Inject;
@@ -21,7 +23,19 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.core.UriInfo;
 
+import com.ibm.atlas.webservice.resource.socket.JobOutputTailHub;
 import com.ibm.atlas.webservice.resource.system.entity.Version;
+import com.ibm.atlas.webservice.services.Cache;
+import com.ibm.atlas.webservice.services.CircuitBreaker;
+import com.ibm.atlas.webservice.services.DatasetListingCache;
+import com.ibm.atlas.webservice.services.LatencyHistogram;
+import com.ibm.atlas.webservice.services.RequestCoalescer;
+import com.ibm.atlas.webservice.services.SpoolFileCache;
+import com.ibm.atlas.webservice.services.ZosmfBulkheads;
+import com.ibm.atlas.webservice.services.ZosmfRequestLimiter;
+import com.ibm.atlas.webservice.services.ZosmfMetrics;
+import com.ibm.atlas.webservice.services.ZosmfOperation;
+import com.ibm.atlas.webservice.services.ZosmfServiceFamily;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -32,12 +46,40 @@ import io.swagger.annotations.ApiResponses;
 
 @Api(value = "Zowe : System APIs")
 public class System {
+
+	static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4"; //$NON-NLS-1$
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+	private static final double MICROS_PER_SECOND = 1000000.0;
 	
 	@Context
 	private UriInfo uriInfo;
 	
 	@Inject
 	Logger log;
+
+	@Inject
+	ZosmfMetrics zosmfMetrics;
+
+	@Inject
+	ZosmfRequestLimiter zosmfRequestLimiter;
+
+	@Inject
+	ZosmfBulkheads zosmfBulkheads;
+
+	@Inject
+	RequestCoalescer requestCoalescer;
+
+	@Inject
+	Cache jobCache;
+
+	@Inject
+	SpoolFileCache spoolFileCache;
+
+	@Inject
+	DatasetListingCache datasetListingCache;
+
+	@Inject
+	JobOutputTailHub tailHub;
 	
 	/**
 	 * Get the current Atlas version
@@ -55,5 +97,170 @@ public class System {
 		return new Version();
 
 	}
-	
-}
\ No newline at end of file
+
+	/**
+	 * Get the z/OSMF request metrics and the state of the caches, in the
+	 * Prometheus text exposition format
+	 * 
+	 * @return Metrics text
+	 */
+	@GET
+	@Path(value = "metrics")
+	@Produces(PROMETHEUS_TEXT)
+	@ApiOperation(value = "Get Atlas metrics", 
+	notes = "This API returns the latency, response status and byte counts of requests to z/OSMF by operation, and the state of the Atlas caches, in Prometheus text format.")
+	@ApiResponses({@ApiResponse(code = 200, message = "Ok", response = String.class)})
+	public String getMetrics() {
+		StringBuilder metrics = new StringBuilder();
+		writeZosmfMetrics(metrics);
+
+		writeHeader(metrics, "zosmf_requests_in_flight", "gauge", "Requests to z/OSMF in flight"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "zosmf_requests_in_flight", null, zosmfRequestLimiter.getInFlight()); //$NON-NLS-1$
+		writeHeader(metrics, "zosmf_requests_waiting", "gauge", "Requests to z/OSMF waiting for a permit"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "zosmf_requests_waiting", null, zosmfRequestLimiter.getWaiting()); //$NON-NLS-1$
+		writeHeader(metrics, "zosmf_request_permits_available", "gauge", "Permits for requests to z/OSMF free to take"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "zosmf_request_permits_available", null, zosmfRequestLimiter.getAvailable()); //$NON-NLS-1$
+		writeBulkheadMetrics(metrics);
+
+		writeHeader(metrics, "atlas_job_cache_entries", "gauge", "Jobs in the job attribute cache"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "atlas_job_cache_entries", null, jobCache.size()); //$NON-NLS-1$
+		writeHeader(metrics, "atlas_job_cache_hits_total", "counter", "Job attribute cache hits"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "atlas_job_cache_hits_total", null, jobCache.getHitCount()); //$NON-NLS-1$
+		writeHeader(metrics, "atlas_job_cache_misses_total", "counter", "Job attribute cache misses"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "atlas_job_cache_misses_total", null, jobCache.getMissCount()); //$NON-NLS-1$
+		writeHeader(metrics, "atlas_job_cache_evictions_total", "counter", "Jobs evicted from the job attribute cache"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "atlas_job_cache_evictions_total", null, jobCache.getEvictionCount()); //$NON-NLS-1$
+		writeHeader(metrics, "atlas_job_cache_rejections_total", "counter", "New jobs not admitted to the job attribute cache"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "atlas_job_cache_rejections_total", null, jobCache.getRejectionCount()); //$NON-NLS-1$
+
+		writeHeader(metrics, "atlas_spool_cache_bytes", "gauge", "Bytes of spool files cached on disk"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "atlas_spool_cache_bytes", null, spoolFileCache.getTotalBytes()); //$NON-NLS-1$
+		writeHeader(metrics, "atlas_spool_cache_files", "gauge", "Spool files cached on disk"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "atlas_spool_cache_files", null, spoolFileCache.size()); //$NON-NLS-1$
+
+		writeHeader(metrics, "atlas_dataset_listing_cache_entries", "gauge", "Data set and member listings cached"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "atlas_dataset_listing_cache_entries", null, datasetListingCache.size()); //$NON-NLS-1$
+		writeHeader(metrics, "atlas_dataset_listing_cache_names", "gauge", "Names held in cached listings"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "atlas_dataset_listing_cache_names", null, datasetListingCache.getTotalNames()); //$NON-NLS-1$
+		writeHeader(metrics, "atlas_dataset_listing_cache_hits_total", "counter", "Listings answered from the cache"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "atlas_dataset_listing_cache_hits_total", null, datasetListingCache.getHitCount()); //$NON-NLS-1$
+		writeHeader(metrics, "atlas_dataset_listing_cache_misses_total", "counter", "Listings read from z/OSMF"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "atlas_dataset_listing_cache_misses_total", null, datasetListingCache.getMissCount()); //$NON-NLS-1$
+		writeHeader(metrics, "atlas_dataset_listing_cache_evictions_total", "counter", "Listings expired or evicted by writes"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "atlas_dataset_listing_cache_evictions_total", null, datasetListingCache.getEvictionCount()); //$NON-NLS-1$
+
+		writeHeader(metrics, "atlas_job_output_tails", "gauge", "Spool files being tailed for job output sessions"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "atlas_job_output_tails", null, tailHub.getTailCount()); //$NON-NLS-1$
+		writeHeader(metrics, "atlas_job_output_skipped_records_total", "counter", "Job output records dropped for slow sessions"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		writeSample(metrics, "atlas_job_output_skipped_records_total", null, tailHub.getSkippedRecordCount()); //$NON-NLS-1$
+		return metrics.toString();
+	}
+
+	private void writeZosmfMetrics(StringBuilder metrics) {
+		writeHeader(metrics, "zosmf_request_duration_seconds", "summary", "Time z/OSMF took to answer a request"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (ZosmfOperation operation : ZosmfOperation.values()) {
+			LatencyHistogram latency = zosmfMetrics.getLatency(operation);
+			String labels = "operation=\"" + operation.getLabel() + "\""; //$NON-NLS-1$ //$NON-NLS-2$
+			for (double quantile : QUANTILES) {
+				writeSample(metrics, "zosmf_request_duration_seconds", labels + ",quantile=\"" + quantile + "\"", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						latency.getValueAtQuantile(quantile) / MICROS_PER_SECOND);
+			}
+			writeSample(metrics, "zosmf_request_duration_seconds_sum", labels, latency.getSumMicros() / MICROS_PER_SECOND); //$NON-NLS-1$
+			writeSample(metrics, "zosmf_request_duration_seconds_count", labels, latency.getCount()); //$NON-NLS-1$
+		}
+
+		writeHeader(metrics, "zosmf_responses_total", "counter", "Responses from z/OSMF by status code"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (ZosmfOperation operation : ZosmfOperation.values()) {
+			for (Map.Entry<Integer, Long> status : zosmfMetrics.getStatusCounts(operation).entrySet()) {
+				writeSample(metrics, "zosmf_responses_total", //$NON-NLS-1$
+						"operation=\"" + operation.getLabel() + "\",status=\"" + status.getKey() + "\"", status.getValue()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+		}
+
+		writeHeader(metrics, "zosmf_request_failures_total", "counter", "Requests to z/OSMF that got no response"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (ZosmfOperation operation : ZosmfOperation.values()) {
+			writeSample(metrics, "zosmf_request_failures_total", "operation=\"" + operation.getLabel() + "\"", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					zosmfMetrics.getFailureCount(operation));
+		}
+
+		writeHeader(metrics, "zosmf_coalesced_requests_total", "counter", "Reads that shared an identical read in flight instead of calling z/OSMF"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (ZosmfOperation operation : ZosmfOperation.values()) {
+			writeSample(metrics, "zosmf_coalesced_requests_total", "operation=\"" + operation.getLabel() + "\"", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					requestCoalescer.getSavedCount(operation));
+		}
+
+		writeHeader(metrics, "zosmf_response_bytes_total", "counter", "Bytes received from z/OSMF in responses of known length"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (ZosmfOperation operation : ZosmfOperation.values()) {
+			writeSample(metrics, "zosmf_response_bytes_total", "operation=\"" + operation.getLabel() + "\"", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					zosmfMetrics.getResponseBytes(operation));
+		}
+
+		writeHeader(metrics, "zosmf_request_bytes_total", "counter", "Bytes sent to z/OSMF in text request bodies"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (ZosmfOperation operation : ZosmfOperation.values()) {
+			writeSample(metrics, "zosmf_request_bytes_total", "operation=\"" + operation.getLabel() + "\"", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					zosmfMetrics.getRequestBytes(operation));
+		}
+	}
+
+	private void writeBulkheadMetrics(StringBuilder metrics) {
+		writeHeader(metrics, "zosmf_circuit_state", "gauge", "Circuit breaker state of each z/OSMF service, 0 closed, 1 half open, 2 open"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (ZosmfServiceFamily family : ZosmfServiceFamily.values()) {
+			writeSample(metrics, "zosmf_circuit_state", "service=\"" + family.getLabel() + "\"", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					circuitStateValue(zosmfBulkheads.getState(family)));
+		}
+		writeHeader(metrics, "zosmf_circuit_opened_total", "counter", "Times the circuit of each z/OSMF service has opened"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (ZosmfServiceFamily family : ZosmfServiceFamily.values()) {
+			writeSample(metrics, "zosmf_circuit_opened_total", "service=\"" + family.getLabel() + "\"", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					zosmfBulkheads.getOpenCount(family));
+		}
+		writeHeader(metrics, "zosmf_bulkhead_active", "gauge", "Requests in flight to each z/OSMF service"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (ZosmfServiceFamily family : ZosmfServiceFamily.values()) {
+			writeSample(metrics, "zosmf_bulkhead_active", "service=\"" + family.getLabel() + "\"", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					zosmfBulkheads.getActive(family));
+		}
+		writeHeader(metrics, "zosmf_bulkhead_waiting", "gauge", "Requests waiting for the bulkhead of each z/OSMF service"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (ZosmfServiceFamily family : ZosmfServiceFamily.values()) {
+			writeSample(metrics, "zosmf_bulkhead_waiting", "service=\"" + family.getLabel() + "\"", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					zosmfBulkheads.getWaiting(family));
+		}
+		writeHeader(metrics, "zosmf_rejected_total", "counter", "Requests to each z/OSMF service failed fast with 503"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (ZosmfServiceFamily family : ZosmfServiceFamily.values()) {
+			writeSample(metrics, "zosmf_rejected_total", "service=\"" + family.getLabel() + "\",reason=\"circuitOpen\"", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					zosmfBulkheads.getRejectedOpenCount(family));
+			writeSample(metrics, "zosmf_rejected_total", "service=\"" + family.getLabel() + "\",reason=\"bulkheadFull\"", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					zosmfBulkheads.getRejectedFullCount(family));
+		}
+	}
+
+	private static long circuitStateValue(CircuitBreaker.State state) {
+		switch (state) {
+		case OPEN:
+			return 2;
+		case HALF_OPEN:
+			return 1;
+		default:
+			return 0;
+		}
+	}
+
+	private static void writeHeader(StringBuilder metrics, String name, String type, String help) {
+		metrics.append("# HELP ").append(name).append(' ').append(help).append('\n'); //$NON-NLS-1$
+		metrics.append("# TYPE ").append(name).append(' ').append(type).append('\n'); //$NON-NLS-1$
+	}
+
+	private static void writeSample(StringBuilder metrics, String name, String labels, long value) {
+		writeSample(metrics, name, labels, Long.toString(value));
+	}
+
+	private static void writeSample(StringBuilder metrics, String name, String labels, double value) {
+		writeSample(metrics, name, labels, String.format(Locale.ROOT, "%.6f", value)); //$NON-NLS-1$
+	}
+
+	private static void writeSample(StringBuilder metrics, String name, String labels, String value) {
+		metrics.append(name);
+		if (labels != null) {
+			metrics.append('{').append(labels).append('}');
+		}
+		metrics.append(' ').append(value).append('\n');
+	}
+}
@@ -29,6 +29,7 @@ import javax.ws.rs.core.UriInfo;
 import com.ibm.atlas.webservice.Messages;
 import com.ibm.atlas.webservice.resource.zos.entity.Sysplex;
 import com.ibm.atlas.webservice.resource.zos.entity.Username;
+import com.ibm.atlas.webservice.services.NegativeResultCache;
 import com.ibm.atlas.webservice.utilities.JZOSUtilities;
 
 import io.swagger.annotations.Api;
@@ -47,6 +48,9 @@ public class Zos {
 	@Inject
 	Logger log;
 	
+	@Inject
+	NegativeResultCache negativeResults;
+	
 	/**
 	 * Get the current user's TSO username
 	 * 
@@ -72,6 +76,9 @@ public class Zos {
 			Response errorResponse = Response.status(Status.NOT_FOUND).entity(error).type(MediaType.TEXT_PLAIN).build();
 			throw new WebApplicationException(errorResponse);
 		}
+		// The UI asks for the username when it signs on, so start with a clean
+		// slate of permission failures in case the user's authority has changed
+		negativeResults.invalidate(username);
 		
 		return new Username(username.toUpperCase());
 	}
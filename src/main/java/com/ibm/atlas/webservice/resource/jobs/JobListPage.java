@@ -0,0 +1,44 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.resource.jobs;
+
+import java.util.List;
+
+import com.ibm.atlas.webservice.resource.jobs.entity.JobNameList;
+
+/**
+ * One page of a job listing, with the cursor for the next page if there is
+ * one.
+ */
+public class JobListPage {
+
+	private final List<JobNameList> items;
+	private final int totalCount;
+	private final String nextCursor;
+
+	public JobListPage(List<JobNameList> items, int totalCount, String nextCursor) {
+		this.items = items;
+		this.totalCount = totalCount;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<JobNameList> getItems() {
+		return items;
+	}
+
+	public int getTotalCount() {
+		return totalCount;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+}
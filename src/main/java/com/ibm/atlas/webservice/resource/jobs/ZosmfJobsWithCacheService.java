@@ -10,20 +10,39 @@
 
 package com.ibm.atlas.webservice.resource.jobs;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.inject.Inject;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
 
 import com.ibm.atlas.model.jobs.Job;
+import com.ibm.atlas.model.jobs.JobStatus;
+import com.ibm.atlas.webservice.Messages;
 import com.ibm.atlas.webservice.exceptions.JobNotFoundException;
+import com.ibm.atlas.webservice.resource.jobs.entity.JobNameList;
 import com.ibm.atlas.webservice.services.JobAttributeCache;
+import com.ibm.atlas.webservice.services.JobListSnapshots;
+import com.ibm.atlas.webservice.services.JobListSnapshots.Snapshot;
+import com.ibm.atlas.webservice.services.SpoolFileCache;
 import com.ibm.atlas.webservice.services.ZosmfJobsService;
 
 public class ZosmfJobsWithCacheService  {
 	
 	@Inject
-	private JobAttributeCache cache;
+	JobAttributeCache cache;
 
 	@Inject
 	ZosmfJobsService zosmfService;
+
+	@Inject
+	JobListSnapshots snapshots;
+
+	@Inject
+	SpoolFileCache spoolFiles;
 	
 	public Job getJob(String jobName, String jobId, boolean concise) throws JobNotFoundException {
 		Job job = zosmfService.getJob(jobName, jobId);
@@ -32,4 +51,121 @@ public class ZosmfJobsWithCacheService  {
 		}
 		return cache.getAdditionalAttributes(job);
 	}
+
+	public List<JobNameList> getJobs(String prefix, String owner, JobStatus status, boolean concise) {
+		List<JobNameList> jobs = zosmfService.getJobs(prefix, owner, status);
+		if (concise) {
+			return jobs;
+		}
+		List<Job> jobInstances = getJobInstances(jobs);
+		cache.getAdditionalAttributes(jobInstances);
+		cache.backgroundUpdate(jobInstances);
+		return jobs;
+	}
+
+	/**
+	 * Get one page of a job listing. Without a cursor, the jobs are listed
+	 * and a snapshot of the listing taken; with one, the page comes from the
+	 * snapshot and the filters are ignored. Only the jobs on the page are
+	 * given additional attributes, but the cache is trimmed against the whole
+	 * listing.
+	 * 
+	 * @param user
+	 *            The requesting user, who alone may page through the snapshot
+	 * @param limit
+	 *            Maximum number of job names on the page
+	 * @param cursor
+	 *            The next cursor from the previous page, or null
+	 */
+	public JobListPage getJobs(String prefix, String owner, JobStatus status, boolean concise, String user, int limit, String cursor) {
+		Snapshot snapshot;
+		int offset = 0;
+		if (cursor == null) {
+			List<JobNameList> jobs = zosmfService.getJobs(prefix, owner, status);
+			snapshot = snapshots.create(user, jobs);
+			if (!concise) {
+				cache.backgroundUpdate(getJobInstances(jobs));
+			}
+		} else {
+			int separator = cursor.lastIndexOf(':');
+			try {
+				offset = Integer.parseInt(cursor.substring(separator + 1));
+			} catch (NumberFormatException e) {
+				throw createInvalidCursorException(cursor, Status.BAD_REQUEST);
+			}
+			snapshot = separator > 0 && offset >= 0 ? snapshots.get(cursor.substring(0, separator), user) : null;
+			if (snapshot == null) {
+				throw createInvalidCursorException(cursor, Status.GONE);
+			}
+		}
+		List<JobNameList> page = snapshot.page(offset, limit);
+		if (!concise) {
+			cache.getAdditionalAttributes(getJobInstances(page));
+		}
+		int next = offset + page.size();
+		return new JobListPage(page, snapshot.size(), next < snapshot.size() ? snapshot.getId() + ':' + next : null);
+	}
+
+	/**
+	 * Read records of a job's spool file, from a local copy if the user has
+	 * read the file before and the job has completed. Otherwise the records
+	 * come from z/OSMF and a copy is made in the background for next time.
+	 */
+	public String getJobFileRecordsByRange(String user, String jobName, String jobId, String fileId, String start, String end) {
+		String key = spoolFiles.key(user, jobName, jobId, fileId);
+		if (key != null) {
+			String records = null;
+			if (start == null || end == null) {
+				records = spoolFiles.getRecords(key, 0, Long.MAX_VALUE - 1);
+			} else {
+				try {
+					// An end of 0 reads to the end of the file
+					long last = Long.parseLong(end);
+					records = spoolFiles.getRecords(key, Long.parseLong(start), last == 0 ? Long.MAX_VALUE - 1 : last);
+				} catch (NumberFormatException e) {
+					// Let z/OSMF report the bad range
+				}
+			}
+			if (records != null) {
+				return records;
+			}
+			fillSpoolFileCache(key, jobName, jobId, fileId);
+		}
+		return zosmfService.getJobFileRecordsByRange(jobName, jobId, fileId, start, end);
+	}
+
+	/**
+	 * @return The last records of a job's spool file from a local copy, or
+	 *         null if there is no copy yet
+	 */
+	public String getJobFileTail(String user, String jobName, String jobId, String fileId, long records) {
+		String key = spoolFiles.key(user, jobName, jobId, fileId);
+		if (key == null) {
+			return null;
+		}
+		String tail = spoolFiles.getTail(key, records);
+		if (tail == null) {
+			fillSpoolFileCache(key, jobName, jobId, fileId);
+		}
+		return tail;
+	}
+
+	private void fillSpoolFileCache(String key, String jobName, String jobId, String fileId) {
+		spoolFiles.fill(key, () -> zosmfService.getJobStatus(jobName, jobId) == JobStatus.OUTPUT,
+				() -> zosmfService.getJobFileRecordsStreamByRange(jobName, jobId, fileId, null, null));
+	}
+
+	private static List<Job> getJobInstances(List<JobNameList> jobs) {
+		List<Job> jobInstances = new ArrayList<>();
+		for (JobNameList jobNameList : jobs) {
+			jobInstances.addAll(jobNameList.getJobInstances());
+		}
+		return jobInstances;
+	}
+
+	private static WebApplicationException createInvalidCursorException(String cursor, Status status) {
+		String error = String.format(Messages.getString("Jobs.InvalidCursor"), cursor); //$NON-NLS-1$
+		Response errorResponse = Response.status(status).entity(error).type(MediaType.TEXT_PLAIN).build();
+		return new WebApplicationException(errorResponse);
+	}
 }
@@ -12,9 +12,6 @@ package com.ibm.atlas.webservice.resource.socket;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.inject.Inject;
@@ -39,19 +36,18 @@ public class JobOutput {
 	@Inject
 	private Logger log;
 
-	private static final int UPDATE_INTERVAL = 5;
-	private static final int INITIAL_UPDATE_DELAY = UPDATE_INTERVAL;
-
-	private Session session;
 	private String jobname;
 	private String jobid;
 	private String fileid;
-	private int lastRecordNumber;
-	private ScheduledExecutorService service;
+	private long lastRecordNumber;
+	private boolean subscribed;
 	
 	@Inject 
 	private ZosmfJobsService zosmfService;
 
+	@Inject
+	private JobOutputTailHub tailHub;
+
 	@OnOpen
 	public void onOpen(Session session, EndpointConfig config, @PathParam("jobname") String jobname,
 			@PathParam("jobid") String jobid, @PathParam("fileid") String fileid) {
@@ -90,9 +86,7 @@ public class JobOutput {
 	private void initializeSession(Session session, EndpointConfig config, String jobname, String jobid,
 			String fileid) {
 		int records;
-		int startRecord;
 
-		this.session = session;
 		this.jobname = jobname;
 		this.jobid = jobid;
 		this.fileid = fileid;
@@ -112,30 +106,32 @@ public class JobOutput {
 			records = 0;
 		}
 
-		String output = zosmfService.getJobFileRecordsByRange(jobname, jobid, fileid, "0", "0"); //$NON-NLS-1$ //$NON-NLS-2$
+		// Only read the records that will be shown, the file may be huge
+		long fromRecord = 0;
+		if (records > 0) {
+			long recordCount = zosmfService.getJobFileRecordCount(jobname, jobid, fileid);
+			if (recordCount > records) {
+				fromRecord = recordCount - records;
+			}
+		}
+		String output = zosmfService.getJobFileRecordsByRange(jobname, jobid, fileid, Long.toString(fromRecord), "0"); //$NON-NLS-1$
 		if ( output == null ) {
 			output = ""; //$NON-NLS-1$
 		}
-		String[] lines = output.split(Messages.getString("Files.Newline")); //$NON-NLS-1$
-
-		startRecord = lines.length - records;
-		if (startRecord < 0 || records == 0) {
-			startRecord = 0;
-		}
-
-		StringBuilder sb = new StringBuilder();
-		for (int i = startRecord; i < lines.length; i++) {
-			sb.append(lines[i]);
-			sb.append(Messages.getString("Files.Newline")); //$NON-NLS-1$
+		// The file may have grown since it was counted
+		long recordsRead = JobOutputTailHub.countRecords(output);
+		if (records > 0 && recordsRead > records) {
+			output = JobOutputTailHub.skipRecords(output, recordsRead - records);
 		}
-		if (sb.length() > 0) sendMessage(session, sb.toString());
+		lastRecordNumber = fromRecord + recordsRead;
 
-		lastRecordNumber = lines.length;
-
-		JobStatus status = zosmfService.getJobStatus(jobname, jobid);
+		JobStatus status = tailHub.getJobStatus(jobname, jobid);
 		if (JobStatus.ACTIVE.equals(status)) {
-			service = scheduleJobOutputUpdates();
+			// The hub queues the snapshot ahead of new records without blocking
+			tailHub.subscribe(session, jobname, jobid, fileid, lastRecordNumber, output);
+			subscribed = true;
 		} else {
+			if (!output.isEmpty()) sendMessage(session, output);
 			try {
 				CloseReason reason = new CloseReason(CloseCodes.NORMAL_CLOSURE, Messages.getString("JobOutput.NoLongerActive")); //$NON-NLS-1$
 				session.close(reason);
@@ -148,48 +144,10 @@ public class JobOutput {
 	}
 
 	private void terminateSession(Session session) {
-		if ( service != null ) {
-			service.shutdown();
+		if (subscribed) {
+			tailHub.unsubscribe(session, jobname, jobid, fileid);
 		}
 		return;
 	}
 
-	private ScheduledExecutorService scheduleJobOutputUpdates() {
-		ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor();
-		service.scheduleAtFixedRate(getRunnableUpdate(), INITIAL_UPDATE_DELAY, UPDATE_INTERVAL, TimeUnit.SECONDS);
-		return service;
-	}
-
-	private Runnable getRunnableUpdate() {
-		return new Runnable() {
-			@Override
-			public void run() {
-				processJobOutputRequests();
-			}
-		};
-	}
-
-	void processJobOutputRequests() {
-		String output = zosmfService.getJobFileRecordsByRange(jobname, jobid, fileid,
-				String.format("%d", lastRecordNumber), "0"); //$NON-NLS-1$ //$NON-NLS-2$
-		if ( output == null ) {
-			output = ""; //$NON-NLS-1$
-		}
-		String[] lines = output.split("\n"); //$NON-NLS-1$
-		if (lines.length > 0 && !lines[0].isEmpty()) {
-			sendMessage(session, output);
-			lastRecordNumber += lines.length;
-		}
-
-		JobStatus status = zosmfService.getJobStatus(jobname, jobid);
-		if (JobStatus.ACTIVE.equals(status)) {
-			try {
-				CloseReason reason = new CloseReason(CloseCodes.NORMAL_CLOSURE, Messages.getString("JobOutput.NoLongerActive")); //$NON-NLS-1$
-				session.close(reason);
-			} catch (IOException e) {
-				log.severe(String.format(Messages.getString("JobOutput.SessionCloseError"), session.getId(), e.getMessage())); //$NON-NLS-1$
-			}
-		}
-	}
-
 }
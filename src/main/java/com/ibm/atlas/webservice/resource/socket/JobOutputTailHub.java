@@ -0,0 +1,559 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.resource.socket;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ContextService;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.websocket.CloseReason;
+import javax.websocket.CloseReason.CloseCodes;
+import javax.websocket.Session;
+
+import com.ibm.atlas.model.jobs.Job;
+import com.ibm.atlas.model.jobs.JobStatus;
+import com.ibm.atlas.webservice.Messages;
+import com.ibm.atlas.webservice.resource.jobs.entity.JobNameList;
+import com.ibm.atlas.webservice.services.ZosmfJobsService;
+import com.ibm.atlas.webservice.utilities.ConfigurationUtilities;
+
+/**
+ * Follows the spool files that websocket sessions are tailing. There is one
+ * poller per spool file however many sessions are watching it, running on the
+ * shared managed scheduler. Each poll reads the new records from the earliest
+ * record any subscriber still needs and sends each subscriber its share
+ * asynchronously. The poller stops when the last subscriber leaves or the job
+ * is no longer active.
+ * <p>
+ * The poll interval adapts to the file: it drops to the minimum while new
+ * records keep arriving and doubles on each quiet poll up to the maximum, so
+ * idle jobs cost few z/OSMF calls. Each session has its own send queue with
+ * at most one send in flight. If a slow client lets its queue grow beyond the
+ * byte cap, the oldest unsent output is dropped and replaced by a marker
+ * saying how many records were skipped, rather than holding up the poller or
+ * the other subscribers.
+ * <p>
+ * Job statuses are shared too. One refresh per status interval lists each
+ * tailed job name once for each user tailing it and updates the status of
+ * every tailed job. When a job is seen to leave the active state, each of its
+ * tails polls once more for the last records and then closes its sessions. A
+ * job whose status can't be found, because it was purged or the user may not
+ * see it, is left alone.
+ * <p>
+ * Subscribers read the start of the file on their own thread before
+ * subscribing, so a user who may not read the spool file never joins a tail
+ * started by someone who can. Each subscriber keeps the security context it
+ * subscribed with, and z/OSMF is only called as a user still subscribed: polls
+ * run as one of the subscribers of the tail and status refreshes as one of
+ * the subscribers of each user.
+ */
+@Singleton
+@ApplicationScoped
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class JobOutputTailHub {
+
+	static final long DEFAULT_MINIMUM_INTERVAL_MILLIS = 1000;
+	static final long DEFAULT_MAXIMUM_INTERVAL_MILLIS = 30000;
+	static final long DEFAULT_SEND_QUEUE_BYTES = 1024 * 1024;
+	static final long DEFAULT_STATUS_INTERVAL_MILLIS = 5000;
+
+	@Inject
+	Logger log;
+
+	@Inject
+	ZosmfJobsService zosmfService;
+
+	@Resource
+	ManagedScheduledExecutorService scheduler;
+
+	@Resource
+	ContextService contextService;
+
+	private final Map<String, Tail> tails = new ConcurrentHashMap<>();
+	private final long minimumIntervalMillis;
+	private final long maximumIntervalMillis;
+	private final long sendQueueBytes;
+	private final long statusIntervalMillis;
+	private final AtomicLong skippedRecords = new AtomicLong();
+	private final Map<String, JobStatus> jobStatuses = new ConcurrentHashMap<>();
+	private final Object statusRefreshLock = new Object();
+	private ScheduledFuture<?> statusRefresher;
+	private final AtomicLong statusRefreshCount = new AtomicLong();
+
+	public JobOutputTailHub() {
+		this(ConfigurationUtilities.getLong("jobOutputMinimumIntervalMillis", DEFAULT_MINIMUM_INTERVAL_MILLIS), //$NON-NLS-1$
+				ConfigurationUtilities.getLong("jobOutputMaximumIntervalMillis", DEFAULT_MAXIMUM_INTERVAL_MILLIS), //$NON-NLS-1$
+				ConfigurationUtilities.getLong("jobOutputSendQueueBytes", DEFAULT_SEND_QUEUE_BYTES), //$NON-NLS-1$
+				ConfigurationUtilities.getLong("jobOutputStatusIntervalMillis", DEFAULT_STATUS_INTERVAL_MILLIS)); //$NON-NLS-1$
+	}
+
+	JobOutputTailHub(long minimumIntervalMillis, long maximumIntervalMillis, long sendQueueBytes, long statusIntervalMillis) {
+		this.minimumIntervalMillis = Math.max(minimumIntervalMillis, 1);
+		this.maximumIntervalMillis = Math.max(maximumIntervalMillis, this.minimumIntervalMillis);
+		this.sendQueueBytes = Math.max(sendQueueBytes, 1);
+		this.statusIntervalMillis = Math.max(statusIntervalMillis, 1);
+	}
+
+	/**
+	 * Start sending a session the records of a spool file as they are written
+	 *
+	 * @param nextRecord
+	 *            The first record the session hasn't been sent yet
+	 * @param initialOutput
+	 *            Output to send the session before any new records, or null
+	 */
+	public void subscribe(Session session, String jobName, String jobId, String fileId, long nextRecord, String initialOutput) {
+		Principal principal = session.getUserPrincipal();
+		String user = principal != null && principal.getName() != null ? principal.getName() : ""; //$NON-NLS-1$
+		// Runs calls to z/OSMF as this user, whichever thread makes them
+		Executor identity = contextService.createContextualProxy((Executor) Runnable::run, Executor.class);
+		Subscriber subscriber = new Subscriber(session, nextRecord, user, identity);
+		if (initialOutput != null && !initialOutput.isEmpty()) {
+			send(subscriber, initialOutput);
+		}
+		tails.compute(key(jobName, jobId, fileId), (key, existing) -> {
+			Tail tail = existing;
+			if (tail == null) {
+				tail = new Tail(key, jobName, jobId, fileId, minimumIntervalMillis);
+				schedule(tail);
+			}
+			tail.subscribers.add(subscriber);
+			return tail;
+		});
+		startStatusRefresh();
+	}
+
+	/**
+	 * @return The status of a job, shared with the tails of the job if it has
+	 *         any, otherwise looked up
+	 */
+	public JobStatus getJobStatus(String jobName, String jobId) {
+		JobStatus status = jobStatuses.get(jobKey(jobName, jobId));
+		return status != null ? status : zosmfService.getJobStatus(jobName, jobId);
+	}
+
+	public void unsubscribe(Session session, String jobName, String jobId, String fileId) {
+		tails.computeIfPresent(key(jobName, jobId, fileId), (key, tail) -> {
+			tail.subscribers.removeIf(subscriber -> subscriber.session == session);
+			if (tail.subscribers.isEmpty()) {
+				tail.poller.cancel(false);
+				return null;
+			}
+			return tail;
+		});
+	}
+
+	/**
+	 * @return Number of spool files being polled
+	 */
+	public int getTailCount() {
+		return tails.size();
+	}
+
+	/**
+	 * @return Number of records dropped from the send queues of slow clients
+	 */
+	public long getSkippedRecordCount() {
+		return skippedRecords.get();
+	}
+
+	/**
+	 * @return Number of times the statuses of the tailed jobs have been
+	 *         refreshed
+	 */
+	public long getStatusRefreshCount() {
+		return statusRefreshCount.get();
+	}
+
+	void poll(Tail tail) {
+		synchronized (tail) {
+			// A poll scheduled while another was running leaves it to reschedule
+			if (tail.running || tail.closed) {
+				return;
+			}
+			tail.running = true;
+		}
+		// Once the job has ended, the file is complete by the time it's read
+		boolean ending = tail.ending;
+		boolean closed = false;
+		long records = 0;
+		try {
+			long from = Long.MAX_VALUE;
+			Subscriber reader = null;
+			for (Subscriber subscriber : tail.subscribers) {
+				from = Math.min(from, subscriber.nextRecord);
+				reader = reader != null ? reader : subscriber;
+			}
+			if (reader == null) {
+				return;
+			}
+			long start = from;
+			String output = callAs(reader, () -> zosmfService.getJobFileRecordsByRange(tail.jobName, tail.jobId, tail.fileId, Long.toString(start), "0")); //$NON-NLS-1$
+			records = countRecords(output);
+			if (records > 0) {
+				long end = from + records;
+				for (Subscriber subscriber : tail.subscribers) {
+					if (subscriber.nextRecord < end) {
+						send(subscriber, skipRecords(output, subscriber.nextRecord - from));
+						subscriber.nextRecord = end;
+					}
+				}
+			}
+			if (ending) {
+				close(tail);
+				closed = true;
+			}
+		} catch (RuntimeException e) {
+			// Keep polling, the next attempt may work
+			log.log(Level.WARNING, Messages.getString("JobOutput.ErrorReading") + e.getMessage(), e); //$NON-NLS-1$
+		} finally {
+			synchronized (tail) {
+				tail.running = false;
+				if (!closed) {
+					reschedule(tail, records > 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Schedule the next poll of a tail that still has subscribers, sooner if
+	 * the last poll found new records and later if it didn't
+	 */
+	private void reschedule(Tail tail, boolean active) {
+		tail.intervalMillis = active ? minimumIntervalMillis : Math.min(tail.intervalMillis * 2, maximumIntervalMillis);
+		tails.computeIfPresent(tail.key, (key, current) -> {
+			if (current == tail) {
+				schedule(tail, tail.ending ? 0 : tail.intervalMillis);
+			}
+			return current;
+		});
+	}
+
+	private void schedule(Tail tail) {
+		schedule(tail, tail.intervalMillis);
+	}
+
+	private void schedule(Tail tail, long delayMillis) {
+		tail.poller = scheduler.schedule(() -> poll(tail), delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Make sure the statuses of the tailed jobs are being refreshed
+	 */
+	private void startStatusRefresh() {
+		synchronized (statusRefreshLock) {
+			if (statusRefresher == null) {
+				statusRefresher = scheduler.scheduleWithFixedDelay(this::refreshStatuses, statusIntervalMillis, statusIntervalMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Refresh the status of every tailed job, listing each job name once for
+	 * each user tailing it, and wind up the tails of jobs that are no longer
+	 * active
+	 */
+	void refreshStatuses() {
+		try {
+			Map<String, Subscriber> identities = new HashMap<>();
+			Map<String, Map<String, Set<String>>> jobIdsByUser = new HashMap<>();
+			Set<String> tailedJobs = new HashSet<>();
+			for (Tail tail : tails.values()) {
+				tailedJobs.add(jobKey(tail.jobName, tail.jobId));
+				for (Subscriber subscriber : tail.subscribers) {
+					identities.putIfAbsent(subscriber.user, subscriber);
+					jobIdsByUser.computeIfAbsent(subscriber.user, user -> new HashMap<>())
+						.computeIfAbsent(tail.jobName, name -> new HashSet<>()).add(tail.jobId);
+				}
+			}
+			for (Map.Entry<String, Map<String, Set<String>>> user : jobIdsByUser.entrySet()) {
+				Subscriber identity = identities.get(user.getKey());
+				for (Map.Entry<String, Set<String>> jobName : user.getValue().entrySet()) {
+					try {
+						callAs(identity, () -> refreshStatuses(jobName.getKey(), jobName.getValue()));
+					} catch (RuntimeException e) {
+						// Leave these statuses alone until the next refresh
+						log.log(Level.WARNING, Messages.getString("JobOutput.ErrorReading") + e.getMessage(), e); //$NON-NLS-1$
+					}
+				}
+			}
+			jobStatuses.keySet().retainAll(tailedJobs);
+			statusRefreshCount.incrementAndGet();
+		} finally {
+			synchronized (statusRefreshLock) {
+				// Subscribers add their tail before starting the refresh
+				if (tails.isEmpty() && statusRefresher != null) {
+					statusRefresher.cancel(false);
+					statusRefresher = null;
+				}
+			}
+		}
+	}
+
+	private Void refreshStatuses(String jobName, Set<String> jobIds) {
+		Map<String, JobStatus> listed = new HashMap<>();
+		for (JobNameList jobNameList : zosmfService.getJobs(jobName, "*", JobStatus.ALL)) { //$NON-NLS-1$
+			for (Job job : jobNameList.getJobInstances()) {
+				listed.put(job.getJobId(), job.getStatus());
+			}
+		}
+		for (String jobId : jobIds) {
+			JobStatus status = listed.get(jobId);
+			if (status == null) {
+				// Not in a truncated listing, or purged
+				status = zosmfService.getJobStatus(jobName, jobId);
+			}
+			if (status == null) {
+				// Purged, or hidden from this user, either way not known to have ended
+				continue;
+			}
+			jobStatuses.put(jobKey(jobName, jobId), status);
+			if (!JobStatus.ACTIVE.equals(status)) {
+				endTails(jobName, jobId);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Call z/OSMF as the user of a subscriber
+	 */
+	private static <T> T callAs(Subscriber subscriber, Supplier<T> call) {
+		AtomicReference<T> result = new AtomicReference<>();
+		subscriber.identity.execute(() -> result.set(call.get()));
+		return result.get();
+	}
+
+	/**
+	 * Have each tail of an ended job poll once more straight away, then close
+	 */
+	private void endTails(String jobName, String jobId) {
+		for (Tail tail : tails.values()) {
+			if (!tail.jobName.equals(jobName) || !tail.jobId.equals(jobId) || tail.ending) {
+				continue;
+			}
+			synchronized (tail) {
+				tail.ending = true;
+				// A running poll sees the flag when it reschedules itself
+				if (!tail.running && tails.get(tail.key) == tail) {
+					tail.poller.cancel(false);
+					schedule(tail, 0);
+				}
+			}
+		}
+	}
+
+	private void close(Tail tail) {
+		synchronized (tail) {
+			if (tail.closed) {
+				return;
+			}
+			tail.closed = true;
+		}
+		tails.remove(tail.key, tail);
+		tail.poller.cancel(false);
+		for (Subscriber subscriber : tail.subscribers) {
+			synchronized (subscriber) {
+				subscriber.closing = true;
+			}
+			// Closes once the output already queued has been sent
+			sendNext(subscriber);
+		}
+	}
+
+	private void closeSession(Session session) {
+		try {
+			CloseReason reason = new CloseReason(CloseCodes.NORMAL_CLOSURE, Messages.getString("JobOutput.NoLongerActive")); //$NON-NLS-1$
+			session.close(reason);
+		} catch (IOException e) {
+			log.severe(String.format(Messages.getString("JobOutput.SessionCloseError"), session.getId(), e.getMessage())); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Queue output for a session, dropping the oldest unsent output if the
+	 * queue would exceed its cap
+	 */
+	void send(Subscriber subscriber, String message) {
+		if (!subscriber.session.isOpen()) {
+			return;
+		}
+		long skipped = 0;
+		synchronized (subscriber) {
+			if (message.length() > sendQueueBytes) {
+				int start = message.indexOf('\n', (int) (message.length() - sendQueueBytes - 1)) + 1;
+				start = start > 0 ? start : message.length();
+				skipped += countRecords(message.substring(0, start));
+				message = message.substring(start);
+			}
+			if (subscriber.queuedBytes + message.length() > sendQueueBytes) {
+				for (String dropped : subscriber.queue) {
+					skipped += countRecords(dropped);
+				}
+				subscriber.queue.clear();
+				subscriber.queuedBytes = 0;
+			}
+			subscriber.skippedRecords += skipped;
+			if (!message.isEmpty()) {
+				subscriber.queue.add(message);
+				subscriber.queuedBytes += message.length();
+			}
+		}
+		if (skipped > 0) {
+			skippedRecords.addAndGet(skipped);
+		}
+		sendNext(subscriber);
+	}
+
+	private void sendNext(Subscriber subscriber) {
+		Session session = subscriber.session;
+		String message;
+		boolean close;
+		synchronized (subscriber) {
+			if (subscriber.sending) {
+				return;
+			}
+			if (!session.isOpen()) {
+				subscriber.queue.clear();
+				subscriber.queuedBytes = 0;
+				return;
+			}
+			if (subscriber.queue.isEmpty() && subscriber.skippedRecords == 0) {
+				message = null;
+			} else {
+				message = subscriber.queue.isEmpty() ? "" : subscriber.queue.poll(); //$NON-NLS-1$
+				subscriber.queuedBytes -= message.length();
+				if (subscriber.skippedRecords > 0) {
+					message = String.format(Messages.getString("JobOutput.RecordsSkipped"), subscriber.skippedRecords) + message; //$NON-NLS-1$
+					subscriber.skippedRecords = 0;
+				}
+				subscriber.sending = true;
+			}
+			close = subscriber.closing;
+		}
+		if (message == null) {
+			if (close) {
+				closeSession(session);
+			}
+			return;
+		}
+		session.getAsyncRemote().sendText(message, result -> {
+			synchronized (subscriber) {
+				subscriber.sending = false;
+			}
+			if (!result.isOK()) {
+				log.severe(String.format(Messages.getString("JobOutput.UnableToSend"), session.getId(), result.getException().getMessage())); //$NON-NLS-1$
+			}
+			sendNext(subscriber);
+		});
+	}
+
+	private static String key(String jobName, String jobId, String fileId) {
+		return jobName + '/' + jobId + '/' + fileId;
+	}
+
+	private static String jobKey(String jobName, String jobId) {
+		return jobName + '/' + jobId;
+	}
+
+	static long countRecords(String output) {
+		if (output == null || output.isEmpty()) {
+			return 0;
+		}
+		long records = 0;
+		for (int i = 0; i < output.length(); i++) {
+			if (output.charAt(i) == '\n') {
+				records++;
+			}
+		}
+		return output.charAt(output.length() - 1) == '\n' ? records : records + 1;
+	}
+
+	static String skipRecords(String output, long records) {
+		int start = 0;
+		for (long i = 0; i < records && start >= 0; i++) {
+			start = output.indexOf('\n', start);
+			start = start < 0 ? output.length() : start + 1;
+		}
+		return output.substring(start);
+	}
+
+	static final class Tail {
+		final String key;
+		final String jobName;
+		final String jobId;
+		final String fileId;
+		final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+		volatile ScheduledFuture<?> poller;
+		// Only updated by the poller
+		volatile long intervalMillis;
+		// Set once the job is no longer active
+		volatile boolean ending;
+		// Guarded by the tail
+		boolean running;
+		boolean closed;
+
+		Tail(String key, String jobName, String jobId, String fileId, long intervalMillis) {
+			this.key = key;
+			this.jobName = jobName;
+			this.jobId = jobId;
+			this.fileId = fileId;
+			this.intervalMillis = intervalMillis;
+		}
+	}
+
+	static final class Subscriber {
+		final Session session;
+		final String user;
+		// Runs tasks in the security context the session subscribed with
+		final Executor identity;
+		// Only updated by the poller once subscribed
+		volatile long nextRecord;
+		// Guarded by the subscriber
+		final Deque<String> queue = new ArrayDeque<>();
+		long queuedBytes;
+		long skippedRecords;
+		boolean sending;
+		boolean closing;
+
+		Subscriber(Session session, long nextRecord, String user, Executor identity) {
+			this.session = session;
+			this.nextRecord = nextRecord;
+			this.user = user;
+			this.identity = identity;
+		}
+	}
+}
@@ -10,53 +10,348 @@
 
 package com.ibm.atlas.webservice.services;
 
-import java.util.HashSet;
+import java.util.ArrayDeque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
 import java.util.logging.Logger;
 
+import javax.annotation.Resource;
 import javax.ejb.ConcurrencyManagement;
 import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
 import com.ibm.atlas.model.jobs.Job;
+import com.ibm.atlas.webservice.utilities.ConfigurationUtilities;
 
+/**
+ * Job instances seen in listings, holding attributes that are expensive to
+ * look up such as the subsystem. The cache is bounded by size and by time
+ * since the entry was written. Newly seen jobs go into a small window of the
+ * most recent entries. A job leaving the window when the cache is full only
+ * displaces the oldest entry of the rest of the cache if it has been asked
+ * for at least as often (TinyLFU admission), so a single large listing can't
+ * flush the jobs people are actually looking at, while a burst of requests
+ * for a new job still finds it in the window.
+ * <p>
+ * Listings also trim the cache of jobs that have left the spool. Each trim
+ * starts a new generation and stamps the listed jobs with it; jobs that have
+ * not appeared in any of the last few generations are then removed. Trims run
+ * on the shared managed scheduler and are coalesced, so a burst of listings
+ * costs one trim against the most recent listing.
+ */
 @Singleton
 @ApplicationScoped
 @ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 public class Cache {
 
+	static final int DEFAULT_MAXIMUM_SIZE = 10000;
+	static final long DEFAULT_EXPIRY_SECONDS = 3600;
+	static final int DEFAULT_RETAINED_GENERATIONS = 3;
+	static final long TIDY_DELAY_SECONDS = 5;
+
 	@Inject
 	Logger log;
-	
-	private Map<String, Job> cachedJobInstances;
+
+	@Resource
+	ManagedScheduledExecutorService scheduler;
+
+	private final Map<JobInstanceKey, CacheEntry> cachedJobInstances;
+	private final Queue<CacheEntry> insertionOrder;
+	private final AtomicInteger insertionOrderSize;
+	// Guarded by the eviction lock, like the window flag of each entry
+	private final Queue<CacheEntry> windowOrder;
+	private final int windowSize;
+	private final FrequencySketch sketch;
+	private final Object evictionLock;
+	private final int maximumSize;
+	private final long expiryNanos;
+	private final int retainedGenerations;
+	private final LongSupplier ticker;
+	private final AtomicLong generation;
+
+	private final AtomicLong hitCount;
+	private final AtomicLong missCount;
+	private final AtomicLong evictionCount;
+	private final AtomicLong rejectionCount;
+
+	private final SingleFlight<SubsystemLoadKey, SubsystemResult> subsystemLoads;
+
+	private final AtomicReference<List<Job>> pendingTidy;
+	private final AtomicInteger pendingTidyRequests;
+	private final AtomicLong tidyCount;
+	private final AtomicLong tidyNanos;
+	private volatile long lastTidyNanos;
+
 	public Cache() {
+		this(ConfigurationUtilities.getInteger("jobCacheMaximumSize", DEFAULT_MAXIMUM_SIZE), //$NON-NLS-1$
+				ConfigurationUtilities.getLong("jobCacheExpirySeconds", DEFAULT_EXPIRY_SECONDS), //$NON-NLS-1$
+				ConfigurationUtilities.getInteger("jobCacheRetainedGenerations", DEFAULT_RETAINED_GENERATIONS), //$NON-NLS-1$
+				System::nanoTime);
+	}
+
+	Cache(int maximumSize, long expirySeconds, int retainedGenerations, LongSupplier ticker) {
+		this.maximumSize = Math.max(maximumSize, 1);
+		this.expiryNanos = TimeUnit.SECONDS.toNanos(expirySeconds);
+		this.retainedGenerations = Math.max(retainedGenerations, 1);
+		this.ticker = ticker;
+		generation = new AtomicLong();
 		cachedJobInstances = new ConcurrentHashMap<>();
+		insertionOrder = new ConcurrentLinkedQueue<>();
+		insertionOrderSize = new AtomicInteger();
+		windowOrder = new ArrayDeque<>();
+		windowSize = Math.max(this.maximumSize / 100, 1);
+		sketch = new FrequencySketch(this.maximumSize);
+		evictionLock = new Object();
+		hitCount = new AtomicLong();
+		missCount = new AtomicLong();
+		evictionCount = new AtomicLong();
+		rejectionCount = new AtomicLong();
+		subsystemLoads = new SingleFlight<>();
+		pendingTidy = new AtomicReference<>();
+		pendingTidyRequests = new AtomicInteger();
+		tidyCount = new AtomicLong();
+		tidyNanos = new AtomicLong();
+	}
+
+	public Job get(JobInstanceKey key) {
+		sketch.increment(key);
+		CacheEntry entry = cachedJobInstances.get(key);
+		if (entry == null) {
+			missCount.incrementAndGet();
+			return null;
+		}
+		if (entry.isExpired(ticker.getAsLong(), expiryNanos)) {
+			if (cachedJobInstances.remove(key, entry)) {
+				evictionCount.incrementAndGet();
+			}
+			missCount.incrementAndGet();
+			return null;
+		}
+		hitCount.incrementAndGet();
+		return entry.job;
+	}
+
+	public void put(JobInstanceKey key, Job cachedInstance) {
+		sketch.increment(key);
+		CacheEntry entry = new CacheEntry(key, cachedInstance, ticker.getAsLong(), generation.get());
+		synchronized (evictionLock) {
+			CacheEntry replaced = cachedJobInstances.put(key, entry);
+			if (replaced != null && !replaced.window) {
+				recordInsertion(entry);
+				return;
+			}
+			entry.window = true;
+			windowOrder.offer(entry);
+			while (windowOrder.size() > windowSize) {
+				CacheEntry candidate = windowOrder.poll();
+				if (cachedJobInstances.get(candidate.key) == candidate) {
+					admit(candidate);
+				}
+			}
+		}
 	}
-	public Job get(String instanceId) {
-		return cachedJobInstances.get(instanceId);
+
+	public int size() {
+		return cachedJobInstances.size();
 	}
-	public void put(String instanceId, Job cachedInstance) {
-		cachedJobInstances.put(instanceId, cachedInstance);		
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
 	}
-	protected static String getInstanceKey(String jobName, String jobId) {
-		return String.format("%s : %s", jobName, jobId); //$NON-NLS-1$
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * @return Number of jobs dropped on leaving the window because they were
+	 *         asked for less often than the entry they would have displaced
+	 */
+	public long getRejectionCount() {
+		return rejectionCount.get();
+	}
+
+	/**
+	 * @return Subsystem lookups in progress, keyed by user and job, so that
+	 *         concurrent requests for the same job share one z/OSMF call
+	 */
+	public SingleFlight<SubsystemLoadKey, SubsystemResult> getSubsystemLoads() {
+		return subsystemLoads;
+	}
+
+	public long getTidyCount() {
+		return tidyCount.get();
 	}
+
+	public long getTotalTidyMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(tidyNanos.get());
+	}
+
+	public long getLastTidyMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(lastTidyNanos);
+	}
+
+	/**
+	 * @return Number of tidy requests waiting for the next scheduled trim
+	 */
+	public int getPendingTidyRequests() {
+		return pendingTidyRequests.get();
+	}
+
+	/**
+	 * Trim the cache against a job listing after a short delay. If a trim is
+	 * already pending, it will use this listing instead of the earlier one.
+	 *
+	 * @param allJobs
+	 *            The latest job listing
+	 */
+	public void scheduleTidy(List<Job> allJobs) {
+		pendingTidyRequests.incrementAndGet();
+		if (pendingTidy.getAndSet(allJobs) == null) {
+			try {
+				scheduler.schedule(new Runnable() {
+					@Override
+					public void run() {
+						runPendingTidy();
+					}
+				}, TIDY_DELAY_SECONDS, TimeUnit.SECONDS);
+			} catch (RejectedExecutionException e) {
+				// Let the next listing try again rather than wait on a trim that never runs
+				pendingTidyRequests.set(0);
+				pendingTidy.set(null);
+				log.warning("Cache.. trim could not be scheduled " + e.getMessage()); //$NON-NLS-1$
+			}
+		}
+	}
+
+	void runPendingTidy() {
+		int coalesced = pendingTidyRequests.getAndSet(0);
+		List<Job> allJobs = pendingTidy.getAndSet(null);
+		if (allJobs == null) {
+			return;
+		}
+		long tStart = System.nanoTime();
+		tidyCache(allJobs);
+		long tDelta = System.nanoTime() - tStart;
+		lastTidyNanos = tDelta;
+		tidyNanos.addAndGet(tDelta);
+		tidyCount.incrementAndGet();
+		log.info("Cache.. trim of " + coalesced + " request(s) took " + TimeUnit.NANOSECONDS.toMillis(tDelta) + " milliseconds"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
 	protected void tidyCache(List<Job> allJobs) {
-		HashSet<String> allJobIds = new HashSet<>();
+		long current = generation.incrementAndGet();
+		int refreshed = 0;
 		for (Job instance : allJobs) {
-			allJobIds.add(getInstanceKey(instance.getJobName(), instance.getJobId()));
+			CacheEntry entry = cachedJobInstances.get(new JobInstanceKey(instance));
+			if (entry != null) {
+				entry.generation = current;
+				refreshed++;
+			}
 		}
-		log.info("Cache.. latest instances "+allJobIds.size()+ " cache size "+cachedJobInstances.size()); //$NON-NLS-1$ //$NON-NLS-2$
-		for (String key : cachedJobInstances.keySet()) {
-			if (!allJobIds.contains(key)) {
-				log.info("Cache.. removing "+key); //$NON-NLS-1$
-				cachedJobInstances.remove(key);
+		long oldestRetained = current - retainedGenerations;
+		int removed = 0;
+		Iterator<CacheEntry> iterator = cachedJobInstances.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().generation <= oldestRetained) {
+				iterator.remove();
+				removed++;
 			}
 		}
+		log.info("Cache.. generation "+current+" latest instances "+allJobs.size()+" refreshed "+refreshed+" removed "+removed //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ " cache size "+cachedJobInstances.size()+" hits "+hitCount.get()+" misses "+missCount.get()+" evictions "+evictionCount.get() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ " rejections "+rejectionCount.get()); //$NON-NLS-1$
 	}
 
+	/**
+	 * Move an entry leaving the window into the rest of the cache. If the
+	 * cache is over its size, the oldest live entry is evicted unless the
+	 * candidate is accessed less often, in which case the candidate is
+	 * dropped instead. Entries that survive the comparison go to the back of
+	 * the queue, giving them a second chance before they are considered again.
+	 */
+	private void admit(CacheEntry candidate) {
+		if (cachedJobInstances.size() > maximumSize) {
+			CacheEntry victim = pollLiveEntry();
+			if (victim != null && !victim.isExpired(candidate.writeTime, expiryNanos)
+					&& sketch.frequency(candidate.key) < sketch.frequency(victim.key)) {
+				recordInsertion(victim);
+				cachedJobInstances.remove(candidate.key, candidate);
+				rejectionCount.incrementAndGet();
+				return;
+			}
+			if (victim != null && cachedJobInstances.remove(victim.key, victim)) {
+				evictionCount.incrementAndGet();
+			}
+		}
+		candidate.window = false;
+		recordInsertion(candidate);
+	}
+
+	private CacheEntry pollLiveEntry() {
+		CacheEntry entry;
+		while ((entry = insertionOrder.poll()) != null) {
+			insertionOrderSize.decrementAndGet();
+			if (cachedJobInstances.get(entry.key) == entry) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	private void recordInsertion(CacheEntry entry) {
+		insertionOrder.offer(entry);
+		if (insertionOrderSize.incrementAndGet() > 2 * maximumSize) {
+			// Removals by tidy leave stale queue entries behind, drop them
+			Iterator<CacheEntry> iterator = insertionOrder.iterator();
+			while (iterator.hasNext()) {
+				CacheEntry queued = iterator.next();
+				if (cachedJobInstances.get(queued.key) != queued) {
+					iterator.remove();
+					insertionOrderSize.decrementAndGet();
+				}
+			}
+		}
+	}
+
+	private static final class CacheEntry {
+		final JobInstanceKey key;
+		final Job job;
+		final long writeTime;
+		volatile long generation;
+		// Guarded by the eviction lock
+		boolean window;
+
+		CacheEntry(JobInstanceKey key, Job job, long writeTime, long generation) {
+			this.key = key;
+			this.job = job;
+			this.writeTime = writeTime;
+			this.generation = generation;
+		}
+
+		boolean isExpired(long now, long expiryNanos) {
+			return now - writeTime >= expiryNanos;
+		}
+	}
 }
@@ -0,0 +1,186 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+package com.ibm.atlas.webservice.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A circuit breaker over a sliding window of the most recent calls. The
+ * circuit opens when enough of the calls in the window failed or were slow,
+ * and then lets no calls through until it has been open for a while. After
+ * that it lets a few probe calls through: if they all succeed the circuit
+ * closes again, and if any fails it opens for another period.
+ */
+public class CircuitBreaker {
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private static final byte FAILED = 1;
+	private static final byte SLOW = 2;
+
+	private final int minimumCalls;
+	private final int failureRatePercent;
+	private final long slowCallNanos;
+	private final int slowCallRatePercent;
+	private final long openNanos;
+	private final int halfOpenCalls;
+	private final LongSupplier ticker;
+
+	private final byte[] outcomes;
+	private int position;
+	private int recorded;
+	private int failures;
+	private int slowCalls;
+	private State state;
+	private long openedAt;
+	private int probesStarted;
+	private int probesSucceeded;
+	private long openCount;
+
+	/**
+	 * @param windowSize
+	 *            Number of recent calls the rates are worked out over
+	 * @param minimumCalls
+	 *            Number of calls there must be in the window before the
+	 *            circuit can open
+	 * @param halfOpenCalls
+	 *            Number of probe calls that must succeed to close the circuit
+	 */
+	public CircuitBreaker(int windowSize, int minimumCalls, int failureRatePercent, long slowCallMillis,
+			int slowCallRatePercent, long openMillis, int halfOpenCalls, LongSupplier ticker) {
+		this.outcomes = new byte[Math.max(windowSize, 1)];
+		this.minimumCalls = Math.min(Math.max(minimumCalls, 1), outcomes.length);
+		this.failureRatePercent = failureRatePercent;
+		this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+		this.slowCallRatePercent = slowCallRatePercent;
+		this.openNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(openMillis, 0));
+		this.halfOpenCalls = Math.max(halfOpenCalls, 1);
+		this.ticker = ticker;
+		state = State.CLOSED;
+	}
+
+	/**
+	 * Ask to make a call. Every call allowed must be followed by
+	 * {@link #onResult} or {@link #release}.
+	 * 
+	 * @return Whether the call may be made
+	 */
+	public synchronized boolean tryAcquire() {
+		if (state == State.OPEN) {
+			if (ticker.getAsLong() - openedAt < openNanos) {
+				return false;
+			}
+			state = State.HALF_OPEN;
+			probesStarted = 0;
+			probesSucceeded = 0;
+		}
+		if (state == State.HALF_OPEN) {
+			if (probesStarted >= halfOpenCalls) {
+				return false;
+			}
+			probesStarted++;
+		}
+		return true;
+	}
+
+	/**
+	 * Give back a call that was allowed but not made
+	 */
+	public synchronized void release() {
+		if (state == State.HALF_OPEN && probesStarted > 0) {
+			probesStarted--;
+		}
+	}
+
+	/**
+	 * Record how an allowed call went
+	 */
+	public synchronized void onResult(boolean failed, long durationNanos) {
+		boolean slow = durationNanos >= slowCallNanos;
+		if (state == State.HALF_OPEN) {
+			if (failed || slow) {
+				open();
+			} else if (++probesSucceeded >= halfOpenCalls) {
+				close();
+			}
+			return;
+		}
+		if (state == State.OPEN) {
+			// Started before the circuit opened
+			return;
+		}
+		if (recorded == outcomes.length) {
+			byte oldest = outcomes[position];
+			if ((oldest & FAILED) != 0) {
+				failures--;
+			}
+			if ((oldest & SLOW) != 0) {
+				slowCalls--;
+			}
+		} else {
+			recorded++;
+		}
+		byte outcome = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+		outcomes[position] = outcome;
+		position = (position + 1) % outcomes.length;
+		if (failed) {
+			failures++;
+		}
+		if (slow) {
+			slowCalls++;
+		}
+		if (recorded >= minimumCalls && (failures * 100L >= (long) failureRatePercent * recorded
+				|| slowCalls * 100L >= (long) slowCallRatePercent * recorded)) {
+			open();
+		}
+	}
+
+	public synchronized State getState() {
+		if (state == State.OPEN && ticker.getAsLong() - openedAt >= openNanos) {
+			return State.HALF_OPEN;
+		}
+		return state;
+	}
+
+	/**
+	 * @return Milliseconds until an open circuit lets probe calls through, or
+	 *         0 if it isn't open
+	 */
+	public synchronized long getRemainingOpenMillis() {
+		if (state != State.OPEN) {
+			return 0;
+		}
+		return Math.max(TimeUnit.NANOSECONDS.toMillis(openedAt + openNanos - ticker.getAsLong()), 0);
+	}
+
+	/**
+	 * @return Number of times the circuit has opened
+	 */
+	public synchronized long getOpenCount() {
+		return openCount;
+	}
+
+	private void open() {
+		state = State.OPEN;
+		openedAt = ticker.getAsLong();
+		openCount++;
+	}
+
+	private void close() {
+		state = State.CLOSED;
+		position = 0;
+		recorded = 0;
+		failures = 0;
+		slowCalls = 0;
+	}
+}
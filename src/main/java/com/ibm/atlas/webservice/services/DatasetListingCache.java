@@ -0,0 +1,287 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+package com.ibm.atlas.webservice.services;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.context.ApplicationScoped;
+
+import com.ibm.atlas.webservice.utilities.ConfigurationUtilities;
+
+/**
+ * Data set and member listings recently read from z/OSMF, so that expanding
+ * the same part of the tree again doesn't list a large PDS again. Listings are
+ * kept per user, since each user may see different data sets, as arrays of
+ * names only, and for a short time. Writes through Atlas evict the listings
+ * they may have changed for every user. Listings changed by other means are
+ * seen once they expire.
+ */
+@Singleton
+@ApplicationScoped
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class DatasetListingCache {
+
+	public enum Listing {
+		DATASETS, MEMBERS
+	}
+
+	static final long DEFAULT_TTL_SECONDS = 30;
+	static final long DEFAULT_MAXIMUM_NAMES = 500000;
+
+	private final Map<Key, Entry> entries;
+	private final long ttlNanos;
+	private final long maximumNames;
+	private final LongSupplier ticker;
+	private final AtomicLong totalNames;
+	private final AtomicLong generation;
+	private final AtomicLong hitCount;
+	private final AtomicLong missCount;
+	private final AtomicLong evictionCount;
+
+	public DatasetListingCache() {
+		this(ConfigurationUtilities.getLong("datasetListingCacheTtlSeconds", DEFAULT_TTL_SECONDS), //$NON-NLS-1$
+				ConfigurationUtilities.getLong("datasetListingCacheMaximumNames", DEFAULT_MAXIMUM_NAMES), //$NON-NLS-1$
+				System::nanoTime);
+	}
+
+	DatasetListingCache(long ttlSeconds, long maximumNames, LongSupplier ticker) {
+		this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(ttlSeconds, 0));
+		this.maximumNames = Math.max(maximumNames, 0);
+		this.ticker = ticker;
+		entries = new ConcurrentHashMap<>();
+		totalNames = new AtomicLong();
+		generation = new AtomicLong();
+		hitCount = new AtomicLong();
+		missCount = new AtomicLong();
+		evictionCount = new AtomicLong();
+	}
+
+	/**
+	 * @param name
+	 *            The filter of a data set listing, or the data set of a member
+	 *            listing
+	 * @return The names in the user's unexpired listing, or null if there is
+	 *         none. The array is shared and must not be changed.
+	 */
+	public String[] get(String user, Listing listing, String name) {
+		Key key = new Key(user, listing, name);
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			missCount.incrementAndGet();
+			return null;
+		}
+		if (ticker.getAsLong() - entry.loadedAt >= ttlNanos) {
+			remove(key, entry);
+			missCount.incrementAndGet();
+			return null;
+		}
+		hitCount.incrementAndGet();
+		return entry.names;
+	}
+
+	/**
+	 * @return A generation to pass to {@link #put}, taken before reading the
+	 *         listing
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Keep a listing, unless anything was evicted since the generation was
+	 * taken, as the listing may have been read before the write that caused
+	 * the eviction
+	 */
+	public void put(String user, Listing listing, String name, String[] names, long readGeneration) {
+		if (names.length + 1 > maximumNames || generation.get() != readGeneration) {
+			return;
+		}
+		Key key = new Key(user, listing, name);
+		Entry entry = new Entry(names, ticker.getAsLong());
+		Entry replaced = entries.put(key, entry);
+		totalNames.addAndGet(entry.weight());
+		if (replaced != null) {
+			totalNames.addAndGet(-replaced.weight());
+		}
+		if (generation.get() != readGeneration) {
+			remove(key, entry);
+			return;
+		}
+		if (totalNames.get() > maximumNames) {
+			makeRoom();
+		}
+	}
+
+	/**
+	 * Drop a user's listing, so the next read goes to z/OSMF
+	 */
+	public void invalidate(String user, Listing listing, String name) {
+		Key key = new Key(user, listing, name);
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			remove(key, entry);
+		}
+	}
+
+	/**
+	 * Evict every user's listings of the members of a data set
+	 *
+	 * @param dsn
+	 *            The data set, or a member of it in the form DSN(MEMBER)
+	 */
+	public void evictMembers(String dsn) {
+		generation.incrementAndGet();
+		String dataset = baseName(dsn);
+		for (Map.Entry<Key, Entry> cached : entries.entrySet()) {
+			Key key = cached.getKey();
+			if (key.listing == Listing.MEMBERS && baseName(key.name).equals(dataset)) {
+				remove(key, cached.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Evict every user's data set listings whose filter may match a data set.
+	 * A filter is taken to match any data set that starts with its part
+	 * before the first wildcard, which may evict more than needed but never
+	 * less.
+	 */
+	public void evictDatasets(String dsn) {
+		generation.incrementAndGet();
+		String dataset = baseName(dsn);
+		for (Map.Entry<Key, Entry> cached : entries.entrySet()) {
+			Key key = cached.getKey();
+			if (key.listing == Listing.DATASETS && dataset.startsWith(literalPrefix(key.name))) {
+				remove(key, cached.getValue());
+			}
+		}
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return Number of names held, counting one more for each listing
+	 */
+	public long getTotalNames() {
+		return totalNames.get();
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * Remove expired listings, then the oldest ones, until the cache is
+	 * within its size
+	 */
+	private synchronized void makeRoom() {
+		long now = ticker.getAsLong();
+		for (Map.Entry<Key, Entry> cached : entries.entrySet()) {
+			if (now - cached.getValue().loadedAt >= ttlNanos) {
+				remove(cached.getKey(), cached.getValue());
+			}
+		}
+		while (totalNames.get() > maximumNames) {
+			Map.Entry<Key, Entry> oldest = null;
+			for (Map.Entry<Key, Entry> cached : entries.entrySet()) {
+				if (oldest == null || cached.getValue().loadedAt - oldest.getValue().loadedAt < 0) {
+					oldest = cached;
+				}
+			}
+			if (oldest == null) {
+				return;
+			}
+			remove(oldest.getKey(), oldest.getValue());
+		}
+	}
+
+	private void remove(Key key, Entry entry) {
+		if (entries.remove(key, entry)) {
+			totalNames.addAndGet(-entry.weight());
+			evictionCount.incrementAndGet();
+		}
+	}
+
+	private static String baseName(String dsn) {
+		int member = dsn.indexOf('(');
+		String dataset = member >= 0 ? dsn.substring(0, member) : dsn;
+		return dataset.trim().toUpperCase(Locale.ENGLISH);
+	}
+
+	private static String literalPrefix(String filter) {
+		String upper = filter.trim().toUpperCase(Locale.ENGLISH);
+		for (int i = 0; i < upper.length(); i++) {
+			char c = upper.charAt(i);
+			if (c == '*' || c == '%') {
+				return upper.substring(0, i);
+			}
+		}
+		return upper;
+	}
+
+	private static final class Key {
+		final String user;
+		final Listing listing;
+		final String name;
+
+		Key(String user, Listing listing, String name) {
+			this.user = user;
+			this.listing = listing;
+			this.name = name;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return user.equals(key.user) && listing == key.listing && name.equals(key.name);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(user, listing, name);
+		}
+	}
+
+	private static final class Entry {
+		final String[] names;
+		final long loadedAt;
+
+		Entry(String[] names, long loadedAt) {
+			this.names = names;
+			this.loadedAt = loadedAt;
+		}
+
+		long weight() {
+			return names.length + 1L;
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+/**
+ * Approximate access frequency of cache keys, as used by TinyLFU admission. A
+ * count-min sketch of 4-bit counters, four per key, packed sixteen to a long.
+ * All counters are halved once the number of recorded accesses reaches ten
+ * times the cache size, so old popularity fades.
+ */
+class FrequencySketch {
+
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final int MAXIMUM_CAPACITY = 1 << 26;
+
+	private final long[] table;
+	private final int counterMask;
+	private final int sampleSize;
+	private int additions;
+
+	FrequencySketch(int maximumSize) {
+		int capacity = Integer.highestOneBit(Math.min(Math.max(maximumSize, 16), MAXIMUM_CAPACITY) - 1) << 1;
+		table = new long[capacity];
+		counterMask = (capacity << 4) - 1;
+		sampleSize = 10 * Math.max(maximumSize, 1);
+	}
+
+	synchronized void increment(Object key) {
+		int hash = spread(key.hashCode());
+		boolean added = false;
+		for (int row = 0; row < SEEDS.length; row++) {
+			added |= incrementAt(counterIndex(hash, row));
+		}
+		if (added && ++additions >= sampleSize) {
+			reset();
+		}
+	}
+
+	synchronized int frequency(Object key) {
+		int hash = spread(key.hashCode());
+		int frequency = Integer.MAX_VALUE;
+		for (int row = 0; row < SEEDS.length; row++) {
+			int counter = counterIndex(hash, row);
+			int count = (int) ((table[counter >>> 4] >>> ((counter & 15) << 2)) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	private boolean incrementAt(int counter) {
+		int index = counter >>> 4;
+		int shift = (counter & 15) << 2;
+		long mask = 0xfL << shift;
+		if ((table[index] & mask) != mask) {
+			table[index] += 1L << shift;
+			return true;
+		}
+		return false;
+	}
+
+	private void reset() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		additions >>>= 1;
+	}
+
+	private int counterIndex(int hash, int row) {
+		long h = (hash + SEEDS[row]) * SEEDS[row];
+		h += h >>> 32;
+		return (int) h & counterMask;
+	}
+
+	private static int spread(int hash) {
+		int h = hash * 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -10,30 +10,39 @@
 
 package com.ibm.atlas.webservice.services;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.security.Principal;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
+import javax.annotation.Resource;
 import javax.ejb.ConcurrencyManagement;
 import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 
 import com.ibm.atlas.model.jobs.Job;
+import com.ibm.atlas.webservice.services.SubsystemResult.Outcome;
+import com.ibm.atlas.webservice.utilities.ConfigurationUtilities;
 
 @Singleton
 @RequestScoped
 @ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 public class JobAttributeCache  {
 	
+	static final int DEFAULT_SUBSYSTEM_PARALLELISM = 8;
+	static final long DEFAULT_SUBSYSTEM_DEADLINE_MILLIS = 2000;
+
 	@Inject
-	private ZosmfJobsService zosmfService;
+	ZosmfJobsService zosmfService;
 	
 	@Inject
 	Logger log;
@@ -41,59 +50,178 @@ public class JobAttributeCache  {
 	@Inject
 	Cache cachedJobInstances;
 	
+	@Inject
+	NegativeResultCache negativeResults;
+	
+	@Inject
+	Principal principal;
+	
+	@Resource
+	ManagedExecutorService executor;
+	
+	private final int subsystemParallelism;
+	private final long subsystemDeadlineMillis;
+	
+	public JobAttributeCache() {
+		this(ConfigurationUtilities.getInteger("jobSubsystemParallelism", DEFAULT_SUBSYSTEM_PARALLELISM), //$NON-NLS-1$
+				ConfigurationUtilities.getLong("jobSubsystemDeadlineMillis", DEFAULT_SUBSYSTEM_DEADLINE_MILLIS)); //$NON-NLS-1$
+	}
+	
+	JobAttributeCache(int subsystemParallelism, long subsystemDeadlineMillis) {
+		this.subsystemParallelism = Math.max(subsystemParallelism, 1);
+		this.subsystemDeadlineMillis = Math.max(subsystemDeadlineMillis, 0);
+	}
+	
 	public Job getAdditionalAttributes(Job jobInstance) {
-		synchronized (jobInstance) {
-			String jobName = jobInstance.getJobName();
-			String jobId = jobInstance.getJobId();
-			String instanceId = Cache.getInstanceKey(jobName, jobId);
-			Job cachedInstance = cachedJobInstances.get(instanceId);	
-			if (cachedInstance == null) {
-				cachedInstance = jobInstance;
-				cachedInstance.setSubsystem(getJobSubsystem(jobName, jobId));
-				cachedJobInstances.put(instanceId, cachedInstance);
-			} else if (cachedInstance.getSubsystem()!=null&&cachedInstance.getSubsystem().equals("")) { //$NON-NLS-1$
-				log.info("empty string identified"); //$NON-NLS-1$
-				// see if the previous get was a permission failure and if so retry. 
-				// Permission failure is represented by a non null zero length string
-				cachedInstance.setSubsystem(getJobSubsystem(jobName, jobId));
-			}		
+		JobInstanceKey instanceId = new JobInstanceKey(jobInstance);
+		String user = getUserName();
+		Job cachedInstance = cachedJobInstances.get(instanceId);
+		if (cachedInstance != null) {
 			jobInstance.setSubsystem(cachedInstance.getSubsystem());
+		} else {
+			Outcome negative = negativeResults.get(user, instanceId);
+			SubsystemResult result = negative != null ? SubsystemResult.of(negative) : loadSubsystem(user, jobInstance, instanceId);
+			jobInstance.setSubsystem(result.getJobAttribute());
 		}
 		return jobInstance;
 	}
 	
-	public Job getSubsystemForFilter(Job jobInstance) {
-		synchronized (jobInstance) {
-			String jobName = jobInstance.getJobName();
-			String jobId = jobInstance.getJobId();
-			String instanceId = Cache.getInstanceKey(jobName, jobId);
-			Job cachedInstance = cachedJobInstances.get(instanceId);	
-			jobInstance.setSubsystem(cachedInstance != null?cachedInstance.getSubsystem():getJobSubsystem(jobName, jobId));
+	/**
+	 * Set the subsystem of each job in a listing. Jobs missing from the cache
+	 * are looked up concurrently, at most jobSubsystemParallelism at a time.
+	 * Jobs still outstanding after jobSubsystemDeadlineMillis are returned with
+	 * no subsystem; their lookups carry on in the background and fill the
+	 * cache for the next request.
+	 *
+	 * @param jobInstances
+	 *            The jobs to enrich, updated in place
+	 * @return The same list
+	 */
+	public List<Job> getAdditionalAttributes(List<Job> jobInstances) {
+		String user = getUserName();
+		Queue<SubsystemLookup> misses = new ConcurrentLinkedQueue<>();
+		List<SubsystemLookup> lookups = new ArrayList<>();
+		for (Job jobInstance : jobInstances) {
+			JobInstanceKey instanceId = new JobInstanceKey(jobInstance);
+			Job cachedInstance = cachedJobInstances.get(instanceId);
+			Outcome negative;
+			if (cachedInstance != null) {
+				jobInstance.setSubsystem(cachedInstance.getSubsystem());
+			} else if ((negative = negativeResults.get(user, instanceId)) != null) {
+				jobInstance.setSubsystem(SubsystemResult.of(negative).getJobAttribute());
+			} else {
+				SubsystemLookup lookup = new SubsystemLookup(user, jobInstance, instanceId);
+				lookups.add(lookup);
+				misses.add(lookup);
+			}
 		}
-		return jobInstance;
+		if (lookups.isEmpty()) {
+			return jobInstances;
+		}
+
+		int workers = Math.min(subsystemParallelism, lookups.size());
+		for (int i = 0; i < workers; i++) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					SubsystemLookup lookup;
+					while ((lookup = misses.poll()) != null) {
+						lookup.resolve();
+					}
+				}
+			});
+		}
+
+		CompletableFuture<?>[] results = new CompletableFuture<?>[lookups.size()];
+		for (int i = 0; i < results.length; i++) {
+			results[i] = lookups.get(i).subsystem;
+		}
+		try {
+			CompletableFuture.allOf(results).get(subsystemDeadlineMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			log.info("Subsystem lookup deadline reached with " + misses.size() + " of " + lookups.size() + " jobs not started"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			// resolve() never completes exceptionally
+		}
+		for (SubsystemLookup lookup : lookups) {
+			SubsystemResult result = lookup.subsystem.getNow(null);
+			lookup.job.setSubsystem(result != null ? result.getJobAttribute() : null);
+		}
+		return jobInstances;
+	}
+	
+	public Job getSubsystemForFilter(Job jobInstance) {
+		return getAdditionalAttributes(jobInstance);
+	}
+
+	/**
+	 * Look up the subsystem of a job, sharing the result with any other
+	 * request already looking up the same job for the same user.
+	 */
+	private SubsystemResult loadSubsystem(String user, Job jobInstance, JobInstanceKey instanceId) {
+		return cachedJobInstances.getSubsystemLoads().execute(new SubsystemLoadKey(user, instanceId),
+				() -> resolveSubsystem(user, jobInstance, instanceId));
 	}
 
-	private String getJobSubsystem(String jobName, String jobId) {
+	/**
+	 * Look up the subsystem of a job and remember the result. Subsystems are a
+	 * property of the job and go in the shared cache; permission and not found
+	 * failures are remembered for this user only, and other failures not at
+	 * all.
+	 */
+	private SubsystemResult resolveSubsystem(String user, Job jobInstance, JobInstanceKey instanceId) {
+		SubsystemResult result;
 		try {
-			return zosmfService.getJobSubsystem(jobName, jobId);
+			result = zosmfService.lookupJobSubsystem(instanceId.getJobName(), instanceId.getJobId());
 		} catch (Exception e) {
 			// CCS Catch the exception for now. SSL chaining causes this
 			log.warning("Jobs "+e.getMessage()); //$NON-NLS-1$
+			return SubsystemResult.of(Outcome.FAILED);
 		}
-		return null;
+		if (result.getOutcome().isNegative()) {
+			negativeResults.put(user, instanceId, result.getOutcome());
+		} else if (result.getOutcome() != Outcome.FAILED) {
+			cachedJobInstances.put(instanceId, Job.builder()
+				.jobName(instanceId.getJobName())
+				.jobId(instanceId.getJobId())
+				.owner(jobInstance.getOwner())
+				.status(jobInstance.getStatus())
+				.subsystem(result.getSubsystem())
+				.build());
+		}
+		return result;
 	}
+
+	private String getUserName() {
+		String name = principal != null ? principal.getName() : null;
+		return name != null ? name : ""; //$NON-NLS-1$
+	}
+
 	public void backgroundUpdate(final List<Job> jobInstances) {
-		ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-		final DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
-		scheduler.schedule(new Runnable() {
-			@Override
-			public void run() {
-				log.severe("cache cleanup starting at " + dateFormat.format(new Date())); //$NON-NLS-1$
-				long tStart = System.currentTimeMillis();
-				cachedJobInstances.tidyCache(jobInstances);
-				long tDelta = System.currentTimeMillis() - tStart;
-				log.severe("cache trim took " + tDelta + "milliseconds"); //$NON-NLS-1$
-			}
-		}, 5, TimeUnit.SECONDS);
+		cachedJobInstances.scheduleTidy(jobInstances);
+	}
+
+	/**
+	 * A pending subsystem lookup for a job in a batch. Workers never touch the
+	 * caller's Job, which may already be on its way back to the client; the
+	 * cache gets its own copy. The user is captured on the request thread.
+	 */
+	private final class SubsystemLookup {
+		final String user;
+		final Job job;
+		final JobInstanceKey instanceId;
+		final CompletableFuture<SubsystemResult> subsystem = new CompletableFuture<>();
+
+		SubsystemLookup(String user, Job job, JobInstanceKey instanceId) {
+			this.user = user;
+			this.job = job;
+			this.instanceId = instanceId;
+		}
+
+		void resolve() {
+			subsystem.complete(loadSubsystem(user, job, instanceId));
+		}
 	}
 }
@@ -0,0 +1,66 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import com.ibm.atlas.model.jobs.Job;
+
+/**
+ * Identifies a job instance in the {@link Cache}. The hash is computed once so
+ * lookups don't need to build or format a string key.
+ */
+public final class JobInstanceKey {
+
+	private final String jobName;
+	private final String jobId;
+	private final int hash;
+
+	public JobInstanceKey(String jobName, String jobId) {
+		this.jobName = jobName;
+		this.jobId = jobId;
+		this.hash = 31 * (jobName == null ? 0 : jobName.hashCode()) + (jobId == null ? 0 : jobId.hashCode());
+	}
+
+	public JobInstanceKey(Job job) {
+		this(job.getJobName(), job.getJobId());
+	}
+
+	public String getJobName() {
+		return jobName;
+	}
+
+	public String getJobId() {
+		return jobId;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof JobInstanceKey))
+			return false;
+		JobInstanceKey other = (JobInstanceKey) obj;
+		if (hash != other.hash)
+			return false;
+		if (jobId == null ? other.jobId != null : !jobId.equals(other.jobId))
+			return false;
+		return jobName == null ? other.jobName == null : jobName.equals(other.jobName);
+	}
+
+	@Override
+	public String toString() {
+		return jobName + " : " + jobId; //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,181 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.context.ApplicationScoped;
+
+import com.ibm.atlas.webservice.resource.jobs.entity.JobNameList;
+import com.ibm.atlas.webservice.utilities.ConfigurationUtilities;
+
+/**
+ * Short lived copies of job listings, so that a client paging through a
+ * listing doesn't have z/OSMF list the jobs again for every page. Each
+ * snapshot is sorted by job name once when it is taken and belongs to the
+ * user that took it. The snapshots are bounded by the number of jobs they
+ * hold between them, since one listing can be thousands of times larger
+ * than another.
+ */
+@Singleton
+@ApplicationScoped
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class JobListSnapshots {
+
+	static final long DEFAULT_EXPIRY_SECONDS = 60;
+	static final int DEFAULT_MAXIMUM_JOBS = 100000;
+	private static final Comparator<JobNameList> BY_NAME = Comparator.comparing(JobNameList::getName,
+			Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
+	private final Map<String, Snapshot> snapshots;
+	private final SecureRandom random;
+	private final int maximumJobs;
+	// Guarded by snapshots
+	private long totalJobs;
+	private final long expiryNanos;
+	private final LongSupplier ticker;
+
+	public JobListSnapshots() {
+		this(ConfigurationUtilities.getInteger("jobListSnapshotMaximumJobs", DEFAULT_MAXIMUM_JOBS), //$NON-NLS-1$
+				ConfigurationUtilities.getLong("jobListSnapshotExpirySeconds", DEFAULT_EXPIRY_SECONDS), //$NON-NLS-1$
+				System::nanoTime);
+	}
+
+	JobListSnapshots(int maximumJobs, long expirySeconds, LongSupplier ticker) {
+		this.maximumJobs = Math.max(maximumJobs, 1);
+		this.expiryNanos = TimeUnit.SECONDS.toNanos(expirySeconds);
+		this.ticker = ticker;
+		random = new SecureRandom();
+		snapshots = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Take a snapshot of a listing, replacing the oldest snapshots while
+	 * there are too many jobs held. A listing larger than the maximum on its
+	 * own replaces all the others.
+	 */
+	public Snapshot create(String user, List<JobNameList> jobs) {
+		JobNameList[] index = jobs.toArray(new JobNameList[jobs.size()]);
+		Arrays.sort(index, BY_NAME);
+		byte[] bytes = new byte[16];
+		random.nextBytes(bytes);
+		StringBuilder id = new StringBuilder(32);
+		for (byte b : bytes) {
+			id.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		long now = ticker.getAsLong();
+		int jobCount = 0;
+		for (JobNameList name : index) {
+			jobCount += name.getJobInstances() == null ? 1 : Math.max(name.getJobInstances().size(), 1);
+		}
+		Snapshot snapshot = new Snapshot(id.toString(), user, index, jobCount, now);
+		synchronized (snapshots) {
+			Iterator<Snapshot> oldest = snapshots.values().iterator();
+			while (oldest.hasNext()) {
+				Snapshot next = oldest.next();
+				if (totalJobs + jobCount <= maximumJobs && !next.isExpired(now, expiryNanos)) {
+					break;
+				}
+				oldest.remove();
+				totalJobs -= next.jobCount;
+			}
+			snapshots.put(snapshot.getId(), snapshot);
+			totalJobs += jobCount;
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return The snapshot, or null if it has expired or belongs to another
+	 *         user
+	 */
+	public Snapshot get(String id, String user) {
+		Snapshot snapshot;
+		synchronized (snapshots) {
+			snapshot = snapshots.get(id);
+		}
+		if (snapshot == null || !snapshot.user.equals(user) || snapshot.isExpired(ticker.getAsLong(), expiryNanos)) {
+			return null;
+		}
+		return snapshot;
+	}
+
+	public int size() {
+		synchronized (snapshots) {
+			return snapshots.size();
+		}
+	}
+
+	/**
+	 * @return Number of jobs held by all the snapshots
+	 */
+	public long getTotalJobs() {
+		synchronized (snapshots) {
+			return totalJobs;
+		}
+	}
+
+	public static final class Snapshot {
+		private final String id;
+		private final String user;
+		private final JobNameList[] index;
+		private final int jobCount;
+		private final long createTime;
+
+		Snapshot(String id, String user, JobNameList[] index, int jobCount, long createTime) {
+			this.id = id;
+			this.user = user;
+			this.index = index;
+			this.jobCount = jobCount;
+			this.createTime = createTime;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * @return Number of job names in the listing
+		 */
+		public int size() {
+			return index.length;
+		}
+
+		/**
+		 * @return Up to limit job names starting at offset, in name order. The
+		 *         jobs are copies the caller may change, as the snapshot is
+		 *         shared by every page and any request reading it at once.
+		 */
+		public List<JobNameList> page(int offset, int limit) {
+			if (offset >= index.length || limit <= 0) {
+				return Collections.emptyList();
+			}
+			int end = offset + Math.min(limit, index.length - offset);
+			return ZosmfJobsService.copyJobs(Arrays.asList(Arrays.copyOfRange(index, offset, end)));
+		}
+
+		boolean isExpired(long now, long expiryNanos) {
+			return now - createTime >= expiryNanos;
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free latency histogram in the style of HdrHistogram. Values are
+ * recorded in microseconds into log-linear buckets: each power of two is split
+ * into 16 equal buckets, so any recorded value is known to within about 6%
+ * whatever its size, using a fixed few kilobytes of counters.
+ */
+public class LatencyHistogram {
+
+	static final int SUB_BUCKET_BITS = 4;
+	static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	// Values up to 2^36 microseconds, about 19 hours, are told apart
+	static final int MAXIMUM_EXPONENT = 36;
+
+	private final AtomicLongArray counts;
+	private final LongAdder count;
+	private final LongAdder sum;
+	private final LongAccumulator max;
+
+	public LatencyHistogram() {
+		counts = new AtomicLongArray(indexOf(Long.MAX_VALUE) + 1);
+		count = new LongAdder();
+		sum = new LongAdder();
+		max = new LongAccumulator(Math::max, 0);
+	}
+
+	public void recordMicros(long micros) {
+		long value = Math.max(micros, 0);
+		counts.incrementAndGet(indexOf(value));
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getSumMicros() {
+		return sum.sum();
+	}
+
+	public long getMaxMicros() {
+		return max.get();
+	}
+
+	/**
+	 * @param quantile
+	 *            Between 0 and 1, for example 0.99
+	 * @return The highest value of the bucket that holds the quantile, or 0 if
+	 *         nothing has been recorded
+	 */
+	public long getValueAtQuantile(double quantile) {
+		long total = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			total += counts.get(i);
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highestValueIn(i), getMaxMicros());
+			}
+		}
+		return getMaxMicros();
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAXIMUM_EXPONENT);
+		if (exponent == MAXIMUM_EXPONENT && value >= 1L << (MAXIMUM_EXPONENT + 1)) {
+			return (MAXIMUM_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT - 1;
+		}
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	static long highestValueIn(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+		int subBucket = index % SUB_BUCKET_COUNT;
+		long lowest = (long) (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+		return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+}
@@ -0,0 +1,318 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+package com.ibm.atlas.webservice.services;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * The ISPF statistics of the members of a data set, held column by column:
+ * parallel arrays of primitives for the numbers and times, and a table of the
+ * distinct user ids that members refer to by index. Selecting and sorting work
+ * on arrays of member indexes, so no object is made per member. Members
+ * without statistics, such as load modules, have only a name.
+ * <p>
+ * Times are local to the system, as ISPF records them, and are held as if
+ * they were UTC so that they sort correctly.
+ */
+public class MemberStatistics {
+
+	public enum SortKey {
+		NAME, VERSION, CREATED, MODIFIED, RECORDS, USER
+	}
+
+	public static final int UNKNOWN = -1;
+	public static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+	private static final int INITIAL_CAPACITY = 64;
+
+	private String[] names;
+	private int[] versions;
+	private int[] createdDays;
+	private long[] modifiedSeconds;
+	private int[] records;
+	private int[] userIndexes;
+	private String[] users;
+	private final Map<String, Integer> userTable;
+	private int size;
+
+	public MemberStatistics() {
+		names = new String[INITIAL_CAPACITY];
+		versions = new int[INITIAL_CAPACITY];
+		createdDays = new int[INITIAL_CAPACITY];
+		modifiedSeconds = new long[INITIAL_CAPACITY];
+		records = new int[INITIAL_CAPACITY];
+		userIndexes = new int[INITIAL_CAPACITY];
+		users = new String[16];
+		userTable = new HashMap<>();
+	}
+
+	/**
+	 * Add a member
+	 * 
+	 * @param version
+	 *            Version times 100 plus modification level, or
+	 *            {@link #UNKNOWN}
+	 * @param createdDay
+	 *            Day of creation from the epoch, or {@link #UNKNOWN}
+	 * @param modifiedSecond
+	 *            Time of last change in seconds from the epoch, or
+	 *            {@link #UNKNOWN_TIME}
+	 * @param recordCount
+	 *            Current number of records, or {@link #UNKNOWN}
+	 * @param user
+	 *            User id that last changed the member, or null
+	 */
+	public void add(String name, int version, int createdDay, long modifiedSecond, int recordCount, String user) {
+		if (size == names.length) {
+			int capacity = size * 2;
+			names = Arrays.copyOf(names, capacity);
+			versions = Arrays.copyOf(versions, capacity);
+			createdDays = Arrays.copyOf(createdDays, capacity);
+			modifiedSeconds = Arrays.copyOf(modifiedSeconds, capacity);
+			records = Arrays.copyOf(records, capacity);
+			userIndexes = Arrays.copyOf(userIndexes, capacity);
+		}
+		names[size] = name;
+		versions[size] = version;
+		createdDays[size] = createdDay;
+		modifiedSeconds[size] = modifiedSecond;
+		records[size] = recordCount;
+		userIndexes[size] = user != null ? internUser(user) : UNKNOWN;
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public String getName(int member) {
+		return names[member];
+	}
+
+	public String getUser(int member) {
+		return userIndexes[member] != UNKNOWN ? users[userIndexes[member]] : null;
+	}
+
+	public long getModifiedSecond(int member) {
+		return modifiedSeconds[member];
+	}
+
+	public int getRecords(int member) {
+		return records[member];
+	}
+
+	/**
+	 * Select the members that match all of the given filters
+	 * 
+	 * @param namePattern
+	 *            Member name pattern where * matches any characters and %
+	 *            any one character, or null for all names
+	 * @param changedSince
+	 *            Only members changed at or after this time, in seconds from
+	 *            the epoch, or {@link #UNKNOWN_TIME} for all
+	 * @param user
+	 *            Only members last changed by this user id, or null for all
+	 * @return The indexes of the selected members, in listing order
+	 */
+	public int[] select(String namePattern, long changedSince, String user) {
+		String pattern = namePattern != null ? namePattern.toUpperCase(Locale.ENGLISH) : null;
+		int userIndex = UNKNOWN;
+		if (user != null) {
+			Integer index = userTable.get(user.toUpperCase(Locale.ENGLISH));
+			if (index == null) {
+				return new int[0];
+			}
+			userIndex = index;
+		}
+		int[] selected = new int[size];
+		int count = 0;
+		for (int member = 0; member < size; member++) {
+			if (user != null && userIndexes[member] != userIndex) {
+				continue;
+			}
+			if (changedSince != UNKNOWN_TIME && (modifiedSeconds[member] == UNKNOWN_TIME || modifiedSeconds[member] < changedSince)) {
+				continue;
+			}
+			if (pattern != null && !matches(names[member], pattern)) {
+				continue;
+			}
+			selected[count++] = member;
+		}
+		return count == size ? selected : Arrays.copyOf(selected, count);
+	}
+
+	/**
+	 * Sort member indexes in place. The sort is stable, so members that
+	 * compare equal stay in the order given. Members without the statistic
+	 * sort after those with it, whichever the direction.
+	 */
+	public void sort(int[] order, SortKey key, boolean descending) {
+		mergeSort(order.clone(), order, 0, order.length, comparison(key, descending ? -1 : 1));
+	}
+
+	/**
+	 * @return Output that writes members as a JSON array of objects
+	 * @see #write(JsonGenerator, int[], int)
+	 */
+	public StreamingOutput toJson(int[] order, int limit) {
+		return output -> {
+			try (JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+				write(generator, order, limit);
+			}
+		};
+	}
+
+	/**
+	 * Write members as a JSON array of objects
+	 * 
+	 * @param order
+	 *            Indexes of the members to write
+	 * @param limit
+	 *            Maximum number of members to write
+	 */
+	public void write(JsonGenerator generator, int[] order, int limit) throws IOException {
+		generator.writeStartArray();
+		for (int i = 0; i < order.length && i < limit; i++) {
+			int member = order[i];
+			generator.writeStartObject();
+			generator.writeStringField("name", names[member]); //$NON-NLS-1$
+			if (versions[member] != UNKNOWN) {
+				generator.writeStringField("version", String.format("%02d.%02d", versions[member] / 100, versions[member] % 100)); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			if (createdDays[member] != UNKNOWN) {
+				generator.writeStringField("created", LocalDate.ofEpochDay(createdDays[member]).toString()); //$NON-NLS-1$
+			}
+			if (modifiedSeconds[member] != UNKNOWN_TIME) {
+				generator.writeStringField("modified", DateTimeFormatter.ISO_LOCAL_DATE_TIME //$NON-NLS-1$
+						.format(LocalDateTime.ofEpochSecond(modifiedSeconds[member], 0, ZoneOffset.UTC)));
+			}
+			if (records[member] != UNKNOWN) {
+				generator.writeNumberField("records", records[member]); //$NON-NLS-1$
+			}
+			if (userIndexes[member] != UNKNOWN) {
+				generator.writeStringField("user", users[userIndexes[member]]); //$NON-NLS-1$
+			}
+			generator.writeEndObject();
+		}
+		generator.writeEndArray();
+	}
+
+	private int internUser(String user) {
+		String name = user.trim().toUpperCase(Locale.ENGLISH);
+		Integer index = userTable.get(name);
+		if (index == null) {
+			index = userTable.size();
+			if (index == users.length) {
+				users = Arrays.copyOf(users, index * 2);
+			}
+			users[index] = name;
+			userTable.put(name, index);
+		}
+		return index;
+	}
+
+	private IntBinaryOperator comparison(SortKey key, int sign) {
+		switch (key) {
+		case VERSION:
+			return (a, b) -> compareKnown(versions[a], versions[b], sign);
+		case CREATED:
+			return (a, b) -> compareKnown(createdDays[a], createdDays[b], sign);
+		case MODIFIED:
+			return (a, b) -> modifiedSeconds[a] == modifiedSeconds[b] ? 0
+					: modifiedSeconds[a] == UNKNOWN_TIME ? 1
+					: modifiedSeconds[b] == UNKNOWN_TIME ? -1 : sign * Long.compare(modifiedSeconds[a], modifiedSeconds[b]);
+		case RECORDS:
+			return (a, b) -> compareKnown(records[a], records[b], sign);
+		case USER:
+			return (a, b) -> userIndexes[a] == userIndexes[b] ? 0
+					: userIndexes[a] == UNKNOWN ? 1
+					: userIndexes[b] == UNKNOWN ? -1 : sign * users[userIndexes[a]].compareTo(users[userIndexes[b]]);
+		default:
+			return (a, b) -> sign * names[a].compareTo(names[b]);
+		}
+	}
+
+	private static int compareKnown(int a, int b, int sign) {
+		if (a == b) {
+			return 0;
+		}
+		if (a == UNKNOWN) {
+			return 1;
+		}
+		if (b == UNKNOWN) {
+			return -1;
+		}
+		return sign * Integer.compare(a, b);
+	}
+
+	/**
+	 * Merge sort from one copy of the indexes into the other, which must hold
+	 * the same indexes to begin with
+	 */
+	private static void mergeSort(int[] source, int[] destination, int low, int high, IntBinaryOperator compare) {
+		if (high - low < 2) {
+			return;
+		}
+		int middle = (low + high) >>> 1;
+		mergeSort(destination, source, low, middle, compare);
+		mergeSort(destination, source, middle, high, compare);
+		for (int i = low, p = low, q = middle; i < high; i++) {
+			if (q >= high || p < middle && compare.applyAsInt(source[p], source[q]) <= 0) {
+				destination[i] = source[p++];
+			} else {
+				destination[i] = source[q++];
+			}
+		}
+	}
+
+	/**
+	 * Match a name against a pattern, where * matches any characters and %
+	 * any one character
+	 */
+	static boolean matches(String name, String pattern) {
+		int n = 0;
+		int p = 0;
+		int starPattern = -1;
+		int starName = 0;
+		while (n < name.length()) {
+			if (p < pattern.length() && (pattern.charAt(p) == '%' || pattern.charAt(p) == name.charAt(n))) {
+				n++;
+				p++;
+			} else if (p < pattern.length() && pattern.charAt(p) == '*') {
+				starPattern = p++;
+				starName = n;
+			} else if (starPattern >= 0) {
+				p = starPattern + 1;
+				n = ++starName;
+			} else {
+				return false;
+			}
+		}
+		while (p < pattern.length() && pattern.charAt(p) == '*') {
+			p++;
+		}
+		return p == pattern.length();
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.context.ApplicationScoped;
+
+import com.ibm.atlas.webservice.services.SubsystemResult.Outcome;
+import com.ibm.atlas.webservice.utilities.ConfigurationUtilities;
+
+/**
+ * Subsystem lookups that failed for a user, so listings don't fetch the JCL
+ * of every job the user can't read on every request. Entries are kept per
+ * user, since another user may well be allowed to read the same job. Each
+ * repeated failure doubles the time before the next retry, up to a limit, and
+ * all of a user's entries are dropped when their security context is
+ * refreshed.
+ */
+@Singleton
+@ApplicationScoped
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class NegativeResultCache {
+
+	static final long DEFAULT_TTL_SECONDS = 60;
+	static final long DEFAULT_MAXIMUM_TTL_SECONDS = 900;
+	static final int MAXIMUM_ENTRIES_PER_USER = 10000;
+	private static final int MAXIMUM_BACKOFF_SHIFT = 16;
+
+	private final Map<String, Map<JobInstanceKey, Entry>> entriesByUser;
+	private final long ttlNanos;
+	private final long maximumTtlNanos;
+	private final LongSupplier ticker;
+
+	public NegativeResultCache() {
+		this(ConfigurationUtilities.getLong("jobSubsystemNegativeTtlSeconds", DEFAULT_TTL_SECONDS), //$NON-NLS-1$
+				ConfigurationUtilities.getLong("jobSubsystemNegativeMaximumTtlSeconds", DEFAULT_MAXIMUM_TTL_SECONDS), //$NON-NLS-1$
+				System::nanoTime);
+	}
+
+	NegativeResultCache(long ttlSeconds, long maximumTtlSeconds, LongSupplier ticker) {
+		this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(ttlSeconds, 1));
+		this.maximumTtlNanos = Math.max(TimeUnit.SECONDS.toNanos(maximumTtlSeconds), ttlNanos);
+		this.ticker = ticker;
+		entriesByUser = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * @return The unexpired negative outcome recorded for the user and job, or
+	 *         null if the lookup should be tried
+	 */
+	public Outcome get(String user, JobInstanceKey key) {
+		Map<JobInstanceKey, Entry> entries = entriesByUser.get(user);
+		if (entries == null) {
+			return null;
+		}
+		Entry entry = entries.get(key);
+		if (entry == null || entry.isExpired(ticker.getAsLong())) {
+			return null;
+		}
+		return entry.outcome;
+	}
+
+	/**
+	 * Record a negative outcome. If the same outcome was recorded recently, the
+	 * time to live is double that of the previous entry.
+	 */
+	public void put(String user, JobInstanceKey key, Outcome outcome) {
+		Map<JobInstanceKey, Entry> entries = entriesByUser.computeIfAbsent(user, u -> new ConcurrentHashMap<>());
+		long now = ticker.getAsLong();
+		entries.compute(key, (k, previous) -> {
+			int strikes = 1;
+			if (previous != null && previous.outcome == outcome && now - previous.expiryTime < maximumTtlNanos) {
+				strikes = previous.strikes + 1;
+			}
+			long ttl = Math.min(ttlNanos << Math.min(strikes - 1, MAXIMUM_BACKOFF_SHIFT), maximumTtlNanos);
+			return new Entry(outcome, strikes, now + ttl);
+		});
+		if (entries.size() > MAXIMUM_ENTRIES_PER_USER) {
+			entries.values().removeIf(entry -> entry.isExpired(now));
+			if (entries.size() > MAXIMUM_ENTRIES_PER_USER) {
+				entries.clear();
+			}
+		}
+	}
+
+	/**
+	 * Forget all negative outcomes for a user, for example after they have
+	 * signed on again with possibly different authority.
+	 */
+	public void invalidate(String user) {
+		entriesByUser.remove(user);
+	}
+
+	public int size(String user) {
+		Map<JobInstanceKey, Entry> entries = entriesByUser.get(user);
+		return entries != null ? entries.size() : 0;
+	}
+
+	private static final class Entry {
+		final Outcome outcome;
+		final int strikes;
+		final long expiryTime;
+
+		Entry(Outcome outcome, int strikes, long expiryTime) {
+			this.outcome = outcome;
+			this.strikes = strikes;
+			this.expiryTime = expiryTime;
+		}
+
+		boolean isExpired(long now) {
+			return now - expiryTime >= 0;
+		}
+	}
+}
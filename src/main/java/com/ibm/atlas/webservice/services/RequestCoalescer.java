@@ -0,0 +1,97 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+package com.ibm.atlas.webservice.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Lets identical reads from z/OSMF that are in flight at the same time share
+ * one request. Many users refresh the same data set filters and job prefixes
+ * at once, and each refresh would otherwise be its own request. Reads are only
+ * shared between requests of the same user, since z/OSMF answers with what
+ * that user may see. Nothing is kept once the read completes.
+ */
+@Singleton
+@ApplicationScoped
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class RequestCoalescer {
+
+	private final SingleFlight<List<Object>, Object> flights;
+	private final Map<ZosmfOperation, LongAdder> readCounts;
+	private final Map<ZosmfOperation, LongAdder> savedCounts;
+
+	public RequestCoalescer() {
+		flights = new SingleFlight<>();
+		readCounts = new EnumMap<>(ZosmfOperation.class);
+		savedCounts = new EnumMap<>(ZosmfOperation.class);
+		for (ZosmfOperation operation : ZosmfOperation.values()) {
+			readCounts.put(operation, new LongAdder());
+			savedCounts.put(operation, new LongAdder());
+		}
+	}
+
+	/**
+	 * Make a read, or wait for and share the result of the same read by the
+	 * same user if one is in progress. The result may be handed to several
+	 * callers, so it must not be changed.
+	 *
+	 * @param arguments
+	 *            Everything the read depends on besides the operation and
+	 *            the user, such as the URI path and query parameters
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T execute(ZosmfOperation operation, String user, Supplier<T> read, Object... arguments) {
+		List<Object> key = new ArrayList<>(arguments.length + 2);
+		key.add(operation);
+		key.add(user);
+		Collections.addAll(key, arguments);
+		boolean[] leader = new boolean[1];
+		try {
+			return (T) flights.execute(key, () -> {
+				leader[0] = true;
+				return read.get();
+			});
+		} finally {
+			(leader[0] ? readCounts : savedCounts).get(operation).increment();
+		}
+	}
+
+	/**
+	 * @return Number of reads that were sent to z/OSMF
+	 */
+	public long getReadCount(ZosmfOperation operation) {
+		return readCounts.get(operation).sum();
+	}
+
+	/**
+	 * @return Number of reads that shared another request's read instead
+	 */
+	public long getSavedCount(ZosmfOperation operation) {
+		return savedCounts.get(operation).sum();
+	}
+
+	/**
+	 * @return Number of reads in progress
+	 */
+	public int getInFlightCount() {
+		return flights.getInFlightCount();
+	}
+}
@@ -0,0 +1,360 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.ibm.atlas.webservice.utilities.ConfigurationUtilities;
+
+/**
+ * Local copies of the spool files of completed jobs, whose output no longer
+ * changes. Each file is kept on disk with a sparse index of the byte offset of
+ * every Nth record, so a record range or tail is read by mapping just that
+ * part of the file instead of asking z/OSMF again. Copies are kept per user,
+ * since the user's authority was checked when the copy was made. The least
+ * recently read files are deleted when the total size exceeds the budget.
+ */
+@Singleton
+@ApplicationScoped
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SpoolFileCache {
+
+	static final long DEFAULT_MAXIMUM_BYTES = 512L * 1024 * 1024;
+	static final int DEFAULT_INDEX_INTERVAL = 1024;
+	static final long NOT_CACHEABLE_RETRY_SECONDS = 30;
+	private static final int MAXIMUM_NOT_CACHEABLE = 10000;
+	private static final String FILE_SUFFIX = ".spool"; //$NON-NLS-1$
+	private static final Pattern NAME_PART = Pattern.compile("[A-Za-z0-9@#$]{1,16}"); //$NON-NLS-1$
+
+	@Inject
+	Logger log;
+
+	@Resource
+	ManagedExecutorService executor;
+
+	private final Path directory;
+	private final long maximumBytes;
+	private final int indexInterval;
+	private final Map<String, Entry> entries;
+	private final Map<String, Boolean> filling;
+	private final Map<String, Long> notCacheableUntil;
+	private final Set<String> oversized;
+	private long totalBytes;
+
+	public SpoolFileCache() {
+		this(Paths.get(ConfigurationUtilities.getString("spoolCacheDirectory", //$NON-NLS-1$
+				Paths.get(System.getProperty("java.io.tmpdir"), "explorer-spool-cache").toString())), //$NON-NLS-1$ //$NON-NLS-2$
+				ConfigurationUtilities.getLong("spoolCacheMaximumBytes", DEFAULT_MAXIMUM_BYTES), //$NON-NLS-1$
+				ConfigurationUtilities.getInteger("spoolCacheIndexInterval", DEFAULT_INDEX_INTERVAL)); //$NON-NLS-1$
+	}
+
+	SpoolFileCache(Path directory, long maximumBytes, int indexInterval) {
+		this.directory = directory;
+		this.maximumBytes = maximumBytes;
+		this.indexInterval = Math.max(indexInterval, 1);
+		entries = new LinkedHashMap<>(16, 0.75f, true);
+		filling = new ConcurrentHashMap<>();
+		notCacheableUntil = new ConcurrentHashMap<>();
+		oversized = ConcurrentHashMap.newKeySet();
+	}
+
+	/**
+	 * Remove copies left behind by a previous run, as their index is gone
+	 */
+	@PostConstruct
+	void init() {
+		try {
+			Files.createDirectories(directory);
+			try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX + "*")) { //$NON-NLS-1$ //$NON-NLS-2$
+				for (Path leftover : leftovers) {
+					Files.deleteIfExists(leftover);
+				}
+			}
+		} catch (IOException e) {
+			log.log(Level.WARNING, "Spool cache directory " + directory + " could not be prepared", e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * @return The cache key for a user's copy of a spool file, or null if the
+	 *         names can't be used to name a file
+	 */
+	public String key(String user, String jobName, String jobId, String fileId) {
+		for (String part : new String[] { user, jobName, jobId, fileId }) {
+			if (part == null || !NAME_PART.matcher(part).matches()) {
+				return null;
+			}
+		}
+		return user + '.' + jobName + '.' + jobId + '.' + fileId;
+	}
+
+	/**
+	 * @return Number of records in the copy, or -1 if there isn't one
+	 */
+	public long getRecordCount(String key) {
+		Entry entry = getEntry(key);
+		return entry != null ? entry.recordCount : -1;
+	}
+
+	/**
+	 * Read a range of records from the copy, in the form z/OSMF returns them
+	 *
+	 * @param start
+	 *            The first record, from 0
+	 * @param end
+	 *            The last record, inclusive
+	 * @return The records, or null if there is no copy
+	 */
+	public String getRecords(String key, long start, long end) {
+		Entry entry = getEntry(key);
+		if (entry == null) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(entry.path, StandardOpenOption.READ)) {
+			long from = offsetOf(channel, entry, Math.max(start, 0));
+			long to = offsetOf(channel, entry, Math.max(end + 1, start));
+			if (to <= from) {
+				return ""; //$NON-NLS-1$
+			}
+			MappedByteBuffer records = channel.map(MapMode.READ_ONLY, from, to - from);
+			return StandardCharsets.UTF_8.decode(records).toString();
+		} catch (IOException e) {
+			// Most likely evicted since we looked it up
+			log.log(Level.FINE, "Spool cache read of " + key + " failed", e); //$NON-NLS-1$ //$NON-NLS-2$
+			return null;
+		}
+	}
+
+	/**
+	 * @return The last records of the copy, or null if there is no copy
+	 */
+	public String getTail(String key, long records) {
+		long recordCount = getRecordCount(key);
+		if (recordCount < 0) {
+			return null;
+		}
+		return getRecords(key, Math.max(recordCount - records, 0), recordCount - 1);
+	}
+
+	/**
+	 * Copy a spool file in the background if it isn't already cached or being
+	 * copied. Nothing is copied unless the job has completed, which is checked
+	 * again after a while if it hasn't, and files found to be larger than the
+	 * cache aren't copied again.
+	 *
+	 * @param isComplete
+	 *            Whether the job has completed, so its output won't change
+	 * @param content
+	 *            Opens the whole spool file
+	 */
+	public void fill(String key, BooleanSupplier isComplete, Supplier<InputStream> content) {
+		if (oversized.contains(key)) {
+			return;
+		}
+		Long retryTime = notCacheableUntil.get(key);
+		if (retryTime != null && System.nanoTime() - retryTime < 0) {
+			return;
+		}
+		if (getEntry(key) != null || filling.putIfAbsent(key, Boolean.TRUE) != null) {
+			return;
+		}
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (!isComplete.getAsBoolean()) {
+						if (notCacheableUntil.size() > MAXIMUM_NOT_CACHEABLE) {
+							notCacheableUntil.clear();
+						}
+						notCacheableUntil.put(key, System.nanoTime() + TimeUnit.SECONDS.toNanos(NOT_CACHEABLE_RETRY_SECONDS));
+						return;
+					}
+					notCacheableUntil.remove(key);
+					try (InputStream input = content.get()) {
+						store(key, input);
+					}
+				} catch (Exception e) {
+					log.log(Level.WARNING, "Spool cache copy of " + key + " failed: " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+				} finally {
+					filling.remove(key);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Write a copy of a spool file and index its records
+	 */
+	void store(String key, InputStream input) throws IOException {
+		Files.createDirectories(directory);
+		Path temporary = Files.createTempFile(directory, key, FILE_SUFFIX + ".part"); //$NON-NLS-1$
+		long[] index = new long[16];
+		int indexSize = 1;
+		long recordCount = 0;
+		long size = 0;
+		boolean partialRecord = false;
+		boolean tooLarge = false;
+		try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+			byte[] buffer = new byte[16 * 1024];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				if (size + read > maximumBytes) {
+					tooLarge = true;
+					break;
+				}
+				output.write(buffer, 0, read);
+				for (int i = 0; i < read; i++) {
+					if (buffer[i] == '\n') {
+						recordCount++;
+						if (recordCount % indexInterval == 0) {
+							if (indexSize == index.length) {
+								index = Arrays.copyOf(index, indexSize * 2);
+							}
+							index[indexSize++] = size + i + 1;
+						}
+					}
+				}
+				partialRecord = buffer[read - 1] != '\n';
+				size += read;
+			}
+		} catch (IOException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+		if (tooLarge) {
+			Files.deleteIfExists(temporary);
+			// The output of a completed job won't shrink
+			if (oversized.size() > MAXIMUM_NOT_CACHEABLE) {
+				oversized.clear();
+			}
+			oversized.add(key);
+			log.info("Spool file " + key + " is larger than the spool cache, not cached"); //$NON-NLS-1$ //$NON-NLS-2$
+			return;
+		}
+		if (partialRecord) {
+			recordCount++;
+		}
+		Path path = directory.resolve(key + FILE_SUFFIX);
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		Entry entry = new Entry(path, size, recordCount, Arrays.copyOf(index, indexSize));
+		synchronized (entries) {
+			Entry replaced = entries.put(key, entry);
+			if (replaced != null) {
+				totalBytes -= replaced.size;
+			}
+			totalBytes += size;
+			Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+			while (totalBytes > maximumBytes && eldest.hasNext()) {
+				Map.Entry<String, Entry> evicted = eldest.next();
+				if (evicted.getValue() == entry) {
+					continue;
+				}
+				eldest.remove();
+				totalBytes -= evicted.getValue().size;
+				Files.deleteIfExists(evicted.getValue().path);
+			}
+		}
+	}
+
+	public long getTotalBytes() {
+		synchronized (entries) {
+			return totalBytes;
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	private Entry getEntry(String key) {
+		if (key == null) {
+			return null;
+		}
+		synchronized (entries) {
+			return entries.get(key);
+		}
+	}
+
+	/**
+	 * Find the byte offset of a record, starting from the nearest indexed
+	 * record before it
+	 */
+	private long offsetOf(FileChannel channel, Entry entry, long record) throws IOException {
+		if (record >= entry.recordCount) {
+			return entry.size;
+		}
+		int slot = (int) (record / indexInterval);
+		long offset = entry.index[slot];
+		long remaining = record - (long) slot * indexInterval;
+		if (remaining == 0) {
+			return offset;
+		}
+		long limit = slot + 1 < entry.index.length ? entry.index[slot + 1] : entry.size;
+		MappedByteBuffer records = channel.map(MapMode.READ_ONLY, offset, limit - offset);
+		while (remaining > 0 && records.hasRemaining()) {
+			if (records.get() == '\n') {
+				remaining--;
+			}
+		}
+		return offset + records.position();
+	}
+
+	private static final class Entry {
+		final Path path;
+		final long size;
+		final long recordCount;
+		final long[] index;
+
+		Entry(Path path, long size, long recordCount, long[] index) {
+			this.path = path;
+			this.size = size;
+			this.recordCount = recordCount;
+			this.index = index;
+		}
+	}
+}
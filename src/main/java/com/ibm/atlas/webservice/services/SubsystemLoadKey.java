@@ -0,0 +1,61 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+/**
+ * Identifies a subsystem lookup shared by concurrent requests. Lookups are
+ * only shared between requests of the same user, since a user may not be
+ * allowed to read a job another user can.
+ */
+public final class SubsystemLoadKey {
+
+	private final String user;
+	private final JobInstanceKey instanceId;
+	private final int hash;
+
+	public SubsystemLoadKey(String user, JobInstanceKey instanceId) {
+		this.user = user;
+		this.instanceId = instanceId;
+		this.hash = 31 * (user == null ? 0 : user.hashCode()) + (instanceId == null ? 0 : instanceId.hashCode());
+	}
+
+	public String getUser() {
+		return user;
+	}
+
+	public JobInstanceKey getInstanceId() {
+		return instanceId;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof SubsystemLoadKey))
+			return false;
+		SubsystemLoadKey other = (SubsystemLoadKey) obj;
+		if (hash != other.hash)
+			return false;
+		if (instanceId == null ? other.instanceId != null : !instanceId.equals(other.instanceId))
+			return false;
+		return user == null ? other.user == null : user.equals(other.user);
+	}
+
+	@Override
+	public String toString() {
+		return user + " : " + instanceId; //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+/**
+ * The outcome of looking up the subsystem of a job from its JCL.
+ */
+public final class SubsystemResult {
+
+	public enum Outcome {
+		/** The JCL names a recognized subsystem */
+		FOUND,
+		/** The JCL was read but names no recognized subsystem */
+		NONE,
+		/** The user may not read the JCL of this job */
+		NOT_AUTHORIZED,
+		/** The job or its JCL no longer exists */
+		NOT_FOUND,
+		/** z/OSMF could not be reached or gave an unexpected response */
+		FAILED;
+
+		/**
+		 * @return true if this outcome depends on the user or the spool rather
+		 *         than the job, and should be retried after a while
+		 */
+		public boolean isNegative() {
+			return this == NOT_AUTHORIZED || this == NOT_FOUND;
+		}
+	}
+
+	private static final SubsystemResult NONE = new SubsystemResult(Outcome.NONE, null);
+	private static final SubsystemResult NOT_AUTHORIZED = new SubsystemResult(Outcome.NOT_AUTHORIZED, null);
+	private static final SubsystemResult NOT_FOUND = new SubsystemResult(Outcome.NOT_FOUND, null);
+	private static final SubsystemResult FAILED = new SubsystemResult(Outcome.FAILED, null);
+
+	private final Outcome outcome;
+	private final String subsystem;
+
+	private SubsystemResult(Outcome outcome, String subsystem) {
+		this.outcome = outcome;
+		this.subsystem = subsystem;
+	}
+
+	public static SubsystemResult of(String subsystem) {
+		return subsystem != null ? new SubsystemResult(Outcome.FOUND, subsystem) : NONE;
+	}
+
+	public static SubsystemResult of(Outcome outcome) {
+		switch (outcome) {
+		case NONE:
+			return NONE;
+		case NOT_AUTHORIZED:
+			return NOT_AUTHORIZED;
+		case NOT_FOUND:
+			return NOT_FOUND;
+		case FAILED:
+			return FAILED;
+		default:
+			throw new IllegalArgumentException(outcome.name());
+		}
+	}
+
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	public String getSubsystem() {
+		return subsystem;
+	}
+
+	/**
+	 * @return The subsystem as reported on a job. A permission failure is
+	 *         reported as an empty string, anything else unknown as null
+	 */
+	public String getJobAttribute() {
+		return outcome == Outcome.NOT_AUTHORIZED ? "" : subsystem; //$NON-NLS-1$
+	}
+}
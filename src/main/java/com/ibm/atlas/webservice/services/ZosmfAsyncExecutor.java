@@ -0,0 +1,175 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ContextService;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import com.ibm.atlas.webservice.Messages;
+import com.ibm.atlas.webservice.utilities.ConfigurationUtilities;
+
+/**
+ * Runs calls to z/OSMF off the request threads. The calls share the managed
+ * executor with the server's HTTP requests, so at most a bounded number of
+ * them run at once and slow z/OSMF calls can't take all of its threads.
+ * Further calls wait in a bounded queue without holding a thread, carrying
+ * the caller's security context with them, and fail with 503 when the queue
+ * is full. Requests suspended for a call are resumed with 503 if it takes
+ * longer than the timeout.
+ */
+@Singleton
+@ApplicationScoped
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ZosmfAsyncExecutor {
+
+	static final int DEFAULT_MAXIMUM_CONCURRENT = 16;
+	static final int DEFAULT_MAXIMUM_QUEUED = 200;
+	// Long enough for a full bulkhead queue wait and z/OSMF's own timeout
+	static final long DEFAULT_TIMEOUT_MILLIS = 660000;
+
+	@Resource
+	ManagedExecutorService executor;
+
+	@Resource
+	ContextService contextService;
+
+	private final int maximumConcurrent;
+	private final int maximumQueued;
+	private final long timeoutMillis;
+	private final Semaphore permits;
+	private final Queue<Task> queue;
+	private final AtomicInteger queued;
+
+	public ZosmfAsyncExecutor() {
+		this(ConfigurationUtilities.getInteger("zosmfAsyncMaximumConcurrent", DEFAULT_MAXIMUM_CONCURRENT), //$NON-NLS-1$
+				ConfigurationUtilities.getInteger("zosmfAsyncMaximumQueued", DEFAULT_MAXIMUM_QUEUED), //$NON-NLS-1$
+				ConfigurationUtilities.getLong("zosmfAsyncTimeoutMillis", DEFAULT_TIMEOUT_MILLIS)); //$NON-NLS-1$
+	}
+
+	ZosmfAsyncExecutor(int maximumConcurrent, int maximumQueued, long timeoutMillis) {
+		this.maximumConcurrent = Math.max(maximumConcurrent, 1);
+		this.maximumQueued = Math.max(maximumQueued, 0);
+		this.timeoutMillis = Math.max(timeoutMillis, 0);
+		permits = new Semaphore(this.maximumConcurrent);
+		queue = new ConcurrentLinkedQueue<>();
+		queued = new AtomicInteger();
+	}
+
+	/**
+	 * @return A stage that completes with the result of the call, or
+	 *         exceptionally with what it threw, or with 503 if too many calls
+	 *         are already waiting
+	 */
+	public <T> CompletionStage<T> supplyAsync(Callable<T> call) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		Runnable runnable = () -> {
+			try {
+				result.complete(call.call());
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		};
+		if (permits.tryAcquire()) {
+			dispatch(new Task(runnable, result));
+		} else if (queued.incrementAndGet() > maximumQueued) {
+			queued.decrementAndGet();
+			result.completeExceptionally(createUnavailableException(Messages.getString("ZOSMFService.AsyncQueueFull"))); //$NON-NLS-1$
+		} else {
+			// Started later from another thread, so it takes the caller's context along
+			queue.add(new Task(contextService.createContextualProxy(runnable, Runnable.class), result));
+			startQueued();
+		}
+		return result;
+	}
+
+	/**
+	 * @return How long a request waits for a call before it is resumed with
+	 *         503, or 0 to wait as long as it takes
+	 */
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * @return Number of calls running
+	 */
+	public int getActive() {
+		return maximumConcurrent - permits.availablePermits();
+	}
+
+	/**
+	 * @return Number of calls waiting to run
+	 */
+	public int getQueued() {
+		return queued.get();
+	}
+
+	private void dispatch(Task task) {
+		try {
+			executor.execute(() -> {
+				try {
+					task.runnable.run();
+				} finally {
+					permits.release();
+					startQueued();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			permits.release();
+			task.result.completeExceptionally(createUnavailableException(Messages.getString("ZOSMFService.AsyncQueueFull"))); //$NON-NLS-1$
+		}
+	}
+
+	private void startQueued() {
+		while (!queue.isEmpty() && permits.tryAcquire()) {
+			Task next = queue.poll();
+			if (next == null) {
+				permits.release();
+				return;
+			}
+			queued.decrementAndGet();
+			dispatch(next);
+		}
+	}
+
+	private static WebApplicationException createUnavailableException(String error) {
+		Response errorResponse = Response.status(Status.SERVICE_UNAVAILABLE).entity(error).type(MediaType.TEXT_PLAIN).build();
+		return new WebApplicationException(errorResponse);
+	}
+
+	private static final class Task {
+		final Runnable runnable;
+		final CompletableFuture<?> result;
+
+		Task(Runnable runnable, CompletableFuture<?> result) {
+			this.runnable = runnable;
+			this.result = result;
+		}
+	}
+}
@@ -0,0 +1,245 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+package com.ibm.atlas.webservice.services;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import com.ibm.atlas.webservice.Messages;
+import com.ibm.atlas.webservice.services.ZosmfRequestLimiter.RequestLimitReachedException;
+import com.ibm.atlas.webservice.services.ZosmfRequestLimiter.ZosmfCall;
+import com.ibm.atlas.webservice.utilities.ConfigurationUtilities;
+
+/**
+ * Keeps the z/OSMF services apart, so that when one of them hangs the
+ * requests stuck on it can't use up the request permits and threads the others
+ * need. Each service has its own limit on requests in flight, with a bounded
+ * queue of requests waiting for one of them to finish, and its own circuit
+ * breaker. A circuit opens when too many recent requests failed, got a 502,
+ * 503 or 504, or were slow, and while it is open requests to that service
+ * fail at once with 503 rather than waiting on z/OSMF. A 500 doesn't count,
+ * as z/OSMF answers that to ordinary errors such as missing data sets, and
+ * nor do requests turned away here before reaching z/OSMF.
+ * <p>
+ * The limits of all the services together are kept within the request limit
+ * of a route, so a hung service can't hold the permits the others need.
+ */
+@Singleton
+@ApplicationScoped
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ZosmfBulkheads {
+
+	static final int DEFAULT_MAXIMUM_CONCURRENT = 8;
+	static final int DEFAULT_MAXIMUM_QUEUED = 50;
+	static final long DEFAULT_QUEUE_TIMEOUT_MILLIS = 30000;
+	static final int DEFAULT_WINDOW_SIZE = 20;
+	static final int DEFAULT_MINIMUM_CALLS = 10;
+	static final int DEFAULT_FAILURE_RATE_PERCENT = 50;
+	static final long DEFAULT_SLOW_CALL_MILLIS = 60000;
+	static final int DEFAULT_SLOW_CALL_RATE_PERCENT = 80;
+	static final long DEFAULT_OPEN_MILLIS = 30000;
+	static final int DEFAULT_HALF_OPEN_CALLS = 3;
+
+	@Inject
+	Logger log;
+
+	private final int maximumConcurrent;
+	private final int maximumQueued;
+	private final long queueTimeoutMillis;
+	private final Map<ZosmfServiceFamily, Compartment> compartments;
+
+	public ZosmfBulkheads() {
+		this(maximumConcurrent(ConfigurationUtilities.getInteger("zosmfBulkheadMaximumConcurrent", DEFAULT_MAXIMUM_CONCURRENT), //$NON-NLS-1$
+				ConfigurationUtilities.getInteger("zosmfMaximumRequestsPerRoute", ZosmfRequestLimiter.DEFAULT_MAXIMUM_PER_ROUTE)), //$NON-NLS-1$
+				ConfigurationUtilities.getInteger("zosmfBulkheadMaximumQueued", DEFAULT_MAXIMUM_QUEUED), //$NON-NLS-1$
+				ConfigurationUtilities.getLong("zosmfBulkheadQueueTimeoutMillis", DEFAULT_QUEUE_TIMEOUT_MILLIS), //$NON-NLS-1$
+				circuitBreakers());
+	}
+
+	ZosmfBulkheads(int maximumConcurrent, int maximumQueued, long queueTimeoutMillis, Supplier<CircuitBreaker> circuitBreakers) {
+		this.maximumConcurrent = Math.max(maximumConcurrent, 1);
+		this.maximumQueued = Math.max(maximumQueued, 0);
+		this.queueTimeoutMillis = Math.max(queueTimeoutMillis, 0);
+		compartments = new EnumMap<>(ZosmfServiceFamily.class);
+		for (ZosmfServiceFamily family : ZosmfServiceFamily.values()) {
+			compartments.put(family, new Compartment(this.maximumConcurrent, circuitBreakers.get()));
+		}
+	}
+
+	/**
+	 * @return The limit of each service, no more than its share of the
+	 *         requests of a route
+	 */
+	static int maximumConcurrent(int maximumConcurrent, int maximumPerRoute) {
+		return Math.min(maximumConcurrent, Math.max(maximumPerRoute / ZosmfServiceFamily.values().length, 1));
+	}
+
+	private static Supplier<CircuitBreaker> circuitBreakers() {
+		int windowSize = ConfigurationUtilities.getInteger("zosmfCircuitWindowSize", DEFAULT_WINDOW_SIZE); //$NON-NLS-1$
+		int minimumCalls = ConfigurationUtilities.getInteger("zosmfCircuitMinimumCalls", DEFAULT_MINIMUM_CALLS); //$NON-NLS-1$
+		int failureRatePercent = ConfigurationUtilities.getInteger("zosmfCircuitFailureRatePercent", DEFAULT_FAILURE_RATE_PERCENT); //$NON-NLS-1$
+		long slowCallMillis = ConfigurationUtilities.getLong("zosmfCircuitSlowCallMillis", DEFAULT_SLOW_CALL_MILLIS); //$NON-NLS-1$
+		int slowCallRatePercent = ConfigurationUtilities.getInteger("zosmfCircuitSlowCallRatePercent", DEFAULT_SLOW_CALL_RATE_PERCENT); //$NON-NLS-1$
+		long openMillis = ConfigurationUtilities.getLong("zosmfCircuitOpenMillis", DEFAULT_OPEN_MILLIS); //$NON-NLS-1$
+		int halfOpenCalls = ConfigurationUtilities.getInteger("zosmfCircuitHalfOpenCalls", DEFAULT_HALF_OPEN_CALLS); //$NON-NLS-1$
+		return () -> new CircuitBreaker(windowSize, minimumCalls, failureRatePercent, slowCallMillis, slowCallRatePercent,
+				openMillis, halfOpenCalls, System::nanoTime);
+	}
+
+	/**
+	 * Send a request to a z/OSMF service once its circuit and bulkhead let it
+	 * through
+	 *
+	 * @throws WebApplicationException
+	 *             with 503 if the circuit is open or the bulkhead is full
+	 */
+	public <E extends Exception> Response execute(ZosmfServiceFamily family, ZosmfCall<E> call) throws E {
+		Compartment compartment = compartments.get(family);
+		CircuitBreaker circuitBreaker = compartment.circuitBreaker;
+		if (!circuitBreaker.tryAcquire()) {
+			compartment.rejectedOpen.increment();
+			long retrySeconds = Math.max(TimeUnit.MILLISECONDS.toSeconds(circuitBreaker.getRemainingOpenMillis()), 1);
+			String error = String.format(Messages.getString("ZOSMFService.CircuitOpen"), family.getLabel(), retrySeconds); //$NON-NLS-1$
+			throw createUnavailableException(error, retrySeconds);
+		}
+		if (!acquire(compartment)) {
+			circuitBreaker.release();
+			compartment.rejectedFull.increment();
+			String error = String.format(Messages.getString("ZOSMFService.BulkheadFull"), family.getLabel()); //$NON-NLS-1$
+			throw createUnavailableException(error, 1);
+		}
+		long start = System.nanoTime();
+		boolean sent = true;
+		boolean failed = true;
+		try {
+			Response response = call.call();
+			failed = isFailure(response);
+			return response;
+		} catch (RequestLimitReachedException e) {
+			// Turned away before reaching z/OSMF
+			sent = false;
+			throw e;
+		} finally {
+			compartment.permits.release();
+			if (sent) {
+				long durationNanos = System.nanoTime() - start;
+				CircuitBreaker.State before = circuitBreaker.getState();
+				circuitBreaker.onResult(failed, durationNanos);
+				CircuitBreaker.State after = circuitBreaker.getState();
+				if (before != after && log != null) {
+					log.warning("z/OSMF " + family.getLabel() + " circuit is now " + after); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			} else {
+				circuitBreaker.release();
+			}
+		}
+	}
+
+	static boolean isFailure(Response response) {
+		if (response == null) {
+			return false;
+		}
+		int status = response.getStatus();
+		return status == Status.BAD_GATEWAY.getStatusCode() || status == Status.SERVICE_UNAVAILABLE.getStatusCode()
+				|| status == Status.GATEWAY_TIMEOUT.getStatusCode();
+	}
+
+	public CircuitBreaker.State getState(ZosmfServiceFamily family) {
+		return compartments.get(family).circuitBreaker.getState();
+	}
+
+	/**
+	 * @return Number of requests to the service in flight
+	 */
+	public int getActive(ZosmfServiceFamily family) {
+		return maximumConcurrent - compartments.get(family).permits.availablePermits();
+	}
+
+	/**
+	 * @return Number of requests waiting for the service's bulkhead
+	 */
+	public int getWaiting(ZosmfServiceFamily family) {
+		return compartments.get(family).waiting.get();
+	}
+
+	/**
+	 * @return Number of requests turned away because the circuit was open
+	 */
+	public long getRejectedOpenCount(ZosmfServiceFamily family) {
+		return compartments.get(family).rejectedOpen.sum();
+	}
+
+	/**
+	 * @return Number of requests turned away because the bulkhead was full
+	 */
+	public long getRejectedFullCount(ZosmfServiceFamily family) {
+		return compartments.get(family).rejectedFull.sum();
+	}
+
+	public long getOpenCount(ZosmfServiceFamily family) {
+		return compartments.get(family).circuitBreaker.getOpenCount();
+	}
+
+	private boolean acquire(Compartment compartment) {
+		if (compartment.permits.tryAcquire()) {
+			return true;
+		}
+		if (compartment.waiting.incrementAndGet() > maximumQueued) {
+			compartment.waiting.decrementAndGet();
+			return false;
+		}
+		try {
+			return compartment.permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			compartment.waiting.decrementAndGet();
+		}
+	}
+
+	private static WebApplicationException createUnavailableException(String error, long retrySeconds) {
+		Response errorResponse = Response.status(Status.SERVICE_UNAVAILABLE).entity(error).type(MediaType.TEXT_PLAIN)
+				.header("Retry-After", retrySeconds).build(); //$NON-NLS-1$
+		return new WebApplicationException(errorResponse);
+	}
+
+	private static final class Compartment {
+		final Semaphore permits;
+		final AtomicInteger waiting;
+		final CircuitBreaker circuitBreaker;
+		final LongAdder rejectedOpen;
+		final LongAdder rejectedFull;
+
+		Compartment(int maximumConcurrent, CircuitBreaker circuitBreaker) {
+			permits = new Semaphore(maximumConcurrent, true);
+			waiting = new AtomicInteger();
+			this.circuitBreaker = circuitBreaker;
+			rejectedOpen = new LongAdder();
+			rejectedFull = new LongAdder();
+		}
+	}
+}
@@ -10,39 +10,79 @@
 
 package com.ibm.atlas.webservice.services;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
+import javax.inject.Inject;
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.ibm.atlas.model.datasets.DataSetContentResponse;
 import com.ibm.atlas.webservice.Messages;
 import com.ibm.atlas.webservice.resource.datasets.entity.DatasetAttributes;
+import com.ibm.atlas.webservice.services.DatasetListingCache.Listing;
+import com.ibm.atlas.webservice.utilities.ByteRange;
+import com.ibm.atlas.webservice.utilities.StreamUtilities;
 import com.ibm.json.java.JSONArray;
 import com.ibm.json.java.JSONObject;
 
 public class ZosmfDatasetsService extends ZosmfService {
 
+	private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+	private static final DateTimeFormatter ISPF_DATE = DateTimeFormatter.ofPattern("yyyy/MM/dd"); //$NON-NLS-1$
+	private static final DateTimeFormatter ISPF_TIME = DateTimeFormatter.ofPattern("HH:mm"); //$NON-NLS-1$
+
 	private static final String PHYSICAL_SEQUENTIAL_DATA_SET_ORG = "PS"; //$NON-NLS-1$
 	private static final String PATRITIONED_DATA_SET_ORG = "PO"; //$NON-NLS-1$
 	private static final String AUTHORIZATION_FAILURE = "ISRZ002 Authorization failed";
+	private static final String ACCEPT_RANGES = "Accept-Ranges"; //$NON-NLS-1$
+	private static final String CONTENT_RANGE = "Content-Range"; //$NON-NLS-1$
+	private static final String BYTES = "bytes"; //$NON-NLS-1$
 	private static final Collection<String> CREATE_PARMS = Arrays.asList("unit", "dsorg", "alcunit", "primary", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 			"secondary", "dirblk", "avgblk", "recfm", "blksize", "lrecl", "storeclass", "mgntclass", "dataclass", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$
 			"spacu", "sizex", "blksz"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$	
 
+	@Inject
+	DatasetListingCache listings;
+
 	public JSONObject listDatasets(String filter) {
+		return coalesce(ZosmfOperation.LIST_DATASETS, () -> readDatasetList(filter), filter);
+	}
+
+	private JSONObject readDatasetList(String filter) {
 		String requestURL = String.format("restfiles/ds"); //$NON-NLS-1$
 		Builder request = createRequest(requestURL, "dslevel", filter);
 		request = request.header("X-IBM-Max-Items", "0"); //$NON-NLS-1$ //$NON-NLS-2$
 
-		Response response = client.sendRequest(request, HttpMethod.GET);
+		Response response = sendRequest(ZosmfOperation.LIST_DATASETS, request, HttpMethod.GET);
 
 		if (response.getStatus() != Status.OK.getStatusCode()) {
 			String error = String.format(Messages.getString("ZOSMFService.ListFailedForFilter"), filter); //$NON-NLS-1$
@@ -56,27 +96,493 @@ public class ZosmfDatasetsService extends ZosmfService {
 		}
 	}
 
+	/**
+	 * Get the names of the data sets that match a filter, from the user's
+	 * recent listing if there is one
+	 * 
+	 * @param refresh
+	 *            Whether to list the data sets again even if the user has a
+	 *            recent listing
+	 * @return The names, which must not be changed
+	 */
+	public String[] listDatasetNames(String filter, boolean refresh) {
+		return listNames(Listing.DATASETS, filter, refresh, () -> getNames(listDatasets(filter), "dsname")); //$NON-NLS-1$
+	}
+
+	public CompletionStage<String[]> listDatasetNamesAsync(String filter, boolean refresh) {
+		return supplyAsync(() -> listDatasetNames(filter, refresh));
+	}
+
+	/**
+	 * List a page of the data sets that match a filter, written to the client
+	 * as z/OSMF's listing is parsed, in the form
+	 * {"items":["HLQ.DS1",...],"nextStart":"HLQ.DS9"}. The next start is the
+	 * first data set of the next page, and is left out on the last page.
+	 * 
+	 * @param start
+	 *            The first data set to list, or null to start at the beginning
+	 * @param limit
+	 *            Maximum number of data sets on the page
+	 */
+	public StreamingOutput listDatasetsPage(String filter, String start, int limit) {
+		InputStream datasets = readDatasetListing(ZosmfOperation.LIST_DATASETS, filter, start, pageItems(limit), false,
+				"ZOSMFService.ListFailedForFilter"); //$NON-NLS-1$
+		return StreamUtilities.streamingOutput(datasets, (source, output) -> writeDatasetPage(source, output, limit));
+	}
+
+	public CompletionStage<StreamingOutput> listDatasetsPageAsync(String filter, String start, int limit) {
+		return supplyAsync(() -> listDatasetsPage(filter, start, limit));
+	}
+
+	/**
+	 * List the attributes of all the data sets that match a filter, written
+	 * to the client as an array as z/OSMF's listing is parsed
+	 */
+	public StreamingOutput listDatasetAttributes(String filter) {
+		InputStream datasets = readDatasetListing(ZosmfOperation.GET_ATTRIBUTES, filter, null, 0, true,
+				"ZOSMFService.AttributesFailedForDataset"); //$NON-NLS-1$
+		return StreamUtilities.streamingOutput(datasets, (source, output) -> writeDatasetAttributes(source, output, Integer.MAX_VALUE, false));
+	}
+
+	public CompletionStage<StreamingOutput> listDatasetAttributesAsync(String filter) {
+		return supplyAsync(() -> listDatasetAttributes(filter));
+	}
+
+	/**
+	 * List a page of the attributes of the data sets that match a filter, in
+	 * the form {"items":[{"name":"HLQ.DS1",...},...],"nextStart":"HLQ.DS9"}
+	 * 
+	 * @see #listDatasetsPage(String, String, int)
+	 */
+	public StreamingOutput listDatasetAttributesPage(String filter, String start, int limit) {
+		InputStream datasets = readDatasetListing(ZosmfOperation.GET_ATTRIBUTES, filter, start, pageItems(limit), true,
+				"ZOSMFService.AttributesFailedForDataset"); //$NON-NLS-1$
+		return StreamUtilities.streamingOutput(datasets, (source, output) -> writeDatasetAttributes(source, output, limit, true));
+	}
+
+	public CompletionStage<StreamingOutput> listDatasetAttributesPageAsync(String filter, String start, int limit) {
+		return supplyAsync(() -> listDatasetAttributesPage(filter, start, limit));
+	}
+
+	/**
+	 * Start a data set listing, leaving the body for the caller to parse as it
+	 * is read
+	 * 
+	 * @param maximumItems
+	 *            Most data sets z/OSMF should list, or 0 for all of them
+	 * @param failureMessage
+	 *            Key of the message to fail with, which is given the filter
+	 */
+	private InputStream readDatasetListing(ZosmfOperation operation, String filter, String start, int maximumItems, boolean attributes,
+			String failureMessage) {
+		String requestURL = String.format("restfiles/ds"); //$NON-NLS-1$
+		Builder request = start != null ? createRequest(requestURL, "dslevel", filter, "start", start) //$NON-NLS-1$ //$NON-NLS-2$
+				: createRequest(requestURL, "dslevel", filter); //$NON-NLS-1$
+		request = request.header("X-IBM-Max-Items", Integer.toString(maximumItems)); //$NON-NLS-1$
+		if (attributes) {
+			request = request.header("X-IBM-Attributes", "base"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		Response response = sendRequest(operation, request, HttpMethod.GET);
+		if (response.getStatus() != Status.OK.getStatusCode()) {
+			String error = String.format(Messages.getString(failureMessage), filter);
+			Response errorResponse = Response.status(response.getStatus()).entity(error).type(MediaType.TEXT_PLAIN).build();
+			throw new WebApplicationException(errorResponse);
+		}
+		return readStream(response);
+	}
+
 	public JSONObject listDatasetMembers(String dsn) {
+		return coalesce(ZosmfOperation.LIST_MEMBERS, () -> readMemberList(dsn), dsn);
+	}
+
+	private JSONObject readMemberList(String dsn) {
 		String requestURL = String.format("restfiles/ds/%s/member", dsn); //$NON-NLS-1$
 		Builder request = createRequest(requestURL);
 		request = request.header("X-IBM-Max-Items", "0"); //$NON-NLS-1$ //$NON-NLS-2$
 
-		Response response = client.sendRequest(request, HttpMethod.GET);
+		Response response = sendRequest(ZosmfOperation.LIST_MEMBERS, request, HttpMethod.GET);
+		if (response.getStatus() != Status.OK.getStatusCode()) {
+			throw createListMembersException(response, dsn);
+		}
 		try {
-			JSONObject responseJSON = JSONObject.parse(response.readEntity(String.class));
-			if (response.getStatus() != Status.OK.getStatusCode()) {
-				if (responseJSON.get("details").toString().contains(AUTHORIZATION_FAILURE)){
-					throw createAuthorizationFailureException(responseJSON.get("details").toString());
+			return JSONObject.parse(response.readEntity(String.class));
+		} catch (IOException e) {
+			throw createJSONParseException(e);
+		}
+	}
+
+	/**
+	 * List a page of the members of a data set. The names are written to the
+	 * client as z/OSMF's listing is parsed, so the memory used doesn't grow
+	 * with the number of members, in the form
+	 * {"items":["MEMBER1",...],"nextStart":"MEMBER9"}. The next start is the
+	 * first member of the next page, and is left out on the last page.
+	 * 
+	 * @param start
+	 *            The first member to list, or null to start at the beginning
+	 * @param limit
+	 *            Maximum number of members on the page
+	 */
+	public StreamingOutput listDatasetMembersPage(String dsn, String start, int limit) {
+		String requestURL = String.format("restfiles/ds/%s/member", dsn); //$NON-NLS-1$
+		Builder request = start != null ? createRequest(requestURL, "start", start) : createRequest(requestURL); //$NON-NLS-1$
+		request = request.header("X-IBM-Max-Items", Integer.toString(pageItems(limit))); //$NON-NLS-1$
+
+		Response response = sendRequest(ZosmfOperation.LIST_MEMBERS, request, HttpMethod.GET);
+		if (response.getStatus() != Status.OK.getStatusCode()) {
+			throw createListMembersException(response, dsn);
+		}
+		InputStream members = readStream(response);
+		return StreamUtilities.streamingOutput(members, (source, output) -> writeMemberPage(source, output, limit));
+	}
+
+	public CompletionStage<StreamingOutput> listDatasetMembersPageAsync(String dsn, String start, int limit) {
+		return supplyAsync(() -> listDatasetMembersPage(dsn, start, limit));
+	}
+
+	/**
+	 * @return Number of items to ask z/OSMF for to fill a page: one more than
+	 *         the page, to find where the next page starts, unless the page
+	 *         takes everything already
+	 */
+	static int pageItems(int limit) {
+		return limit == Integer.MAX_VALUE ? limit : limit + 1;
+	}
+
+	/**
+	 * List the members of a data set with their ISPF statistics, in one
+	 * request to z/OSMF. Callers must not add to the result, as it may be
+	 * shared with identical listings in flight at the same time.
+	 */
+	public MemberStatistics listMemberStatistics(String dsn) {
+		return coalesce(ZosmfOperation.LIST_MEMBERS, () -> readMemberStatistics(dsn), dsn, "base"); //$NON-NLS-1$
+	}
+
+	public CompletionStage<MemberStatistics> listMemberStatisticsAsync(String dsn) {
+		return supplyAsync(() -> listMemberStatistics(dsn));
+	}
+
+	private MemberStatistics readMemberStatistics(String dsn) {
+		String requestURL = String.format("restfiles/ds/%s/member", dsn); //$NON-NLS-1$
+		Builder request = createRequest(requestURL)
+			.header("X-IBM-Attributes", "base") //$NON-NLS-1$ //$NON-NLS-2$
+			.header("X-IBM-Max-Items", "0"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		Response response = sendRequest(ZosmfOperation.LIST_MEMBERS, request, HttpMethod.GET);
+		if (response.getStatus() != Status.OK.getStatusCode()) {
+			throw createListMembersException(response, dsn);
+		}
+		try (InputStream members = readStream(response)) {
+			return readMemberStatistics(members);
+		} catch (IOException e) {
+			throw createJSONParseException(e);
+		}
+	}
+
+	/**
+	 * Read the members of a z/OSMF member listing made with base attributes
+	 */
+	static MemberStatistics readMemberStatistics(InputStream members) throws IOException {
+		MemberStatistics statistics = new MemberStatistics();
+		try (JsonParser parser = JSON_FACTORY.createParser(members)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException(parser, "Expected a member listing"); //$NON-NLS-1$
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				if (parser.nextToken() != JsonToken.START_ARRAY || !"items".equals(field)) { //$NON-NLS-1$
+					parser.skipChildren();
+					continue;
 				}
-				String error = String.format(Messages.getString("ZOSMFService.ListFailedForDataset"), dsn); //$NON-NLS-1$
-				Response errorResponse = Response.status(response.getStatus()).entity(error).type(MediaType.TEXT_PLAIN).build();
-				throw new WebApplicationException(errorResponse);
+				while (parser.nextToken() == JsonToken.START_OBJECT) {
+					readMemberStatistics(parser, statistics);
+				}
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * Read the statistics of one member of a listing, leaving the parser on
+	 * the end of the member object
+	 */
+	private static void readMemberStatistics(JsonParser parser, MemberStatistics statistics) throws IOException {
+		String member = null;
+		int version = MemberStatistics.UNKNOWN;
+		int modification = MemberStatistics.UNKNOWN;
+		String created = null;
+		String modifiedDate = null;
+		String modifiedTime = null;
+		String modifiedSeconds = null;
+		int records = MemberStatistics.UNKNOWN;
+		String user = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			parser.nextToken();
+			switch (field) {
+			case "member": //$NON-NLS-1$
+				member = parser.getValueAsString();
+				break;
+			case "vers": //$NON-NLS-1$
+				version = parser.getValueAsInt(MemberStatistics.UNKNOWN);
+				break;
+			case "mod": //$NON-NLS-1$
+				modification = parser.getValueAsInt(MemberStatistics.UNKNOWN);
+				break;
+			case "c4date": //$NON-NLS-1$
+				created = parser.getValueAsString();
+				break;
+			case "m4date": //$NON-NLS-1$
+				modifiedDate = parser.getValueAsString();
+				break;
+			case "mtime": //$NON-NLS-1$
+				modifiedTime = parser.getValueAsString();
+				break;
+			case "msec": //$NON-NLS-1$
+				modifiedSeconds = parser.getValueAsString();
+				break;
+			case "cnorc": //$NON-NLS-1$
+				records = parser.getValueAsInt(MemberStatistics.UNKNOWN);
+				break;
+			case "user": //$NON-NLS-1$
+				user = parser.getValueAsString();
+				break;
+			default:
+				parser.skipChildren();
+			}
+		}
+		if (member == null) {
+			return;
+		}
+		int combinedVersion = version >= 0 && modification >= 0 ? version * 100 + modification : MemberStatistics.UNKNOWN;
+		statistics.add(member, combinedVersion, toEpochDay(created), toEpochSecond(modifiedDate, modifiedTime, modifiedSeconds),
+				records, user != null && !user.trim().isEmpty() ? user : null);
+	}
+
+	private static int toEpochDay(String date) {
+		try {
+			return date != null ? (int) LocalDate.parse(date, ISPF_DATE).toEpochDay() : MemberStatistics.UNKNOWN;
+		} catch (DateTimeParseException e) {
+			return MemberStatistics.UNKNOWN;
+		}
+	}
+
+	private static long toEpochSecond(String date, String time, String seconds) {
+		if (date == null || time == null) {
+			return MemberStatistics.UNKNOWN_TIME;
+		}
+		try {
+			LocalDateTime modified = LocalDate.parse(date, ISPF_DATE).atTime(LocalTime.parse(time, ISPF_TIME));
+			if (seconds != null && !seconds.isEmpty()) {
+				modified = modified.withSecond(Integer.parseInt(seconds.trim()));
+			}
+			return modified.toEpochSecond(ZoneOffset.UTC);
+		} catch (DateTimeException | NumberFormatException e) {
+			return MemberStatistics.UNKNOWN_TIME;
+		}
+	}
+
+	/**
+	 * Copy the names from a z/OSMF member listing to a page, closing the
+	 * listing
+	 */
+	static void writeMemberPage(InputStream members, OutputStream output, int limit) throws IOException {
+		writeListing(members, output, limit, true, parser -> readField(parser, "member"), name -> name, JsonGenerator::writeString); //$NON-NLS-1$
+	}
+
+	/**
+	 * Copy the names from a z/OSMF data set listing to a page, closing the
+	 * listing
+	 */
+	static void writeDatasetPage(InputStream datasets, OutputStream output, int limit) throws IOException {
+		writeListing(datasets, output, limit, true, parser -> readField(parser, "dsname"), name -> name, JsonGenerator::writeString); //$NON-NLS-1$
+	}
+
+	/**
+	 * Copy the attributes from a z/OSMF data set listing, closing the listing
+	 * 
+	 * @param paged
+	 *            Whether to write a page of at most limit data sets with the
+	 *            start of the next, or all of them as an array
+	 */
+	static void writeDatasetAttributes(InputStream datasets, OutputStream output, int limit, boolean paged) throws IOException {
+		writeListing(datasets, output, limit, paged, ZosmfDatasetsService::readDatasetAttributes, DatasetAttributes::getName,
+				ZosmfDatasetsService::writeDatasetAttributes);
+	}
+
+	/**
+	 * Copy the items of a z/OSMF listing to the client one at a time, so the
+	 * memory used doesn't grow with the length of the listing. A page is
+	 * written as {"items":[...],"nextStart":"NAME"}, where the next start is
+	 * the name of the item after the page and is left out on the last page.
+	 * 
+	 * @param paged
+	 *            Whether to write a page, or the items as an array
+	 * @param name
+	 *            Gives the name of an item, to start the next page at
+	 */
+	private static <T> void writeListing(InputStream listing, OutputStream output, int limit, boolean paged, ItemReader<T> reader,
+			Function<T, String> name, ItemWriter<T> writer) throws IOException {
+		try (JsonParser parser = JSON_FACTORY.createParser(listing);
+				JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException(parser, "Expected a listing"); //$NON-NLS-1$
+			}
+			if (paged) {
+				generator.writeStartObject();
+				generator.writeArrayFieldStart("items"); //$NON-NLS-1$
+			} else {
+				generator.writeStartArray();
+			}
+			int count = 0;
+			String nextStart = null;
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				if (parser.nextToken() != JsonToken.START_ARRAY || !"items".equals(field)) { //$NON-NLS-1$
+					parser.skipChildren();
+					continue;
+				}
+				while (parser.nextToken() == JsonToken.START_OBJECT) {
+					T item = reader.read(parser);
+					if (count < limit) {
+						writer.write(generator, item);
+						count++;
+					} else if (nextStart == null) {
+						nextStart = name.apply(item);
+					}
+				}
+			}
+			generator.writeEndArray();
+			if (paged) {
+				if (nextStart != null) {
+					generator.writeStringField("nextStart", nextStart); //$NON-NLS-1$
+				}
+				generator.writeEndObject();
+			}
+		}
+	}
+
+	/**
+	 * Read one field of an item of a listing, leaving the parser on the end of
+	 * the item object
+	 */
+	private static String readField(JsonParser parser, String name) throws IOException {
+		String value = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			parser.nextToken();
+			if (name.equals(field)) {
+				value = parser.getValueAsString();
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Read the attributes of one data set of a listing, leaving the parser on
+	 * the end of the data set object
+	 */
+	private static DatasetAttributes readDatasetAttributes(JsonParser parser) throws IOException {
+		DatasetAttributes attributes = new DatasetAttributes();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			parser.nextToken();
+			switch (field) {
+			case "dsname": //$NON-NLS-1$
+				attributes.setName(parser.getValueAsString());
+				break;
+			case "blksz": //$NON-NLS-1$
+				attributes.setBlksize(parser.getValueAsString());
+				break;
+			case "lrecl": //$NON-NLS-1$
+				attributes.setLrecl(parser.getValueAsString());
+				break;
+			case "recfm": //$NON-NLS-1$
+				attributes.setRecfm(parser.getValueAsString());
+				break;
+			case "dsorg": //$NON-NLS-1$
+				attributes.setDsorg(parser.getValueAsString());
+				break;
+			default:
+				parser.skipChildren();
+			}
+		}
+		return attributes;
+	}
+
+	private static void writeDatasetAttributes(JsonGenerator generator, DatasetAttributes attributes) throws IOException {
+		generator.writeStartObject();
+		writeField(generator, "name", attributes.getName()); //$NON-NLS-1$
+		writeField(generator, "blksize", attributes.getBlksize()); //$NON-NLS-1$
+		writeField(generator, "lrecl", attributes.getLrecl()); //$NON-NLS-1$
+		writeField(generator, "recfm", attributes.getRecfm()); //$NON-NLS-1$
+		writeField(generator, "dsorg", attributes.getDsorg()); //$NON-NLS-1$
+		generator.writeEndObject();
+	}
+
+	private static void writeField(JsonGenerator generator, String name, String value) throws IOException {
+		if (value != null) {
+			generator.writeStringField(name, value);
+		}
+	}
+
+	private WebApplicationException createListMembersException(Response response, String dsn) {
+		try {
+			JSONObject responseJSON = JSONObject.parse(response.readEntity(String.class));
+			if (responseJSON.get("details").toString().contains(AUTHORIZATION_FAILURE)){
+				return createAuthorizationFailureException(responseJSON.get("details").toString());
 			}
-			return responseJSON;
 		} catch (IOException e) {
-			throw createJSONParseException(e);
+			return createJSONParseException(e);
+		}
+		String error = String.format(Messages.getString("ZOSMFService.ListFailedForDataset"), dsn); //$NON-NLS-1$
+		Response errorResponse = Response.status(response.getStatus()).entity(error).type(MediaType.TEXT_PLAIN).build();
+		return new WebApplicationException(errorResponse);
+	}
+
+	/**
+	 * Get the names of the members of a data set, from the user's recent
+	 * listing if there is one
+	 * 
+	 * @param refresh
+	 *            Whether to list the members again even if the user has a
+	 *            recent listing
+	 * @return The names, which must not be changed
+	 */
+	public String[] listDatasetMemberNames(String dsn, boolean refresh) {
+		return listNames(Listing.MEMBERS, dsn, refresh, () -> getNames(listDatasetMembers(dsn), "member")); //$NON-NLS-1$
+	}
+
+	public CompletionStage<String[]> listDatasetMemberNamesAsync(String dsn, boolean refresh) {
+		return supplyAsync(() -> listDatasetMemberNames(dsn, refresh));
+	}
+
+	private String[] listNames(Listing listing, String name, boolean refresh, Supplier<String[]> read) {
+		String user = getUserName();
+		if (refresh) {
+			listings.invalidate(user, listing, name);
+		} else {
+			String[] names = listings.get(user, listing, name);
+			if (names != null) {
+				return names;
+			}
 		}
-		
+		long generation = listings.getGeneration();
+		String[] names = read.get();
+		listings.put(user, listing, name, names, generation);
+		return names;
+	}
+
+	private static String[] getNames(JSONObject listing, String field) {
+		JSONArray items = (JSONArray) listing.get("items"); //$NON-NLS-1$
+		String[] names = new String[items.size()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = (String) ((JSONObject) items.get(i)).get(field);
+		}
+		return names;
 	}
 
 	public DataSetContentResponse getConvertedContentWithEtag(String dsn) {
@@ -88,13 +594,12 @@ public class ZosmfDatasetsService extends ZosmfService {
 	}
 
 	public DataSetContentResponse getContent(String dsn, boolean convert, boolean etag, String start, String end) {
-		int recordCount = 0;
 		int startRecord = 0;
 		int endRecord = -1;
 
 		if (start != null) {
 			try {
-				startRecord = Integer.parseInt(start);
+				startRecord = Math.max(Integer.parseInt(start), 0);
 			} catch (@SuppressWarnings("unused") NumberFormatException e) {
 				startRecord = 0;
 			}
@@ -108,6 +613,51 @@ public class ZosmfDatasetsService extends ZosmfService {
 			}
 		}
 
+		// Ask z/OSMF for just the records wanted, which it can do for text
+		boolean recordRange = convert && endRecord != -1 && startRecord <= endRecord;
+		Response response = sendContentRequest(dsn, convert, etag, recordRange ? startRecord + "-" + endRecord : null); //$NON-NLS-1$
+		if (recordRange && response.getStatus() == Status.BAD_REQUEST.getStatusCode()) {
+			// Levels of z/OSMF without record ranges for data sets reject them
+			response.close();
+			recordRange = false;
+			response = sendContentRequest(dsn, convert, etag, null);
+		}
+
+		if (response.getStatus() != Status.OK.getStatusCode()) {
+			throw createContentException(response, dsn);
+		}
+
+		DataSetContentResponse result = new DataSetContentResponse();
+		if (etag) {
+			result.setChecksum(response.getHeaderString("Etag")); //$NON-NLS-1$
+		}
+
+		if (endRecord == -1) {
+			result.setRecords(response.readEntity(String.class));
+			return result;
+		}
+		int first = recordRange ? 0 : startRecord;
+		int last = recordRange ? endRecord - startRecord : endRecord;
+		try (Reader content = new BufferedReader(new InputStreamReader(readStream(response), StandardCharsets.UTF_8))) {
+			result.setRecords(readRecords(content, first, last));
+		} catch (IOException e) {
+			log.log(Level.SEVERE, e.getMessage(), e);
+			String error = String.format(Messages.getString("ZOSMFService.ContentFailedForDataset"), dsn); //$NON-NLS-1$
+			Response errorResponse = Response.status(Status.INTERNAL_SERVER_ERROR).entity(error).type(MediaType.TEXT_PLAIN).build();
+			throw new WebApplicationException(errorResponse);
+		}
+		return result;
+	}
+
+	public CompletionStage<DataSetContentResponse> getContentAsync(String dsn, boolean convert, boolean etag, String start, String end) {
+		return supplyAsync(() -> getContent(dsn, convert, etag, start, end));
+	}
+
+	/**
+	 * @param recordRange
+	 *            Records to ask for, as first-last, or null for all of them
+	 */
+	private Response sendContentRequest(String dsn, boolean convert, boolean etag, String recordRange) {
 		String requestURL = String.format("restfiles/ds/%s", dsn); //$NON-NLS-1$
 		Builder request = createRequest(requestURL);
 		if (convert) {
@@ -118,53 +668,111 @@ public class ZosmfDatasetsService extends ZosmfService {
 		if (etag) {
 			request = request.header("X-IBM-Return-Etag", "true"); //$NON-NLS-1$ //$NON-NLS-2$
 		}
-		Response response = client.sendRequest(request, HttpMethod.GET);
+		if (recordRange != null) {
+			request = request.header("X-IBM-Record-Range", recordRange); //$NON-NLS-1$
+		}
+		return sendRequest(ZosmfOperation.GET_CONTENT, request, HttpMethod.GET);
+	}
 
-		if (response.getStatus() != Status.OK.getStatusCode()) {
-			try{
-				JSONObject responseJSON = JSONObject.parse(response.readEntity(String.class));
-				if (responseJSON.get("details").toString().contains(AUTHORIZATION_FAILURE)){
-					throw createAuthorizationFailureException(responseJSON.get("details").toString());
+	/**
+	 * Read records first to last of some content, counting from 0, ending
+	 * each with a new line. Reading stops once past the last record, so only
+	 * the content up to the range is read. As when the content is split into
+	 * lines, empty records at the very end are left out.
+	 */
+	static String readRecords(Reader content, int first, int last) throws IOException {
+		StringBuilder records = new StringBuilder();
+		int record = 0;
+		int emptyRecords = 0;
+		boolean empty = true;
+		int c;
+		while ((c = content.read()) != -1) {
+			boolean inRange = record >= first && record <= last;
+			if (c == '\n') {
+				if (inRange) {
+					if (empty) {
+						// Only kept if a record with content follows
+						emptyRecords++;
+					} else {
+						records.append('\n');
+					}
 				}
-			} catch(IOException e){
-				throw createJSONParseException(e);
+				record++;
+				empty = true;
+				continue;
 			}
-			String error = String.format(Messages.getString("ZOSMFService.ContentFailedForDataset"), dsn); //$NON-NLS-1$
-			Response errorResponse = Response.status(response.getStatus()).entity(error).type(MediaType.TEXT_PLAIN).build();
-			throw new WebApplicationException(errorResponse);
+			if (empty) {
+				for (; emptyRecords > 0; emptyRecords--) {
+					records.append('\n');
+				}
+			}
+			if (record > last) {
+				break;
+			}
+			if (inRange) {
+				records.append((char) c);
+			}
+			empty = false;
 		}
+		if (!empty && record >= first && record <= last) {
+			records.append('\n');
+		}
+		return records.toString();
+	}
 
-		DataSetContentResponse result = new DataSetContentResponse();
-		if (etag) {
-			result.setChecksum(response.getHeaderString("Etag")); //$NON-NLS-1$
+	/**
+	 * Get the content of a data set or member as it is stored, without
+	 * conversion. The bytes are copied from z/OSMF to the client as they
+	 * arrive, so none of the content is held in memory.
+	 * 
+	 * @param range
+	 *            Value of the Range header, or null for all of the content
+	 * @return A response with all of the content, or with part of it if a
+	 *         single range is asked for and z/OSMF gives the length of the
+	 *         content
+	 */
+	public Response getBinaryContent(String dsn, String range) {
+		Response response = sendContentRequest(dsn, false, false, null);
+		if (response.getStatus() != Status.OK.getStatusCode()) {
+			throw createContentException(response, dsn);
 		}
 
-		String output = response.readEntity(String.class);
+		long length = response.getLength();
+		ByteRange byteRange = ByteRange.parse(range, length);
+		if (byteRange != null && !byteRange.isSatisfiable(length)) {
+			response.close();
+			return Response.status(Status.REQUESTED_RANGE_NOT_SATISFIABLE).header(CONTENT_RANGE, "bytes */" + length).build(); //$NON-NLS-1$
+		}
+		InputStream content = readStream(response);
+		if (byteRange == null) {
+			return Response.ok(StreamUtilities.streamingOutput(content), MediaType.APPLICATION_OCTET_STREAM)
+				.header(ACCEPT_RANGES, BYTES)
+				.build();
+		}
+		return Response.status(Status.PARTIAL_CONTENT)
+			.entity(StreamUtilities.streamingOutput(content, byteRange.getFirst(), byteRange.getLength()))
+			.type(MediaType.APPLICATION_OCTET_STREAM)
+			.header(ACCEPT_RANGES, BYTES)
+			.header(CONTENT_RANGE, byteRange.toContentRange(length))
+			.build();
+	}
 
-		if (endRecord == -1) {
-			result.setRecords(output);
-		} else {
-			String[] lines = output.toString().split("\n"); //$NON-NLS-1$
-			StringBuilder sb = new StringBuilder();
-
-			for (String line : lines) {
-				if (recordCount >= startRecord) {
-					if (recordCount <= endRecord || endRecord == -1) {
-						// if (recordCount != startRecord) {
-						// sb.append("\n");
-						// }
-						sb.append(line);
-						sb.append("\n"); //$NON-NLS-1$
-					} else {
-						break;
-					}
-				}
-				recordCount++;
+	public CompletionStage<Response> getBinaryContentAsync(String dsn, String range) {
+		return supplyAsync(() -> getBinaryContent(dsn, range));
+	}
+
+	private WebApplicationException createContentException(Response response, String dsn) {
+		try {
+			JSONObject responseJSON = JSONObject.parse(response.readEntity(String.class));
+			if (responseJSON.get("details").toString().contains(AUTHORIZATION_FAILURE)) {
+				return createAuthorizationFailureException(responseJSON.get("details").toString());
 			}
-			result.setRecords(sb.toString());
+		} catch (IOException e) {
+			return createJSONParseException(e);
 		}
-
-		return result;
+		String error = String.format(Messages.getString("ZOSMFService.ContentFailedForDataset"), dsn); //$NON-NLS-1$
+		Response errorResponse = Response.status(response.getStatus()).entity(error).type(MediaType.TEXT_PLAIN).build();
+		return new WebApplicationException(errorResponse);
 	}
 
 	/**
@@ -177,11 +785,15 @@ public class ZosmfDatasetsService extends ZosmfService {
 	 * @return Attributes of named dsn(member)
 	 */
 	public JSONObject getDatasetAttributes(String dsn) {
+		return coalesce(ZosmfOperation.GET_ATTRIBUTES, () -> readDatasetAttributes(dsn), dsn);
+	}
+
+	private JSONObject readDatasetAttributes(String dsn) {
 		String requestURL = String.format("restfiles/ds"); //$NON-NLS-1$
 		Builder request = createRequest(requestURL, "dslevel", dsn); //$NON-NLS-1$
 		request = request.header("X-IBM-Attributes", "base"); //$NON-NLS-1$ //$NON-NLS-2$
 
-		Response response = client.sendRequest(request, HttpMethod.GET);
+		Response response = sendRequest(ZosmfOperation.GET_ATTRIBUTES, request, HttpMethod.GET);
 
 		if (response.getStatus() != Status.OK.getStatusCode()) {
 			String error = String.format(Messages.getString("ZOSMFService.AttributesFailedForDataset"), dsn); //$NON-NLS-1$
@@ -214,7 +826,11 @@ public class ZosmfDatasetsService extends ZosmfService {
 		}
 		request = request.header("X-IBM-Data-Type", "text"); //$NON-NLS-1$ //$NON-NLS-2$
 		request = request.header("Content-Type", "text/plain"); //$NON-NLS-1$ //$NON-NLS-2$
-		Response response = client.putRequestWithContent(request, records, MediaType.TEXT_PLAIN_TYPE);
+		Response response = putRequestWithContent(ZosmfOperation.PUT_CONTENT, request, records, MediaType.TEXT_PLAIN_TYPE);
+		if (dsn.indexOf('(') >= 0) {
+			// Writing a member may have created it
+			listings.evictMembers(dsn);
+		}
 
 		if (response.getStatus() == Status.NO_CONTENT.getStatusCode()
 				|| response.getStatus() == Status.CREATED.getStatusCode()) {
@@ -227,6 +843,14 @@ public class ZosmfDatasetsService extends ZosmfService {
 	}
 
 	public boolean createDatasetExtended(String dsn, String attributes) {
+		try {
+			return createDatasetWithAttributes(dsn, attributes);
+		} finally {
+			evictListings(dsn);
+		}
+	}
+
+	private boolean createDatasetWithAttributes(String dsn, String attributes) {
 		JSONObject dsnAttributes = null;
 		try {
 			dsnAttributes = JSONObject.parse(attributes);
@@ -246,6 +870,18 @@ public class ZosmfDatasetsService extends ZosmfService {
 		}
 		return true;
 	}
+
+	/**
+	 * Evict every user's listings that a change to a data set or member may
+	 * have made out of date
+	 */
+	private void evictListings(String dsn) {
+		if (dsn.indexOf('(') < 0) {
+			listings.evictDatasets(dsn);
+		}
+		listings.evictMembers(dsn);
+	}
+
 	protected void createDatasetPreChecks(String dsn, JSONObject dsnAttributes) {
 		int memberCheck = dsn.indexOf('(');
 		// Test for invalid dataset organization with directory blocks specified
@@ -319,7 +955,7 @@ public class ZosmfDatasetsService extends ZosmfService {
 		log.log(Level.INFO, "Creation dsn "+revisedDSN); //$NON-NLS-1$
 		String requestURL = String.format("restfiles/ds/%s", revisedDSN); //$NON-NLS-1$
 		Builder request = createRequest(requestURL);
-		Response response = client.postRequestWithContent(request, attributes, MediaType.APPLICATION_JSON_TYPE);
+		Response response = postRequestWithContent(ZosmfOperation.CREATE_DATASET, request, attributes, MediaType.APPLICATION_JSON_TYPE);
 		if (response.getStatus() != Status.CREATED.getStatusCode()) {
 			String error = String.format(Messages.getString("ZOSMFService.CreateDatasetFailed"), dsn); //$NON-NLS-1$ 
 			Response errorResponse = Response.status(response.getStatus()).entity(error).type(MediaType.TEXT_PLAIN).build();
@@ -386,7 +1022,8 @@ public class ZosmfDatasetsService extends ZosmfService {
 	public void deleteDataset(String dsn) {
 		String requestURL = String.format("restfiles/ds/%s", dsn); //$NON-NLS-1$
 		Builder request = createRequest(requestURL);
-		Response response = client.sendRequest(request, HttpMethod.DELETE);
+		Response response = sendRequest(ZosmfOperation.DELETE_DATASET, request, HttpMethod.DELETE);
+		evictListings(dsn);
 
 		if (response.getStatus() != Status.NO_CONTENT.getStatusCode()) {
 			String error = String.format(Messages.getString("ZOSMFService.DeleteFailed"), dsn); //$NON-NLS-1$
@@ -397,4 +1034,17 @@ public class ZosmfDatasetsService extends ZosmfService {
 		return;
 	}
 	
+	/**
+	 * Reads one item of a listing, leaving the parser on the end of the item
+	 * object
+	 */
+	@FunctionalInterface
+	private interface ItemReader<T> {
+		T read(JsonParser parser) throws IOException;
+	}
+
+	@FunctionalInterface
+	private interface ItemWriter<T> {
+		void write(JsonGenerator generator, T item) throws IOException;
+	}
 }
@@ -18,6 +18,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -87,7 +88,7 @@ public class ZosmfFilesService extends ZosmfService {
 
 		Response response;
 		try {
-			response = client.postRequestWithContent(request, body, MediaType.APPLICATION_JSON_TYPE);
+			response = postRequestWithContent(ZosmfOperation.CREATE_FILE, request, body, MediaType.APPLICATION_JSON_TYPE);
 		} catch (JsonProcessingException e) {
 			log.log(Level.SEVERE, e.getMessage(), e);
 			throw new InternalServerErrorException(Messages.getString("ZosUtilities.ObjectCannotConvertToJson"));
@@ -116,7 +117,7 @@ public class ZosmfFilesService extends ZosmfService {
 		Builder request = createRequest(requestURL);
 		request = request.header("X-IBM-Option", "recursive"); //$NON-NLS-1$ //$NON-NLS-2$
 
-		Response response = client.sendRequest(request, HttpMethod.DELETE);
+		Response response = sendRequest(ZosmfOperation.DELETE_FILE, request, HttpMethod.DELETE);
 
 		if (response.getStatus() != Status.NO_CONTENT.getStatusCode()) {
 			String error = response.readEntity(String.class);
@@ -150,7 +151,7 @@ public class ZosmfFilesService extends ZosmfService {
 			request = request.header("X-IBM-Data-Type", "binary"); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 		request = request.header("Content-Type", MediaType.TEXT_PLAIN); //$NON-NLS-1$ //$NON-NLS-2$
-		Response response = client.putRequestWithContent(request, fileContentsRequest.getContent(), MediaType.TEXT_PLAIN_TYPE);
+		Response response = putRequestWithContent(ZosmfOperation.PUT_FILE, request, fileContentsRequest.getContent(), MediaType.TEXT_PLAIN_TYPE);
 		
 		if (response.getStatus() == Status.PRECONDITION_FAILED.getStatusCode()) {
 			throw new BadRequestException(String.format(Messages.getString("ZosmfFilesService.ChecksumInvalid"), path));
@@ -169,7 +170,7 @@ public class ZosmfFilesService extends ZosmfService {
 		String requestURL = String.format("restfiles/fs"); //$NON-NLS-1$
 		Builder request = createRequest(requestURL, "path", path);
 		
-		Response response = client.sendRequest(request, HttpMethod.GET);
+		Response response = sendRequest(ZosmfOperation.GET_FILE_ATTRIBUTES, request, HttpMethod.GET);
 		if (response.getStatus() != Status.OK.getStatusCode()) {	
 			String error = response.readEntity(String.class);
 			checkForFileNotFoundAndAccessDenied(path, error);
@@ -257,7 +258,7 @@ public class ZosmfFilesService extends ZosmfService {
 			// default behaviour is to treat as text
 			request = request.header("X-IBM-Data-Type", "binary"); //$NON-NLS-1$ //$NON-NLS-2$
 		}
-		Response response = client.sendRequest(request, HttpMethod.GET);
+		Response response = sendRequest(ZosmfOperation.GET_FILE, request, HttpMethod.GET);
 
 		if (response.getStatus() != Status.OK.getStatusCode()) {
 			String error = response.readEntity(String.class);
@@ -287,13 +288,23 @@ public class ZosmfFilesService extends ZosmfService {
 			//Error message not json, so just throw without processing
 		}
 	}
+
+	/**
+	 * Get the content of a file without holding the calling thread. The stage
+	 * fails with an {@link AtlasException} where {@link #getContent(String)}
+	 * would throw one.
+	 */
+	public CompletionStage<GetFileContentResponse> getContentAsync(String path) {
+		return supplyAsync(() -> getContent(path));
+	}
+
 	public ChtagResponse getTag(String path) throws AtlasException {
 		try {
 			JSONObject inputJSON = JSONObject.parse("{\"request\":\"chtag\",\"action\":\"list\"}"); //$NON-NLS-1$
 			String requestURL = String.format("restfiles/fs/%s", path.replaceFirst("^/","")); //$NON-NLS-1$
 			Builder request = createRequest(requestURL);
 
-			Response response = client.putRequestWithContent(request, inputJSON, MediaType.APPLICATION_JSON_TYPE);
+			Response response = putRequestWithContent(ZosmfOperation.CHTAG, request, inputJSON, MediaType.APPLICATION_JSON_TYPE);
 			if (response.getStatus() != Status.OK.getStatusCode()) {
 				String error = response.readEntity(String.class);
 				checkForFileNotFoundAndAccessDenied(path, error);
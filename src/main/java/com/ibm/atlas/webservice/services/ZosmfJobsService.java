@@ -11,6 +11,7 @@
 package com.ibm.atlas.webservice.services;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -24,11 +25,16 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.ibm.atlas.model.jobs.Job;
 import com.ibm.atlas.model.jobs.JobStatus;
 import com.ibm.atlas.webservice.Messages;
 import com.ibm.atlas.webservice.exceptions.JobNotFoundException;
 import com.ibm.atlas.webservice.resource.jobs.entity.JobNameList;
+import com.ibm.atlas.webservice.services.SubsystemResult.Outcome;
 import com.ibm.atlas.webservice.utilities.JobUtilities;
 import com.ibm.json.java.JSONArray;
 import com.ibm.json.java.JSONObject;
@@ -37,11 +43,16 @@ public class ZosmfJobsService extends ZosmfService {
 
 	private static final String JCL_STRUCTURE_PDS = "\"//%s\""; //$NON-NLS-1$
 	private static final String JCL_STRUCTURE_UNIX = "\"%s\""; //$NON-NLS-1$
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
 	
 	public JSONArray getJobFiles(String jobName, String jobId) {
+		return coalesce(ZosmfOperation.LIST_JOB_FILES, () -> readJobFiles(jobName, jobId), jobName, jobId);
+	}
+
+	private JSONArray readJobFiles(String jobName, String jobId) {
 		String requestURL = String.format("restjobs/jobs/%s/%s/files", jobName, jobId); //$NON-NLS-1$
 		Builder request = createRequest(requestURL);
-		Response response = client.sendRequest(request, HttpMethod.GET);
+		Response response = sendRequest(ZosmfOperation.LIST_JOB_FILES, request, HttpMethod.GET);
 
 		if (response.getStatus() == Status.OK.getStatusCode()) {
 			String entity = response.readEntity(String.class);
@@ -55,10 +66,30 @@ public class ZosmfJobsService extends ZosmfService {
 		return null;
 	}
 
+	/**
+	 * @return The number of records z/OSMF reports for a job file, or -1 if it
+	 *         isn't known
+	 */
+	public long getJobFileRecordCount(String jobName, String jobId, String fileId) {
+		JSONArray files = getJobFiles(jobName, jobId);
+		if (files == null) {
+			return -1;
+		}
+		for (Object file : files) {
+			JSONObject fileJSON = (JSONObject) file;
+			Object id = fileJSON.get("id"); //$NON-NLS-1$
+			Object recordCount = fileJSON.get("record-count"); //$NON-NLS-1$
+			if (id != null && id.toString().equals(fileId) && recordCount instanceof Number) {
+				return ((Number) recordCount).longValue();
+			}
+		}
+		return -1;
+	}
+
 	public String getJobFileRecords(String jobName, String jobId, String fileId) {
 		String requestURL = String.format("restjobs/jobs/%s/%s/files/%s/records", jobName, jobId, fileId); //$NON-NLS-1$
 		Builder request = createRequest(requestURL);
-		Response response = client.sendRequest(request, HttpMethod.GET);
+		Response response = sendRequest(ZosmfOperation.GET_SPOOL, request, HttpMethod.GET);
 
 		String records = null;
 		if (response.getStatus() == Status.OK.getStatusCode()) {
@@ -85,10 +116,44 @@ public class ZosmfJobsService extends ZosmfService {
 	private Response getJobJCLRecordsResponse(String jobName, String jobId) {
 		String requestURL = String.format("restjobs/jobs/%s/%s/files/3/records", jobName, jobId); //$NON-NLS-1$
 		Builder request = createRequest(requestURL);
-		return client.sendRequest(request, HttpMethod.GET);
+		return sendRequest(ZosmfOperation.GET_JCL, request, HttpMethod.GET);
 	}
 
+	/**
+	 * List jobs. Each caller gets its own copy of the listing, so it may give
+	 * the jobs more attributes without affecting other callers sharing the
+	 * same read.
+	 */
 	public List<JobNameList> getJobs(String prefix, String owner, JobStatus jobStatus) {
+		return copyJobs(coalesce(ZosmfOperation.LIST_JOBS, () -> readJobs(prefix, owner, jobStatus), prefix, owner, jobStatus));
+	}
+
+	static List<JobNameList> copyJobs(List<JobNameList> jobs) {
+		List<JobNameList> copy = new ArrayList<>(jobs.size());
+		for (JobNameList jobNameList : jobs) {
+			List<Job> jobInstances = new ArrayList<>(jobNameList.getJobInstances().size());
+			for (Job job : jobNameList.getJobInstances()) {
+				jobInstances.add(copyJob(job));
+			}
+			copy.add(new JobNameList(jobNameList.getName(), jobInstances));
+		}
+		return copy;
+	}
+
+	private static Job copyJob(Job job) {
+		return Job.builder().jobId(job.getJobId())
+				.jobName(job.getJobName())
+				.owner(job.getOwner())
+				.type(job.getType())
+				.status(job.getStatus())
+				.returnCode(job.getReturnCode())
+				.subsystem(job.getSubsystem())
+				.executionClass(job.getExecutionClass())
+				.phaseName(job.getPhaseName())
+				.build();
+	}
+
+	private List<JobNameList> readJobs(String prefix, String owner, JobStatus jobStatus) {
 		String requestURL = "restjobs/jobs"; //$NON-NLS-1$
 		String queryPrefix = "*"; //$NON-NLS-1$
 		String queryOwner = "*"; //$NON-NLS-1$
@@ -102,7 +167,7 @@ public class ZosmfJobsService extends ZosmfService {
 
 		Builder request = createRequest(requestURL, "prefix", queryPrefix, "owner", queryOwner); //$NON-NLS-1$ //$NON-NLS-2$
 
-		Response response = client.sendRequest(request, HttpMethod.GET);
+		Response response = sendRequest(ZosmfOperation.LIST_JOBS, request, HttpMethod.GET);
 
 		if (response.getStatus() != Status.OK.getStatusCode()) {
 			String error = String.format(Messages.getString("ZOSMFService.RequestFailed"), queryPrefix, queryOwner); //$NON-NLS-1$
@@ -110,10 +175,24 @@ public class ZosmfJobsService extends ZosmfService {
 			throw new WebApplicationException(errorResponse);
 		}
 
-		String result = response.readEntity(String.class);
-		JSONArray jsonArray = null;
-		try {
-			jsonArray = JSONArray.parse(result);
+		// Parse the listing as it arrives, only building the jobs that are kept
+		Map<String, JobNameList> results = new HashMap<>();
+		try (JsonParser parser = JSON_FACTORY.createParser(readStream(response))) {
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new JsonParseException(parser, "Expected an array of jobs"); //$NON-NLS-1$
+			}
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				Job job = readJob(parser, jobStatus);
+				if (job != null) {
+					String jobName = job.getJobName();
+					JobNameList jobNameList = results.get(jobName);
+					if (jobNameList == null) {
+						jobNameList = new JobNameList(jobName);
+						results.put(jobName, jobNameList);
+					}
+					jobNameList.addJobInstance(job);
+				}
+			}
 		} catch (IOException e) {
 			String error = String.format(Messages.getString("ZOSMFService.BodyFailed"), e.getMessage()); //$NON-NLS-1$
 			log.log(Level.SEVERE, error, e);
@@ -121,27 +200,36 @@ public class ZosmfJobsService extends ZosmfService {
 			throw new WebApplicationException(errorResponse);
 		}
 		
-		Map<String, JobNameList> results = new HashMap<>();
-		for (int i = 0; i < jsonArray.size(); i++) {
-			JSONObject json = (JSONObject) jsonArray.get(i);
-			Job job = getJobFromJSONObject(json);
-			if (jobStatus.matches(job.getStatus())) {
-				String jobName = job.getJobName();
-				JobNameList jobNameList = results.get(jobName);
-				if (jobNameList == null) {
-					jobNameList = new JobNameList(jobName);
-					results.put(jobName, jobNameList);
-				}
-				jobNameList.addJobInstance(job);
-			}
-		}
-		
 		List<JobNameList> resultList = new ArrayList<>();
 		resultList.addAll(results.values());
 		return resultList;
 	}
 
+	/**
+	 * Read the fields of one job from a listing, leaving the parser on the end
+	 * of the job object.
+	 * 
+	 * @return The job, or null if its status doesn't match
+	 */
+	private static Job readJob(JsonParser parser, JobStatus jobStatus) throws IOException {
+		JSONObject fields = new JSONObject();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			if (parser.nextToken().isScalarValue()) {
+				fields.put(field, parser.getValueAsString());
+			} else {
+				parser.skipChildren();
+			}
+		}
+		Job job = getJobFromJSONObject(fields);
+		return jobStatus.matches(job.getStatus()) ? job : null;
+	}
+
 	public JSONArray getJobIds(String jobName, String owner) {
+		return coalesce(ZosmfOperation.LIST_JOBS, () -> readJobIds(jobName, owner), jobName, owner);
+	}
+
+	private JSONArray readJobIds(String jobName, String owner) {
 		JSONArray jobs = null;
 		String requestURL = "restjobs/jobs"; //$NON-NLS-1$
 		String queryOwner = "*"; //$NON-NLS-1$
@@ -153,7 +241,7 @@ public class ZosmfJobsService extends ZosmfService {
 		if (jobName != null) {
 			Builder request = createRequest(requestURL, "prefix", jobName, "owner", queryOwner); //$NON-NLS-1$ //$NON-NLS-2$
 
-			Response response = client.sendRequest(request, HttpMethod.GET);
+			Response response = sendRequest(ZosmfOperation.LIST_JOBS, request, HttpMethod.GET);
 
 			if (response.getStatus() != Status.OK.getStatusCode()) {
 				String error = String.format(Messages.getString("ZOSMFService.JobIdsFailed"), jobName, queryOwner); //$NON-NLS-1$
@@ -181,6 +269,18 @@ public class ZosmfJobsService extends ZosmfService {
 	}
 
 	public String getJobFileRecordsByRange(String jobName, String jobId, String fileId, String start, String end) {
+		return getJobFileRecordsResponse(jobName, jobId, fileId, start, end).readEntity(String.class);
+	}
+
+	/**
+	 * Get the records of a job file as a stream, so that large files can be
+	 * passed on without holding them in memory. The caller must close it.
+	 */
+	public InputStream getJobFileRecordsStreamByRange(String jobName, String jobId, String fileId, String start, String end) {
+		return readStream(getJobFileRecordsResponse(jobName, jobId, fileId, start, end));
+	}
+
+	private Response getJobFileRecordsResponse(String jobName, String jobId, String fileId, String start, String end) {
 		String requestURL = String.format("restjobs/jobs/%s/%s/files/%s/records", jobName, jobId, fileId); //$NON-NLS-1$
 
 		Builder request = createRequest(requestURL);
@@ -188,18 +288,15 @@ public class ZosmfJobsService extends ZosmfService {
 		if (start != null && end != null) {
 			request = request.header("X-IBM-Record-Range", start + "-" + end); //$NON-NLS-1$ //$NON-NLS-2$
 		}
-		Response response = client.sendRequest(request, HttpMethod.GET);
+		Response response = sendRequest(ZosmfOperation.GET_SPOOL, request, HttpMethod.GET);
 
-		String records = null;
-		if (response.getStatus() == Status.OK.getStatusCode()) {
-			records = response.readEntity(String.class);
-		} else {
+		if (response.getStatus() != Status.OK.getStatusCode()) {
 			String error = String.format(Messages.getString("ZOSMFService.JobContetntRequestFailed"), jobName, jobId, fileId); //$NON-NLS-1$
 			Response errorResponse = Response.status(response.getStatus()).entity(error).type(MediaType.TEXT_PLAIN).build();
 			throw new WebApplicationException(errorResponse);
 		}
 
-		return records;
+		return response;
 	}
 
 	public JobStatus getJobStatus(String jobName, String jobId) {
@@ -223,7 +320,7 @@ public class ZosmfJobsService extends ZosmfService {
 
 		request = request.header("X-IBM-Data-Type", "text"); //$NON-NLS-1$ //$NON-NLS-2$
 		request = request.header("Content-Type", "text/plain"); //$NON-NLS-1$ //$NON-NLS-2$
-		Response response = client.putRequestWithContent(request, jsonContent, MediaType.APPLICATION_JSON_TYPE);
+		Response response = putRequestWithContent(ZosmfOperation.SUBMIT_JOB, request, jsonContent, MediaType.APPLICATION_JSON_TYPE);
 
 		if (response.getStatus() != Status.CREATED.getStatusCode()) {
 			String error = String.format(Messages.getString("ZOSMFService.SubmitFailed"), dsn); //$NON-NLS-1$
@@ -245,7 +342,7 @@ public class ZosmfJobsService extends ZosmfService {
 		String requestURL = String.format("restjobs/jobs/%s/%s", jobName, jobId); //$NON-NLS-1$
 		Builder request = createRequest(requestURL);
 
-		Response response = client.sendRequest(request, HttpMethod.DELETE);
+		Response response = sendRequest(ZosmfOperation.PURGE_JOB, request, HttpMethod.DELETE);
 
 		if (response.getStatus() != Status.ACCEPTED.getStatusCode()) {
 			String error = String.format(Messages.getString("ZOSMFService.PurgeFailed"), jobName, jobId); //$NON-NLS-1$
@@ -257,29 +354,30 @@ public class ZosmfJobsService extends ZosmfService {
 	}
 
 	public String getJobSubsystem(String jobName, String jobId) {
-		String subsys = null;
+		return lookupJobSubsystem(jobName, jobId).getJobAttribute();
+	}
+
+	public SubsystemResult lookupJobSubsystem(String jobName, String jobId) {
 		if (jobId.startsWith("TSU")) { //$NON-NLS-1$
-			subsys = "TSO"; //$NON-NLS-1$
-		} else {
-			Response response = getJobJCLRecordsResponse(jobName, jobId);
-			if (response.getStatus() == Status.OK.getStatusCode()) {
-				String records = response.readEntity(String.class);
-				if (records != null) {
-					subsys = JobUtilities.findJobSubsystem(jobId, records);
-				}
-			} else if (response.getStatus() == Status.INTERNAL_SERVER_ERROR.getStatusCode()) {
-				log.info("Internal server error: Not Authorised response getJobJCLRecords " + response.getStatus()); //$NON-NLS-1$
-				subsys = ""; //$NON-NLS-1$
-			}
+			return SubsystemResult.of("TSO"); //$NON-NLS-1$
 		}
-
-		return subsys;
+		Response response = getJobJCLRecordsResponse(jobName, jobId);
+		if (response.getStatus() == Status.OK.getStatusCode()) {
+			String records = response.readEntity(String.class);
+			return SubsystemResult.of(records != null ? JobUtilities.findJobSubsystem(jobId, records) : null);
+		} else if (response.getStatus() == Status.INTERNAL_SERVER_ERROR.getStatusCode()) {
+			log.info("Internal server error: Not Authorised response getJobJCLRecords " + response.getStatus()); //$NON-NLS-1$
+			return SubsystemResult.of(Outcome.NOT_AUTHORIZED);
+		} else if (response.getStatus() == Status.NOT_FOUND.getStatusCode()) {
+			return SubsystemResult.of(Outcome.NOT_FOUND);
+		}
+		return SubsystemResult.of(Outcome.FAILED);
 	}
 
 	public Job getJob(String jobName, String jobId) throws JobNotFoundException {
 		String requestURL = String.format("restjobs/jobs/%s/%s", jobName, jobId); //$NON-NLS-1$
 		Builder request = createRequest(requestURL);
-		Response response = client.sendRequest(request, HttpMethod.GET);
+		Response response = sendRequest(ZosmfOperation.GET_JOB, request, HttpMethod.GET);
 
 		if (response.getStatus() != Status.OK.getStatusCode()) {
 			JobNotFoundException exception = new JobNotFoundException(jobName, jobId, response.getStatus());
@@ -0,0 +1,115 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.context.ApplicationScoped;
+import javax.ws.rs.core.Response;
+
+/**
+ * Latency, response status and byte counts of the requests made to z/OSMF,
+ * kept per logical operation so that slowness can be pinned on z/OSMF or on
+ * Atlas itself.
+ */
+@Singleton
+@ApplicationScoped
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ZosmfMetrics {
+
+	private final Map<ZosmfOperation, OperationMetrics> operations;
+
+	public ZosmfMetrics() {
+		operations = new EnumMap<>(ZosmfOperation.class);
+		for (ZosmfOperation operation : ZosmfOperation.values()) {
+			operations.put(operation, new OperationMetrics());
+		}
+	}
+
+	/**
+	 * Record a request that z/OSMF answered
+	 *
+	 * @param requestBytes
+	 *            Size of the request body, or -1 if unknown
+	 */
+	public void recordResponse(ZosmfOperation operation, long startNanos, Response response, long requestBytes) {
+		OperationMetrics metrics = operations.get(operation);
+		metrics.latency.recordMicros(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+		if (response != null) {
+			metrics.statuses.computeIfAbsent(response.getStatus(), status -> new LongAdder()).increment();
+			int length = response.getLength();
+			if (length > 0) {
+				metrics.responseBytes.add(length);
+			}
+		}
+		if (requestBytes > 0) {
+			metrics.requestBytes.add(requestBytes);
+		}
+	}
+
+	/**
+	 * Record a request that failed without a response from z/OSMF
+	 */
+	public void recordFailure(ZosmfOperation operation, long startNanos) {
+		OperationMetrics metrics = operations.get(operation);
+		metrics.latency.recordMicros(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+		metrics.failures.increment();
+	}
+
+	public LatencyHistogram getLatency(ZosmfOperation operation) {
+		return operations.get(operation).latency;
+	}
+
+	/**
+	 * @return Number of responses per status code
+	 */
+	public Map<Integer, Long> getStatusCounts(ZosmfOperation operation) {
+		Map<Integer, Long> counts = new TreeMap<>();
+		for (Map.Entry<Integer, LongAdder> status : operations.get(operation).statuses.entrySet()) {
+			counts.put(status.getKey(), status.getValue().sum());
+		}
+		return counts;
+	}
+
+	public long getFailureCount(ZosmfOperation operation) {
+		return operations.get(operation).failures.sum();
+	}
+
+	/**
+	 * @return Bytes received in responses that gave their length
+	 */
+	public long getResponseBytes(ZosmfOperation operation) {
+		return operations.get(operation).responseBytes.sum();
+	}
+
+	/**
+	 * @return Bytes sent in request bodies of known size
+	 */
+	public long getRequestBytes(ZosmfOperation operation) {
+		return operations.get(operation).requestBytes.sum();
+	}
+
+	private static final class OperationMetrics {
+		final LatencyHistogram latency = new LatencyHistogram();
+		final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+		final LongAdder failures = new LongAdder();
+		final LongAdder responseBytes = new LongAdder();
+		final LongAdder requestBytes = new LongAdder();
+	}
+}
@@ -0,0 +1,60 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+/**
+ * The logical operations Atlas asks z/OSMF to do, used to tag request
+ * metrics.
+ */
+public enum ZosmfOperation {
+	LIST_JOBS("listJobs", ZosmfServiceFamily.JOBS), //$NON-NLS-1$
+	GET_JOB("getJob", ZosmfServiceFamily.JOBS), //$NON-NLS-1$
+	LIST_JOB_FILES("listJobFiles", ZosmfServiceFamily.JOBS), //$NON-NLS-1$
+	GET_SPOOL("getSpool", ZosmfServiceFamily.JOBS), //$NON-NLS-1$
+	GET_JCL("getJcl", ZosmfServiceFamily.JOBS), //$NON-NLS-1$
+	SUBMIT_JOB("submitJob", ZosmfServiceFamily.JOBS), //$NON-NLS-1$
+	PURGE_JOB("purgeJob", ZosmfServiceFamily.JOBS), //$NON-NLS-1$
+	LIST_DATASETS("listDatasets", ZosmfServiceFamily.DATASETS), //$NON-NLS-1$
+	LIST_MEMBERS("listMembers", ZosmfServiceFamily.DATASETS), //$NON-NLS-1$
+	GET_ATTRIBUTES("getAttributes", ZosmfServiceFamily.DATASETS), //$NON-NLS-1$
+	GET_CONTENT("getContent", ZosmfServiceFamily.DATASETS), //$NON-NLS-1$
+	PUT_CONTENT("putContent", ZosmfServiceFamily.DATASETS), //$NON-NLS-1$
+	CREATE_DATASET("createDataset", ZosmfServiceFamily.DATASETS), //$NON-NLS-1$
+	DELETE_DATASET("deleteDataset", ZosmfServiceFamily.DATASETS), //$NON-NLS-1$
+	GET_FILE_ATTRIBUTES("getFileAttributes", ZosmfServiceFamily.FILES), //$NON-NLS-1$
+	GET_FILE("getFile", ZosmfServiceFamily.FILES), //$NON-NLS-1$
+	PUT_FILE("putFile", ZosmfServiceFamily.FILES), //$NON-NLS-1$
+	CREATE_FILE("createFile", ZosmfServiceFamily.FILES), //$NON-NLS-1$
+	DELETE_FILE("deleteFile", ZosmfServiceFamily.FILES), //$NON-NLS-1$
+	CHTAG("chtag", ZosmfServiceFamily.FILES); //$NON-NLS-1$
+
+	private final String label;
+	private final ZosmfServiceFamily family;
+
+	ZosmfOperation(String label, ZosmfServiceFamily family) {
+		this.label = label;
+		this.family = family;
+	}
+
+	/**
+	 * @return The name of the operation as it appears in metrics
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * @return The z/OSMF service that does the operation
+	 */
+	public ZosmfServiceFamily getFamily() {
+		return family;
+	}
+}
@@ -0,0 +1,208 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.context.ApplicationScoped;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import com.ibm.atlas.webservice.Messages;
+import com.ibm.atlas.webservice.utilities.ConfigurationUtilities;
+
+/**
+ * Limits the number of requests to z/OSMF in flight on each route, one route
+ * per port. A request holds a permit until z/OSMF answers it, and a response
+ * whose entity is streamed holds one until the stream is closed. Further
+ * requests wait for a permit, and fail with 503 if none becomes free in time.
+ * <p>
+ * This only limits concurrency. Connections themselves are opened, kept alive
+ * and reused, or not, by the HTTP client underneath.
+ */
+@Singleton
+@ApplicationScoped
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ZosmfRequestLimiter {
+
+	static final int DEFAULT_MAXIMUM_PER_ROUTE = 20;
+	static final long DEFAULT_PERMIT_TIMEOUT_MILLIS = 30000;
+
+	private final int maximumPerRoute;
+	private final long permitTimeoutMillis;
+	private final Map<Integer, Route> routes;
+
+	public ZosmfRequestLimiter() {
+		this(ConfigurationUtilities.getInteger("zosmfMaximumRequestsPerRoute", DEFAULT_MAXIMUM_PER_ROUTE), //$NON-NLS-1$
+				ConfigurationUtilities.getLong("zosmfRequestPermitTimeoutMillis", DEFAULT_PERMIT_TIMEOUT_MILLIS)); //$NON-NLS-1$
+	}
+
+	ZosmfRequestLimiter(int maximumPerRoute, long permitTimeoutMillis) {
+		this.maximumPerRoute = Math.max(maximumPerRoute, 1);
+		this.permitTimeoutMillis = Math.max(permitTimeoutMillis, 0);
+		routes = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Send a request once a permit on the route is free
+	 *
+	 * @throws RequestLimitReachedException
+	 *             with 503 if no permit became free in time
+	 */
+	public <E extends Exception> Response execute(int port, ZosmfCall<E> call) throws E {
+		Route route = getRoute(port);
+		acquire(route);
+		try {
+			return call.call();
+		} finally {
+			route.permits.release();
+		}
+	}
+
+	/**
+	 * Hold a permit on the route while the entity of a response is streamed,
+	 * as the request isn't finished until the stream is closed
+	 *
+	 * @return The stream, which gives the permit back when it is closed
+	 * @throws RequestLimitReachedException
+	 *             with 503 if no permit became free in time, having closed the
+	 *             stream
+	 */
+	public InputStream hold(int port, InputStream entity) {
+		Route route = getRoute(port);
+		try {
+			acquire(route);
+		} catch (RequestLimitReachedException e) {
+			try {
+				entity.close();
+			} catch (IOException closeException) {
+				e.addSuppressed(closeException);
+			}
+			throw e;
+		}
+		AtomicBoolean released = new AtomicBoolean();
+		return new FilterInputStream(entity) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					if (released.compareAndSet(false, true)) {
+						route.permits.release();
+					}
+				}
+			}
+		};
+	}
+
+	private void acquire(Route route) {
+		route.waiting.incrementAndGet();
+		boolean acquired;
+		try {
+			acquired = route.permits.tryAcquire(permitTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			acquired = false;
+		} finally {
+			route.waiting.decrementAndGet();
+		}
+		if (!acquired) {
+			String error = String.format(Messages.getString("ZOSMFService.RequestLimitReached"), permitTimeoutMillis); //$NON-NLS-1$
+			Response errorResponse = Response.status(Status.SERVICE_UNAVAILABLE).entity(error).type(MediaType.TEXT_PLAIN).build();
+			throw new RequestLimitReachedException(errorResponse);
+		}
+	}
+
+	public int getMaximumPerRoute() {
+		return maximumPerRoute;
+	}
+
+	/**
+	 * @return Number of requests in flight across all routes
+	 */
+	public int getInFlight() {
+		int inFlight = 0;
+		for (Route route : routes.values()) {
+			inFlight += maximumPerRoute - route.permits.availablePermits();
+		}
+		return inFlight;
+	}
+
+	/**
+	 * @return Number of requests waiting for a permit across all routes
+	 */
+	public int getWaiting() {
+		int waiting = 0;
+		for (Route route : routes.values()) {
+			waiting += route.waiting.get();
+		}
+		return waiting;
+	}
+
+	/**
+	 * @return Number of permits free across all routes
+	 */
+	public int getAvailable() {
+		int available = 0;
+		for (Route route : routes.values()) {
+			available += route.permits.availablePermits();
+		}
+		return available;
+	}
+
+	private Route getRoute(int port) {
+		return routes.computeIfAbsent(port, key -> new Route(maximumPerRoute));
+	}
+
+	/**
+	 * A request to z/OSMF, sent while holding a permit
+	 */
+	@FunctionalInterface
+	public interface ZosmfCall<E extends Exception> {
+		Response call() throws E;
+	}
+
+	/**
+	 * A request turned away without being sent because no permit became free,
+	 * which says nothing about the health of z/OSMF
+	 */
+	public static class RequestLimitReachedException extends WebApplicationException {
+
+		private static final long serialVersionUID = 6182049532184126723L;
+
+		public RequestLimitReachedException(Response response) {
+			super(response);
+		}
+	}
+
+	private static final class Route {
+		final Semaphore permits;
+		final AtomicInteger waiting;
+
+		Route(int maximum) {
+			permits = new Semaphore(maximum, true);
+			waiting = new AtomicInteger();
+		}
+	}
+}
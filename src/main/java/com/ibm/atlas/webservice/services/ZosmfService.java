@@ -11,6 +11,12 @@
 package com.ibm.atlas.webservice.services;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,8 +30,10 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.ibm.atlas.utilities.client.HTTPClient;
 import com.ibm.atlas.webservice.Messages;
+import com.ibm.atlas.webservice.services.ZosmfRequestLimiter.ZosmfCall;
 
 public abstract class ZosmfService {
 
@@ -40,6 +48,24 @@ public abstract class ZosmfService {
 	@Inject
 	Logger log;
 
+	@Inject
+	ZosmfRequestLimiter requestLimiter;
+
+	@Inject
+	ZosmfMetrics metrics;
+
+	@Inject
+	ZosmfBulkheads bulkheads;
+
+	@Inject
+	RequestCoalescer coalescer;
+
+	@Inject
+	Principal principal;
+
+	@Inject
+	ZosmfAsyncExecutor asyncExecutor;
+
 	/**
 	 * Read the z/OSMF HTTPS Port number from the z/OSMF configuration.
 	 * 
@@ -70,6 +96,103 @@ public abstract class ZosmfService {
 			.header("X-IBM-Response-Timeout", "600");
 	}
 	
+	/**
+	 * Make a call to z/OSMF on the managed executor, so the calling request
+	 * thread can be released while z/OSMF works. The executor carries the
+	 * caller's security context over to the call.
+	 * 
+	 * @return A stage that completes with the result of the call, or
+	 *         exceptionally with what it threw
+	 * @see ZosmfAsyncExecutor
+	 */
+	public <T> CompletionStage<T> supplyAsync(Callable<T> call) {
+		return asyncExecutor.supplyAsync(call);
+	}
+
+	/**
+	 * @return How long a request suspended for a call to z/OSMF waits for it,
+	 *         or 0 to wait as long as it takes
+	 */
+	public long getAsyncTimeoutMillis() {
+		return asyncExecutor.getTimeoutMillis();
+	}
+
+	/**
+	 * Make an idempotent read, sharing one request to z/OSMF and its parsed
+	 * result with identical reads by the same user that are in flight at the
+	 * same time. Callers must not change the result; reads whose results are
+	 * changed by their callers must copy it for each caller.
+	 * 
+	 * @param arguments
+	 *            Everything the read depends on besides the operation and user
+	 */
+	protected <T> T coalesce(ZosmfOperation operation, Supplier<T> read, Object... arguments) {
+		return coalescer.execute(operation, getUserName(), read, arguments);
+	}
+
+	/**
+	 * @return The name of the user the request is made for, or an empty
+	 *         string if there is none
+	 */
+	protected String getUserName() {
+		String name = principal != null ? principal.getName() : null;
+		return name != null ? name : ""; //$NON-NLS-1$
+	}
+
+	protected Response sendRequest(ZosmfOperation operation, Builder request, String method) {
+		return send(operation, null, () -> client.sendRequest(request, method));
+	}
+
+	protected Response putRequestWithContent(ZosmfOperation operation, Builder request, Object content, MediaType mediaType) {
+		return send(operation, content, () -> client.putRequestWithContent(request, content, mediaType));
+	}
+
+	protected Response postRequestWithContent(ZosmfOperation operation, Builder request, String content, MediaType mediaType) {
+		return send(operation, content, () -> client.postRequestWithContent(request, content, mediaType));
+	}
+
+	protected Response postRequestWithContent(ZosmfOperation operation, Builder request, Object content, MediaType mediaType) throws JsonProcessingException {
+		return send(operation, content, () -> client.postRequestWithContent(request, content, mediaType));
+	}
+
+	/**
+	 * Send a request through the bulkhead of its z/OSMF service and then the
+	 * request limit of the route, so a hung service can only tie up its own
+	 * share of the requests in flight
+	 */
+	private <E extends Exception> Response send(ZosmfOperation operation, Object content, ZosmfCall<E> call) throws E {
+		return bulkheads.execute(operation.getFamily(), () -> requestLimiter.execute(httpsPort, () -> measure(operation, content, call)));
+	}
+
+	/**
+	 * Time a request to z/OSMF once it holds a permit, so that waiting for
+	 * one isn't counted as z/OSMF latency
+	 */
+	private <E extends Exception> Response measure(ZosmfOperation operation, Object content, ZosmfCall<E> call) throws E {
+		long start = System.nanoTime();
+		boolean answered = false;
+		Response response;
+		try {
+			response = call.call();
+			answered = true;
+		} finally {
+			if (!answered) {
+				metrics.recordFailure(operation, start);
+			}
+		}
+		long requestBytes = content instanceof String ? ((String) content).getBytes(StandardCharsets.UTF_8).length : -1;
+		metrics.recordResponse(operation, start, response, requestBytes);
+		return response;
+	}
+
+	/**
+	 * Read the entity of a response from z/OSMF as a stream, which holds a
+	 * permit on the route until the caller closes it
+	 */
+	protected InputStream readStream(Response response) {
+		return requestLimiter.hold(httpsPort, response.readEntity(InputStream.class));
+	}
+
 	protected WebApplicationException createJSONParseException(IOException exception) {
 		String error = String.format(RESPONSE_PARSE_ERROR, exception.getMessage()); //$NON-NLS-1$
 		log.log(Level.SEVERE, exception.getMessage(), exception);
@@ -0,0 +1,34 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+package com.ibm.atlas.webservice.services;
+
+/**
+ * The z/OSMF REST services Atlas calls, each isolated from the others so that
+ * one hanging doesn't take the rest down with it.
+ */
+public enum ZosmfServiceFamily {
+	JOBS("restjobs"), //$NON-NLS-1$
+	DATASETS("restfiles/ds"), //$NON-NLS-1$
+	FILES("restfiles/fs"); //$NON-NLS-1$
+
+	private final String label;
+
+	ZosmfServiceFamily(String label) {
+		this.label = label;
+	}
+
+	/**
+	 * @return The name of the z/OSMF service as it appears in messages and
+	 *         metrics
+	 */
+	public String getLabel() {
+		return label;
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.utilities;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import com.ibm.atlas.webservice.Messages;
+import com.ibm.atlas.webservice.exceptions.AtlasException;
+
+/**
+ * Complete suspended requests from work done off the request thread.
+ */
+public class AsyncUtilities {
+
+	/**
+	 * Resume a suspended request with the result of a stage when it completes,
+	 * or with the failure that ended it
+	 * 
+	 * @param timeoutMillis
+	 *            How long to wait before resuming the request with 503, or 0
+	 *            to wait as long as it takes
+	 */
+	public static <T> void resume(AsyncResponse asyncResponse, CompletionStage<T> stage, long timeoutMillis) {
+		if (timeoutMillis > 0) {
+			asyncResponse.setTimeoutHandler(timedOut -> {
+				String error = String.format(Messages.getString("Async.Timeout"), timeoutMillis); //$NON-NLS-1$
+				timedOut.resume(new WebApplicationException(Response.status(Status.SERVICE_UNAVAILABLE).entity(error).type(MediaType.TEXT_PLAIN).build()));
+			});
+			asyncResponse.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+		stage.whenComplete((result, failure) -> {
+			if (failure == null) {
+				if (!asyncResponse.resume(result)) {
+					// Already resumed, so nothing will write the result and release what it holds
+					discard(result);
+				}
+			} else {
+				asyncResponse.resume(unwrap(failure));
+			}
+		});
+	}
+
+	/**
+	 * Close a result that will never be sent, such as one that arrives after
+	 * its request has timed out. Streamed results hold a z/OSMF request
+	 * permit until their stream is closed.
+	 */
+	static void discard(Object result) {
+		Object entity = result instanceof Response ? ((Response) result).getEntity() : result;
+		if (entity instanceof Closeable) {
+			try {
+				((Closeable) entity).close();
+			} catch (IOException e) {
+				// Nothing more can be done with it
+			}
+		}
+	}
+
+	/**
+	 * @return The exception that caused a stage to fail, as the resource would
+	 *         have thrown it had it run on the request thread
+	 */
+	public static Throwable unwrap(Throwable failure) {
+		Throwable cause = failure;
+		while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		if (cause instanceof AtlasException) {
+			return ((AtlasException) cause).createWebApplicationException();
+		}
+		return cause;
+	}
+}
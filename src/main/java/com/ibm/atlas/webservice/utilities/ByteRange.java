@@ -0,0 +1,98 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+package com.ibm.atlas.webservice.utilities;
+
+/**
+ * A single range of bytes asked for with an HTTP Range header. Headers that
+ * ask for several ranges, or that can't be parsed, are ignored so that the
+ * whole content is sent, as RFC 7233 allows. So are all ranges of content of
+ * unknown length, which can't be checked against it.
+ */
+public class ByteRange {
+
+	private static final String BYTES_UNIT = "bytes="; //$NON-NLS-1$
+
+	private final long first;
+	private final long last;
+
+	ByteRange(long first, long last) {
+		this.first = first;
+		this.last = last;
+	}
+
+	/**
+	 * @param header
+	 *            Value of the Range header, or null
+	 * @param length
+	 *            Length of the content, or -1 if unknown
+	 * @return The range to send, or null to send all of the content
+	 */
+	public static ByteRange parse(String header, long length) {
+		if (header == null || length < 0 || !header.startsWith(BYTES_UNIT) || header.indexOf(',') >= 0) {
+			return null;
+		}
+		String spec = header.substring(BYTES_UNIT.length()).trim();
+		int dash = spec.indexOf('-');
+		if (dash < 0) {
+			return null;
+		}
+		try {
+			String firstPart = spec.substring(0, dash).trim();
+			String lastPart = spec.substring(dash + 1).trim();
+			if (firstPart.isEmpty()) {
+				long suffix = Long.parseLong(lastPart);
+				if (suffix <= 0) {
+					return null;
+				}
+				return new ByteRange(Math.max(0, length - suffix), length - 1);
+			}
+			long first = Long.parseLong(firstPart);
+			if (lastPart.isEmpty()) {
+				return new ByteRange(first, length - 1);
+			}
+			long last = Long.parseLong(lastPart);
+			if (first < 0 || last < first) {
+				return null;
+			}
+			return new ByteRange(first, Math.min(last, length - 1));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	public long getFirst() {
+		return first;
+	}
+
+	public long getLast() {
+		return last;
+	}
+
+	/**
+	 * @return Number of bytes in the range
+	 */
+	public long getLength() {
+		return last - first + 1;
+	}
+
+	/**
+	 * @return Whether any of the range lies within the content
+	 */
+	public boolean isSatisfiable(long length) {
+		return first < length;
+	}
+
+	/**
+	 * @return The value of the Content-Range header for the range
+	 */
+	public String toContentRange(long length) {
+		return "bytes " + first + "-" + last + "/" + length; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.utilities;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+/**
+ * Look up optional tuning values bound in JNDI, for example with a
+ * &lt;jndiEntry&gt; in the Liberty server.xml. Missing entries are expected and
+ * resolve to the supplied default.
+ */
+public class ConfigurationUtilities {
+	private static final Logger log = Logger.getLogger(ConfigurationUtilities.class.getName());
+
+	/**
+	 * Look up a numeric setting
+	 *
+	 * @param name
+	 *            The JNDI name of the setting
+	 * @param defaultValue
+	 *            The value to use if the setting is not bound or not numeric
+	 * @return The configured value, or the default
+	 */
+	public static long getLong(String name, long defaultValue) {
+		Object value = lookup(name);
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		if (value instanceof String) {
+			try {
+				return Long.parseLong(((String) value).trim());
+			} catch (NumberFormatException e) {
+				log.warning(String.format("Setting '%s' is not numeric, using default value of %d", name, defaultValue)); //$NON-NLS-1$
+			}
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Look up a numeric setting
+	 *
+	 * @param name
+	 *            The JNDI name of the setting
+	 * @param defaultValue
+	 *            The value to use if the setting is not bound or not numeric
+	 * @return The configured value, or the default
+	 */
+	public static int getInteger(String name, int defaultValue) {
+		return (int) getLong(name, defaultValue);
+	}
+
+	/**
+	 * Look up a string setting
+	 *
+	 * @param name
+	 *            The JNDI name of the setting
+	 * @param defaultValue
+	 *            The value to use if the setting is not bound
+	 * @return The configured value, or the default
+	 */
+	public static String getString(String name, String defaultValue) {
+		Object value = lookup(name);
+		return value != null ? value.toString() : defaultValue;
+	}
+
+	private static Object lookup(String name) {
+		try {
+			return new InitialContext().lookup(name);
+		} catch (NamingException e) {
+			log.log(Level.FINE, String.format("Setting '%s' not found, using default", name)); //$NON-NLS-1$
+		}
+		return null;
+	}
+}
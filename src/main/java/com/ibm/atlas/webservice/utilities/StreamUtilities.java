@@ -0,0 +1,130 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.utilities;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Pass content through to the client without holding it all in memory.
+ */
+public class StreamUtilities {
+
+	static final int BUFFER_SIZE = 16 * 1024;
+
+	/**
+	 * Copy a stream through a fixed size buffer
+	 * 
+	 * @return Number of bytes copied
+	 */
+	public static long copy(InputStream input, OutputStream output) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		long total = 0;
+		int read;
+		while ((read = input.read(buffer)) != -1) {
+			output.write(buffer, 0, read);
+			total += read;
+		}
+		return total;
+	}
+
+	/**
+	 * @return A response entity that copies the stream to the client and then
+	 *         closes it, also closing it if the client goes away part way
+	 */
+	public static StreamingOutput streamingOutput(InputStream input) {
+		return streamingOutput(input, StreamUtilities::copy);
+	}
+
+	/**
+	 * @return A response entity that has the writer pass the stream to the
+	 *         client and then closes it. The entity is also {@link Closeable},
+	 *         so a response that is never written can close the stream.
+	 */
+	public static StreamingOutput streamingOutput(InputStream input, StreamWriter writer) {
+		return new SourceStreamingOutput(input, writer);
+	}
+
+	/**
+	 * Copy part of a stream through a fixed size buffer, skipping what comes
+	 * before it without keeping it
+	 * 
+	 * @param offset
+	 *            Number of bytes to skip
+	 * @param length
+	 *            Most bytes to copy
+	 * @return Number of bytes copied, which is less than the length if the
+	 *         stream ends first
+	 */
+	public static long copy(InputStream input, OutputStream output, long offset, long length) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		long skipped = 0;
+		while (skipped < offset) {
+			long count = input.skip(offset - skipped);
+			if (count <= 0) {
+				if (input.read() == -1) {
+					return 0;
+				}
+				count = 1;
+			}
+			skipped += count;
+		}
+		long total = 0;
+		int read;
+		while (total < length && (read = input.read(buffer, 0, (int) Math.min(buffer.length, length - total))) != -1) {
+			output.write(buffer, 0, read);
+			total += read;
+		}
+		return total;
+	}
+
+	/**
+	 * @return A response entity that copies part of the stream to the client
+	 *         and then closes it
+	 * @see #copy(InputStream, OutputStream, long, long)
+	 */
+	public static StreamingOutput streamingOutput(InputStream input, long offset, long length) {
+		return streamingOutput(input, (source, output) -> copy(source, output, offset, length));
+	}
+
+	/**
+	 * Writes content read from a stream to the client
+	 */
+	public interface StreamWriter {
+		void write(InputStream input, OutputStream output) throws IOException;
+	}
+
+	private static final class SourceStreamingOutput implements StreamingOutput, Closeable {
+		private final InputStream input;
+		private final StreamWriter writer;
+
+		SourceStreamingOutput(InputStream input, StreamWriter writer) {
+			this.input = input;
+			this.writer = writer;
+		}
+
+		@Override
+		public void write(OutputStream output) throws IOException {
+			try (InputStream source = input) {
+				writer.write(source, output);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+	}
+}
@@ -14,8 +14,10 @@ import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
 
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriBuilder;
@@ -23,6 +25,7 @@ import javax.ws.rs.core.UriInfo;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import com.ibm.atlas.AtlasTest;
@@ -140,9 +143,14 @@ public class FilesTest extends AtlasTest {
 	@Test
 	public void testValidGetContentWorks() throws Exception {
 		GetFileContentResponse mockResponse = mock(GetFileContentResponse.class);
-		when(filesResource.zosmfFilesService.getContent(PATH)).thenReturn(mockResponse);
+		when(filesResource.zosmfFilesService.getContentAsync(PATH)).thenReturn(CompletableFuture.completedFuture(mockResponse));
 		
-		Response response = filesResource.getContent(PATH);
+		AsyncResponse asyncResponse = mock(AsyncResponse.class);
+		filesResource.getContent(asyncResponse, PATH);
+
+		ArgumentCaptor<Object> resumed = ArgumentCaptor.forClass(Object.class);
+		verify(asyncResponse).resume(resumed.capture());
+		Response response = (Response) resumed.getValue();
 		assertEquals(mockResponse, response.getEntity());
 		assertEquals(Status.OK.getStatusCode(), response.getStatus());
 	}
@@ -152,8 +160,13 @@ public class FilesTest extends AtlasTest {
 		WebApplicationException expected = new WebApplicationException(Status.CONFLICT);
 		AtlasException atlasException = mock(AtlasException.class);
 		when(atlasException.createWebApplicationException()).thenReturn(expected);
-		doThrow(atlasException).when(filesResource.zosmfFilesService).getContent(PATH);
+		CompletableFuture<GetFileContentResponse> failed = new CompletableFuture<>();
+		failed.completeExceptionally(atlasException);
+		when(filesResource.zosmfFilesService.getContentAsync(PATH)).thenReturn(failed);
 		
-		shouldThrow(expected, () -> filesResource.getContent(PATH));
+		AsyncResponse asyncResponse = mock(AsyncResponse.class);
+		filesResource.getContent(asyncResponse, PATH);
+
+		verify(asyncResponse).resume((Throwable) expected);
 	}
 }
@@ -13,26 +13,37 @@ package com.ibm.atlas.webservice.resource;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Logger;
 
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import com.ibm.atlas.model.jobs.Job;
 import com.ibm.atlas.model.jobs.JobStatus;
 import com.ibm.atlas.webservice.exceptions.JobNotFoundException;
+import com.ibm.atlas.webservice.resource.jobs.JobListPage;
 import com.ibm.atlas.webservice.resource.jobs.ZosmfJobsWithCacheService;
 import com.ibm.atlas.webservice.resource.jobs.entity.JobNameList;
 import com.ibm.atlas.webservice.services.ZosmfJobsService;
@@ -76,6 +87,7 @@ public class JobsTest {
 		this.jobs.zosmfService = Mockito.mock(ZosmfJobsService.class);
 		this.jobs.zosmfWithCacheService = Mockito.mock(ZosmfJobsWithCacheService.class);
 		this.jobs.log = Mockito.mock(Logger.class);
+		Mockito.when(jobs.zosmfService.supplyAsync(Mockito.any())).thenAnswer(invocation -> runNow((Callable<?>) invocation.getArguments()[0]));
 		this.securityContext = Mockito.mock(SecurityContext.class);
 	}
 
@@ -90,28 +102,64 @@ public class JobsTest {
 		List<Job> jobInstances = Arrays.asList(JOB_A, JOB_B);
 		mockList.add(new JobNameList(JOB_NAME, jobInstances));
 		Mockito.when(jobs.zosmfService.getJobs(JOB_NAME, "TESTUSER", JobStatus.ALL)).thenReturn(mockList);
+		Mockito.when(jobs.zosmfWithCacheService.getJobs(JOB_NAME, "TESTUSER", JobStatus.ALL, true)).thenReturn(mockList);
 	}
 
 	@Test
 	public void testGetJobs() {
 		mockZosUtilitiesGetOwnerFilterValue();
 		mockJobSearchFindJobs();
-		List<JobNameList> jobList = jobs.getJobs(securityContext, JOB_NAME, null, null);
+		List<?> jobList = (List<?>) jobs.getJobs(securityContext, JOB_NAME, null, null, true, null, null).getEntity();
 		assertEquals(1, jobList.size());
 	}
 	
+	@Test
+	public void testGetJobsWithSubsystem() {
+		mockZosUtilitiesGetOwnerFilterValue();
+		mockJobSearchFindJobs();
+		jobs.getJobs(securityContext, JOB_NAME, null, null, false, null, null);
+		Mockito.verify(jobs.zosmfWithCacheService).getJobs(JOB_NAME, "TESTUSER", JobStatus.ALL, false);
+	}
+
+	@Test
+	public void testGetJobsPage() {
+		mockZosUtilitiesGetOwnerFilterValue();
+		List<JobNameList> page = Arrays.asList(new JobNameList(JOB_NAME, Arrays.asList(JOB_A, JOB_B)));
+		Mockito.when(jobs.zosmfWithCacheService.getJobs(JOB_NAME, "TESTUSER", JobStatus.ALL, true, "TESTUSER", 1, null))
+			.thenReturn(new JobListPage(page, 3, "SNAPSHOT:1"));
+
+		Response response = jobs.getJobs(securityContext, JOB_NAME, null, null, true, 1, null);
+
+		assertEquals(page, response.getEntity());
+		assertEquals(3, response.getMetadata().getFirst("X-Total-Count"));
+		assertEquals("SNAPSHOT:1", response.getMetadata().getFirst("X-Next-Cursor"));
+	}
+
+	@Test
+	public void testGetJobsLastPage() {
+		mockZosUtilitiesGetOwnerFilterValue();
+		List<JobNameList> page = Arrays.asList(new JobNameList(JOB_NAME, Arrays.asList(JOB_A, JOB_B)));
+		Mockito.when(jobs.zosmfWithCacheService.getJobs(JOB_NAME, "TESTUSER", JobStatus.ALL, true, "TESTUSER", 100, "SNAPSHOT:2"))
+			.thenReturn(new JobListPage(page, 3, null));
+
+		Response response = jobs.getJobs(securityContext, JOB_NAME, null, null, true, null, "SNAPSHOT:2");
+
+		assertEquals(page, response.getEntity());
+		assertNull(response.getMetadata().getFirst("X-Next-Cursor"));
+	}
+
 	@Test
 	public void testGetJobsWildcardPrefix() {
 		mockZosUtilitiesGetOwnerFilterValue();
 		mockJobSearchFindJobs();
-		assertEquals(Collections.emptyList(), jobs.getJobs(securityContext, "*", null, null));
+		assertEquals(Collections.emptyList(), jobs.getJobs(securityContext, "*", null, null, true, null, null).getEntity());
 	}
 
 	@Test
 	public void testGetJobsError() {
 		mockZosUtilitiesGetOwnerFilterValue();
 		mockJobSearchFindJobs();
-		List<JobNameList> jobList = jobs.getJobs(securityContext, "BAD_JOB", null, null);
+		List<?> jobList = (List<?>) jobs.getJobs(securityContext, "BAD_JOB", null, null, true, null, null).getEntity();
 		assertEquals(0, jobList.size());
 	}
 
@@ -142,4 +190,45 @@ public class JobsTest {
 		Mockito.when(jobs.zosmfWithCacheService.getJob(JOB_NAME, "BADID", true)).thenThrow(new JobNotFoundException(JOB_NAME, JOB_ID_A, Status.FORBIDDEN.getStatusCode()));
 		jobs.getJobByNameAndId(JOB_NAME, "BADID");
 	}
+
+	@Test
+	public void testGetJobOutputFileStream() throws Exception {
+		String records = "RECORD 1\nRECORD 2\n";
+		Mockito.when(jobs.zosmfService.getJobFileRecordsStreamByRange(JOB_NAME, JOB_ID_A, "2", null, null))
+			.thenReturn(new ByteArrayInputStream(records.getBytes(StandardCharsets.UTF_8)));
+
+		AsyncResponse asyncResponse = mock(AsyncResponse.class);
+		jobs.getJobOutputFile(asyncResponse, securityContext, JOB_NAME, JOB_ID_A, "2", null, null, true);
+		Response response = (Response) getResumedEntity(asyncResponse);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		((StreamingOutput) response.getEntity()).write(output);
+
+		assertEquals(records, new String(output.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testGetJobOutputFileNotFound() throws Exception {
+		AsyncResponse asyncResponse = mock(AsyncResponse.class);
+		jobs.getJobOutputFile(asyncResponse, securityContext, JOB_NAME, JOB_ID_A, "2", null, null, false);
+
+		ArgumentCaptor<Throwable> failure = ArgumentCaptor.forClass(Throwable.class);
+		verify(asyncResponse).resume(failure.capture());
+		assertEquals(Status.NOT_FOUND.getStatusCode(), ((WebApplicationException) failure.getValue()).getResponse().getStatus());
+	}
+
+	private static Object getResumedEntity(AsyncResponse asyncResponse) {
+		ArgumentCaptor<Object> entity = ArgumentCaptor.forClass(Object.class);
+		verify(asyncResponse).resume(entity.capture());
+		return entity.getValue();
+	}
+
+	private static <T> CompletionStage<T> runNow(Callable<T> call) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		try {
+			result.complete(call.call());
+		} catch (Exception e) {
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
 }
@@ -0,0 +1,123 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+package com.ibm.atlas.webservice.resource.jobs;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.*;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.ibm.atlas.model.jobs.Job;
+import com.ibm.atlas.model.jobs.JobStatus;
+import com.ibm.atlas.webservice.resource.jobs.entity.JobNameList;
+import com.ibm.atlas.webservice.services.AbstractZosmfServiceTest;
+import com.ibm.atlas.webservice.services.JobAttributeCache;
+import com.ibm.atlas.webservice.services.ZosmfJobsService;
+import com.ibm.atlas.webservice.services.ZosmfService;
+
+public class ZosmfJobsWithCacheServiceTest extends AbstractZosmfServiceTest<ZosmfService> {
+
+	private ZosmfJobsWithCacheService service;
+
+	@Before
+	public void setUp() {
+		ZosmfJobsService zosmfService = new ZosmfJobsService();
+		init(zosmfService);
+		service = new ZosmfJobsWithCacheService();
+		service.zosmfService = zosmfService;
+		service.cache = mock(JobAttributeCache.class);
+		// As when the subsystem lookups miss their deadline
+		when(service.cache.getAdditionalAttributes(anyListOf(Job.class))).thenAnswer(invocation -> {
+			@SuppressWarnings("unchecked")
+			List<Job> jobs = (List<Job>) invocation.getArguments()[0];
+			for (Job job : jobs) {
+				job.setSubsystem(null);
+			}
+			return jobs;
+		});
+	}
+
+	@Test
+	public void conciseListingsShouldNotSeeAttributesAddedForASharedRead() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		Response response = mock(Response.class);
+		when(response.getStatus()).thenReturn(Status.OK.getStatusCode());
+		when(response.readEntity(InputStream.class)).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return loadTestFileStream("zosmfJobsResponse.json"); //$NON-NLS-1$
+		});
+		mockRequestResponse("restjobs/jobs", HttpMethod.GET, response, "prefix", "*", "owner", "STEVENH"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+		Object[] results = new Object[2];
+		Thread full = new Thread(() -> results[0] = service.getJobs("*", "STEVENH", JobStatus.ALL, false)); //$NON-NLS-1$ //$NON-NLS-2$
+		Thread concise = new Thread(() -> results[1] = service.getJobs("*", "STEVENH", JobStatus.ALL, true)); //$NON-NLS-1$ //$NON-NLS-2$
+		full.start();
+		waitUntilWaiting(full);
+		concise.start();
+		waitUntilWaiting(concise);
+		release.countDown();
+		full.join(5000);
+		concise.join(5000);
+
+		verify(response, times(1)).readEntity(InputStream.class);
+		assertSubsystems(results[0], null);
+		assertSubsystems(results[1], "JES2"); //$NON-NLS-1$
+	}
+
+	@Test
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void listingShouldTrimTheCacheAgainstEveryJobListed() throws Exception {
+		Response response = mock(Response.class);
+		when(response.getStatus()).thenReturn(Status.OK.getStatusCode());
+		when(response.readEntity(InputStream.class)).thenReturn(loadTestFileStream("zosmfJobsResponse.json")); //$NON-NLS-1$
+		mockRequestResponse("restjobs/jobs", HttpMethod.GET, response, "prefix", "*", "owner", "STEVENH"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+		List<JobNameList> jobs = service.getJobs("*", "STEVENH", JobStatus.ALL, false); //$NON-NLS-1$ //$NON-NLS-2$
+
+		int instances = 0;
+		for (JobNameList jobNameList : jobs) {
+			instances += jobNameList.getJobInstances().size();
+		}
+		ArgumentCaptor<List> listed = ArgumentCaptor.forClass(List.class);
+		verify(service.cache, times(1)).backgroundUpdate(listed.capture());
+		assertTrue(instances > 0);
+		assertEquals(instances, listed.getValue().size());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void assertSubsystems(Object listing, String subsystem) {
+		List<JobNameList> jobs = (List<JobNameList>) listing;
+		assertFalse(jobs.isEmpty());
+		for (JobNameList jobNameList : jobs) {
+			for (Job job : jobNameList.getJobInstances()) {
+				assertEquals(subsystem, job.getSubsystem());
+			}
+		}
+	}
+
+	private static void waitUntilWaiting(Thread thread) throws InterruptedException {
+		for (int i = 0; i < 500 && thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING; i++) {
+			Thread.sleep(10);
+		}
+		assertTrue(thread.getState() == Thread.State.WAITING || thread.getState() == Thread.State.TIMED_WAITING);
+	}
+}
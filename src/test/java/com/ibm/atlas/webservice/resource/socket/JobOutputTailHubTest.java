@@ -0,0 +1,312 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.resource.socket;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.enterprise.concurrent.ContextService;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.websocket.CloseReason;
+import javax.websocket.RemoteEndpoint.Async;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.ibm.atlas.model.jobs.Job;
+import com.ibm.atlas.model.jobs.JobStatus;
+import com.ibm.atlas.webservice.resource.jobs.entity.JobNameList;
+import com.ibm.atlas.webservice.services.ZosmfJobsService;
+
+public class JobOutputTailHubTest {
+
+	private static final String JOB_NAME = "TESTJOB";
+	private static final String JOB_ID = "JOB00001";
+	private static final String FILE_ID = "2";
+
+	private static final long MINIMUM_INTERVAL = 1000;
+	private static final long MAXIMUM_INTERVAL = 8000;
+	private static final long SEND_QUEUE_BYTES = 16;
+	private static final long STATUS_INTERVAL = 5000;
+
+	JobOutputTailHub hub;
+	ScheduledFuture<?> poller;
+	String subscribingUser;
+	String callingUser;
+
+	@Before
+	public void setUp() {
+		hub = new JobOutputTailHub(MINIMUM_INTERVAL, MAXIMUM_INTERVAL, SEND_QUEUE_BYTES, STATUS_INTERVAL);
+		hub.log = mock(Logger.class);
+		hub.zosmfService = mock(ZosmfJobsService.class);
+		hub.scheduler = mock(ManagedScheduledExecutorService.class);
+		poller = mock(ScheduledFuture.class);
+		doReturn(poller).when(hub.scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+		// Each subscriber's identity records who z/OSMF is called as
+		hub.contextService = mock(ContextService.class);
+		when(hub.contextService.createContextualProxy(any(), eq(Executor.class))).thenAnswer(invocation -> {
+			String user = subscribingUser;
+			return (Executor) command -> {
+				callingUser = user;
+				try {
+					command.run();
+				} finally {
+					callingUser = null;
+				}
+			};
+		});
+	}
+
+	@Test
+	public void oneFilePollerShouldBeSharedBySubscribers() {
+		hub.subscribe(createSession(), JOB_NAME, JOB_ID, FILE_ID, 0, null);
+		hub.subscribe(createSession(), JOB_NAME, JOB_ID, FILE_ID, 0, null);
+		hub.subscribe(createSession(), JOB_NAME, JOB_ID, "3", 0, null);
+
+		assertEquals(2, hub.getTailCount());
+		verify(hub.scheduler, times(2)).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+	}
+
+	@Test
+	public void pollShouldSendEachSubscriberTheRecordsItHasNotSeen() throws Exception {
+		Session behind = createSession();
+		Session current = createSession();
+		hub.subscribe(behind, JOB_NAME, JOB_ID, FILE_ID, 2, null);
+		hub.subscribe(current, JOB_NAME, JOB_ID, FILE_ID, 3, null);
+		when(hub.zosmfService.getJobFileRecordsByRange(JOB_NAME, JOB_ID, FILE_ID, "2", "0")).thenReturn("R2\nR3\nR4\n");
+
+		pollNow();
+
+		verify(behind.getAsyncRemote()).sendText(eq("R2\nR3\nR4\n"), any(SendHandler.class));
+		verify(current.getAsyncRemote()).sendText(eq("R3\nR4\n"), any(SendHandler.class));
+		verify(behind, never()).close(any(CloseReason.class));
+	}
+
+	@Test
+	public void statusRefreshShouldListEachJobNameOnce() {
+		hub.subscribe(createSession(), JOB_NAME, JOB_ID, FILE_ID, 0, null);
+		hub.subscribe(createSession(), JOB_NAME, JOB_ID, "3", 0, null);
+		hub.subscribe(createSession(), JOB_NAME, "JOB00002", FILE_ID, 0, null);
+		when(hub.zosmfService.getJobs(JOB_NAME, "*", JobStatus.ALL)).thenReturn(createListing(JOB_NAME, //$NON-NLS-1$
+				createJob(JOB_ID, JobStatus.ACTIVE), createJob("JOB00002", JobStatus.ACTIVE))); //$NON-NLS-1$
+
+		hub.refreshStatuses();
+
+		verify(hub.zosmfService, times(1)).getJobs(JOB_NAME, "*", JobStatus.ALL); //$NON-NLS-1$
+		verify(hub.zosmfService, never()).getJobStatus(anyString(), anyString());
+		assertEquals(JobStatus.ACTIVE, hub.getJobStatus(JOB_NAME, JOB_ID));
+		assertEquals(1, hub.getStatusRefreshCount());
+	}
+
+	@Test
+	public void endedJobShouldBePolledOnceMoreThenClosed() throws Exception {
+		Session session = createSession();
+		hub.subscribe(session, JOB_NAME, JOB_ID, FILE_ID, 0, null);
+		when(poller.cancel(false)).thenReturn(true);
+		when(hub.zosmfService.getJobs(JOB_NAME, "*", JobStatus.ALL)).thenReturn(createListing(JOB_NAME, createJob(JOB_ID, JobStatus.OUTPUT))); //$NON-NLS-1$
+		when(hub.zosmfService.getJobFileRecordsByRange(JOB_NAME, JOB_ID, FILE_ID, "0", "0")).thenReturn("LAST\n");
+
+		hub.refreshStatuses();
+		verify(hub.scheduler).schedule(any(Runnable.class), eq(0L), eq(TimeUnit.MILLISECONDS));
+		pollNow();
+
+		verify(session.getAsyncRemote()).sendText(eq("LAST\n"), any(SendHandler.class));
+		assertEquals(0, hub.getTailCount());
+		verify(hub.scheduler, times(2)).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+	}
+
+	@Test
+	public void jobEndingDuringPollShouldBePolledOnceMoreThenClosed() throws Exception {
+		Session session = createSession();
+		hub.subscribe(session, JOB_NAME, JOB_ID, FILE_ID, 0, null);
+		// Cancelling a running poll still reports success
+		when(poller.cancel(false)).thenReturn(true);
+		when(hub.zosmfService.getJobs(JOB_NAME, "*", JobStatus.ALL)).thenReturn(createListing(JOB_NAME, createJob(JOB_ID, JobStatus.OUTPUT))); //$NON-NLS-1$
+		when(hub.zosmfService.getJobFileRecordsByRange(JOB_NAME, JOB_ID, FILE_ID, "0", "0")).thenAnswer(invocation -> {
+			hub.refreshStatuses();
+			return "R0\n";
+		});
+		when(hub.zosmfService.getJobFileRecordsByRange(JOB_NAME, JOB_ID, FILE_ID, "1", "0")).thenReturn("LAST\n");
+
+		assertEquals(0, pollNow());
+		verify(hub.scheduler, times(2)).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+
+		pollNow();
+		verify(session.getAsyncRemote()).sendText(eq("R0\n"), any(SendHandler.class));
+		verify(hub.zosmfService, times(1)).getJobFileRecordsByRange(JOB_NAME, JOB_ID, FILE_ID, "1", "0");
+		verify(hub.scheduler, times(2)).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+		assertEquals(0, hub.getTailCount());
+	}
+
+	@Test
+	public void jobWithUnknownStatusShouldNotBeEnded() throws Exception {
+		Session session = createSession();
+		hub.subscribe(session, JOB_NAME, JOB_ID, FILE_ID, 0, null);
+		when(hub.zosmfService.getJobs(JOB_NAME, "*", JobStatus.ALL)).thenReturn(createListing(JOB_NAME)); //$NON-NLS-1$
+
+		hub.refreshStatuses();
+
+		verify(hub.zosmfService).getJobStatus(JOB_NAME, JOB_ID);
+		verify(hub.scheduler, never()).schedule(any(Runnable.class), eq(0L), eq(TimeUnit.MILLISECONDS));
+		verify(session, never()).close(any(CloseReason.class));
+		assertEquals(1, hub.getTailCount());
+	}
+
+	@Test
+	public void jobHiddenFromOneUserShouldNotEndAnotherUsersTail() {
+		Session owner = createSession("USERA"); //$NON-NLS-1$
+		Session other = createSession("USERB"); //$NON-NLS-1$
+		hub.subscribe(owner, JOB_NAME, JOB_ID, FILE_ID, 0, null);
+		hub.subscribe(other, JOB_NAME, JOB_ID, FILE_ID, 0, null);
+		when(hub.zosmfService.getJobs(JOB_NAME, "*", JobStatus.ALL)).thenAnswer(invocation -> //$NON-NLS-1$
+				"USERA".equals(callingUser) ? createListing(JOB_NAME, createJob(JOB_ID, JobStatus.ACTIVE)) : createListing(JOB_NAME)); //$NON-NLS-1$
+
+		hub.refreshStatuses();
+
+		verify(hub.zosmfService, times(2)).getJobs(JOB_NAME, "*", JobStatus.ALL); //$NON-NLS-1$
+		verify(hub.scheduler, never()).schedule(any(Runnable.class), eq(0L), eq(TimeUnit.MILLISECONDS));
+		assertEquals(JobStatus.ACTIVE, hub.getJobStatus(JOB_NAME, JOB_ID));
+		assertEquals(1, hub.getTailCount());
+	}
+
+	@Test
+	public void pollShouldRunAsASubscriberStillTailing() {
+		Session creator = createSession("USERA"); //$NON-NLS-1$
+		Session remaining = createSession("USERB"); //$NON-NLS-1$
+		hub.subscribe(creator, JOB_NAME, JOB_ID, FILE_ID, 0, null);
+		hub.subscribe(remaining, JOB_NAME, JOB_ID, FILE_ID, 0, null);
+		hub.unsubscribe(creator, JOB_NAME, JOB_ID, FILE_ID);
+		List<String> callers = new ArrayList<>();
+		when(hub.zosmfService.getJobFileRecordsByRange(JOB_NAME, JOB_ID, FILE_ID, "0", "0")).thenAnswer(invocation -> {
+			callers.add(callingUser);
+			return ""; //$NON-NLS-1$
+		});
+
+		pollNow();
+
+		assertEquals(Arrays.asList("USERB"), callers); //$NON-NLS-1$
+	}
+
+	@Test
+	public void pollerShouldStopWhenLastSubscriberLeaves() {
+		Session first = createSession();
+		Session second = createSession();
+		hub.subscribe(first, JOB_NAME, JOB_ID, FILE_ID, 0, null);
+		hub.subscribe(second, JOB_NAME, JOB_ID, FILE_ID, 0, null);
+
+		hub.unsubscribe(first, JOB_NAME, JOB_ID, FILE_ID);
+		verify(poller, never()).cancel(anyBoolean());
+
+		hub.unsubscribe(second, JOB_NAME, JOB_ID, FILE_ID);
+		verify(poller).cancel(false);
+		assertEquals(0, hub.getTailCount());
+	}
+
+	@Test
+	public void pollIntervalShouldBackOffWhileQuietAndResetOnOutput() {
+		hub.subscribe(createSession(), JOB_NAME, JOB_ID, FILE_ID, 0, null);
+		when(hub.zosmfService.getJobFileRecordsByRange(JOB_NAME, JOB_ID, FILE_ID, "0", "0")).thenReturn("", "", "", "", "R0\n");
+
+		assertEquals(2 * MINIMUM_INTERVAL, pollNow());
+		assertEquals(4 * MINIMUM_INTERVAL, pollNow());
+		assertEquals(MAXIMUM_INTERVAL, pollNow());
+		assertEquals(MAXIMUM_INTERVAL, pollNow());
+		assertEquals(MINIMUM_INTERVAL, pollNow());
+	}
+
+	@Test
+	public void slowSubscriberShouldGetGapMarkerInsteadOfUnboundedQueue() {
+		Session session = createSession();
+		ArgumentCaptor<SendHandler> completion = ArgumentCaptor.forClass(SendHandler.class);
+		JobOutputTailHub.Subscriber subscriber = new JobOutputTailHub.Subscriber(session, 0, "TESTUSER", Runnable::run); //$NON-NLS-1$
+
+		hub.send(subscriber, "R0\n");
+		hub.send(subscriber, "R1\nR2\nR3\n");
+		hub.send(subscriber, "R4\nR5\nR6\n");
+		verify(session.getAsyncRemote()).sendText(eq("R0\n"), completion.capture());
+
+		completion.getValue().onResult(new SendResult());
+		ArgumentCaptor<String> next = ArgumentCaptor.forClass(String.class);
+		verify(session.getAsyncRemote(), times(2)).sendText(next.capture(), any(SendHandler.class));
+		assertTrue(next.getValue().startsWith("3 records were skipped")); //$NON-NLS-1$
+		assertTrue(next.getValue().endsWith("\nR4\nR5\nR6\n")); //$NON-NLS-1$
+		assertEquals(3, hub.getSkippedRecordCount());
+	}
+
+	@Test
+	public void recordsShouldBeCountedAndSkippedByLine() {
+		assertEquals(0, JobOutputTailHub.countRecords(""));
+		assertEquals(2, JobOutputTailHub.countRecords("R0\nR1\n"));
+		assertEquals(2, JobOutputTailHub.countRecords("R0\nR1"));
+		assertEquals("R1\n", JobOutputTailHub.skipRecords("R0\nR1\n", 1));
+		assertEquals("", JobOutputTailHub.skipRecords("R0\nR1\n", 5));
+	}
+
+	/**
+	 * Run the most recently scheduled poll
+	 *
+	 * @return The delay the following poll was scheduled with
+	 */
+	private long pollNow() {
+		ArgumentCaptor<Runnable> poll = ArgumentCaptor.forClass(Runnable.class);
+		verify(hub.scheduler, atLeastOnce()).schedule(poll.capture(), anyLong(), eq(TimeUnit.MILLISECONDS));
+		poll.getValue().run();
+		ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+		verify(hub.scheduler, atLeastOnce()).schedule(any(Runnable.class), delay.capture(), eq(TimeUnit.MILLISECONDS));
+		return delay.getValue();
+	}
+
+	private static List<JobNameList> createListing(String jobName, Job... jobs) {
+		return Arrays.asList(new JobNameList(jobName, Arrays.asList(jobs)));
+	}
+
+	private static Job createJob(String jobId, JobStatus status) {
+		return Job.builder().jobId(jobId)
+			.jobName(JOB_NAME)
+			.owner("TESTUSER") //$NON-NLS-1$
+			.status(status)
+			.build();
+	}
+
+	private Session createSession() {
+		return createSession("TESTUSER"); //$NON-NLS-1$
+	}
+
+	private Session createSession(String user) {
+		Session session = mock(Session.class);
+		// The hub asks for the user just before capturing their identity
+		when(session.getUserPrincipal()).thenAnswer(invocation -> {
+			subscribingUser = user;
+			return (Principal) () -> user;
+		});
+		Async remote = mock(Async.class);
+		when(session.isOpen()).thenReturn(true);
+		when(session.getAsyncRemote()).thenReturn(remote);
+		return session;
+	}
+}
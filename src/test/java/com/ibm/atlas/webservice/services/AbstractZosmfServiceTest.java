@@ -13,7 +13,9 @@ package com.ibm.atlas.webservice.services;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -40,6 +42,14 @@ public class AbstractZosmfServiceTest <T extends ZosmfService> extends AtlasTest
 		this.service = aService;
 		aService.client = Mockito.mock(HTTPClient.class, Mockito.RETURNS_DEEP_STUBS);
 		aService.log = Mockito.mock(Logger.class);
+		aService.requestLimiter = new ZosmfRequestLimiter(ZosmfRequestLimiter.DEFAULT_MAXIMUM_PER_ROUTE, 0);
+		aService.metrics = new ZosmfMetrics();
+		aService.coalescer = new RequestCoalescer();
+		aService.bulkheads = new ZosmfBulkheads(ZosmfBulkheads.DEFAULT_MAXIMUM_CONCURRENT, 0, 0,
+				() -> new CircuitBreaker(ZosmfBulkheads.DEFAULT_WINDOW_SIZE, ZosmfBulkheads.DEFAULT_MINIMUM_CALLS,
+						ZosmfBulkheads.DEFAULT_FAILURE_RATE_PERCENT, ZosmfBulkheads.DEFAULT_SLOW_CALL_MILLIS,
+						ZosmfBulkheads.DEFAULT_SLOW_CALL_RATE_PERCENT, ZosmfBulkheads.DEFAULT_OPEN_MILLIS,
+						ZosmfBulkheads.DEFAULT_HALF_OPEN_CALLS, System::nanoTime));
 	}
 	
 	public String loadTestFile(String relativePath) {
@@ -53,6 +63,10 @@ public class AbstractZosmfServiceTest <T extends ZosmfService> extends AtlasTest
 		return output;
 	}
 
+	public InputStream loadTestFileStream(String relativePath) {
+		return new ByteArrayInputStream(loadTestFile(relativePath).getBytes(Charset.forName("UTF8")));
+	}
+
 	void mockHTTPClientSendRequest() {
 		Response r = Response.status(Status.OK).entity(loadTestFile("zosmfService_getJobFiles.txt")).type(MediaType.APPLICATION_JSON).build();
 		Mockito.when(service.client.sendRequest((Builder)Matchers.any(), Matchers.anyString())).thenReturn(r);
@@ -0,0 +1,204 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import com.ibm.atlas.model.jobs.Job;
+import com.ibm.atlas.model.jobs.JobStatus;
+
+public class CacheTest {
+
+	private static final int MAXIMUM_SIZE = 4;
+	private static final long EXPIRY_SECONDS = 60;
+	private static final int RETAINED_GENERATIONS = 2;
+
+	long now;
+	Cache cache;
+
+	@Before
+	public void setUp() {
+		now = 0;
+		cache = new Cache(MAXIMUM_SIZE, EXPIRY_SECONDS, RETAINED_GENERATIONS, () -> now);
+		cache.log = Mockito.mock(Logger.class);
+	}
+
+	@Test
+	public void getShouldReturnCachedJobAndCountHits() {
+		Job job = createJob("JOB00001");
+		cache.put(new JobInstanceKey(job), job);
+
+		assertSame(job, cache.get(new JobInstanceKey("TESTJOB", "JOB00001")));
+		assertNull(cache.get(new JobInstanceKey("TESTJOB", "JOB00002")));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void entriesShouldExpireAfterTtl() {
+		Job job = createJob("JOB00001");
+		cache.put(new JobInstanceKey(job), job);
+
+		now += TimeUnit.SECONDS.toNanos(EXPIRY_SECONDS);
+
+		assertNull(cache.get(new JobInstanceKey(job)));
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+	}
+
+	@Test
+	public void sizeShouldNotExceedMaximum() {
+		for (int i = 0; i < MAXIMUM_SIZE * 10; i++) {
+			Job job = createJob(String.format("JOB%05d", i));
+			cache.put(new JobInstanceKey(job), job);
+		}
+		assertEquals(MAXIMUM_SIZE, cache.size());
+		assertEquals(MAXIMUM_SIZE * 9, cache.getEvictionCount());
+	}
+
+	@Test
+	public void frequentlyUsedJobShouldBeAdmittedOverColdEntries() {
+		for (int i = 0; i < MAXIMUM_SIZE; i++) {
+			Job job = createJob(String.format("JOB%05d", i));
+			cache.put(new JobInstanceKey(job), job);
+		}
+		Job popular = createJob("JOB99999");
+		JobInstanceKey popularKey = new JobInstanceKey(popular);
+		for (int i = 0; i < 5; i++) {
+			assertNull(cache.get(popularKey));
+		}
+		cache.put(popularKey, popular);
+
+		assertSame(popular, cache.get(popularKey));
+		assertEquals(MAXIMUM_SIZE, cache.size());
+	}
+
+	@Test
+	public void coldJobsShouldBeRejectedOnLeavingTheWindow() {
+		Job[] jobs = new Job[MAXIMUM_SIZE];
+		for (int i = 0; i < MAXIMUM_SIZE; i++) {
+			jobs[i] = createJob(String.format("JOB%05d", i));
+			cache.put(new JobInstanceKey(jobs[i]), jobs[i]);
+		}
+		for (Job job : jobs) {
+			for (int i = 0; i < 5; i++) {
+				assertSame(job, cache.get(new JobInstanceKey(job)));
+			}
+		}
+		for (int i = 0; i < 3; i++) {
+			Job cold = createJob(String.format("JOB9999%d", i));
+			cache.put(new JobInstanceKey(cold), cold);
+		}
+
+		// The first job to leave the window ties with the oldest entry and is admitted
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(2, cache.getRejectionCount());
+		assertEquals(MAXIMUM_SIZE, cache.size());
+		assertSame(jobs[1], cache.get(new JobInstanceKey(jobs[1])));
+	}
+
+	@Test
+	public void tidyShouldRemoveJobsNoLongerListed() {
+		Job kept = createJob("JOB00001");
+		Job removed = createJob("JOB00002");
+		cache.put(new JobInstanceKey(kept), kept);
+		cache.put(new JobInstanceKey(removed), removed);
+
+		cache.tidyCache(Arrays.asList(kept));
+		assertSame(removed, cache.get(new JobInstanceKey(removed)));
+
+		cache.tidyCache(Arrays.asList(kept));
+		assertSame(kept, cache.get(new JobInstanceKey(kept)));
+		assertNull(cache.get(new JobInstanceKey(removed)));
+	}
+
+	@Test
+	public void tidyShouldKeepJobsAddedSinceLastListing() {
+		Job listed = createJob("JOB00001");
+		cache.put(new JobInstanceKey(listed), listed);
+		cache.tidyCache(Arrays.asList(listed));
+
+		Job added = createJob("JOB00002");
+		cache.put(new JobInstanceKey(added), added);
+		cache.tidyCache(Arrays.asList(listed));
+
+		assertSame(added, cache.get(new JobInstanceKey(added)));
+	}
+
+	@Test
+	public void tidyRequestsShouldBeCoalescedIntoOneTrim() {
+		cache.scheduler = Mockito.mock(ManagedScheduledExecutorService.class);
+		Job kept = createJob("JOB00001");
+		Job removed = createJob("JOB00002");
+		cache.put(new JobInstanceKey(kept), kept);
+		cache.put(new JobInstanceKey(removed), removed);
+
+		cache.scheduleTidy(Arrays.asList(kept, removed));
+		cache.scheduleTidy(Arrays.asList(kept));
+		assertEquals(2, cache.getPendingTidyRequests());
+
+		ArgumentCaptor<Runnable> trim = ArgumentCaptor.forClass(Runnable.class);
+		verify(cache.scheduler, times(1)).schedule(trim.capture(), anyLong(), eq(TimeUnit.SECONDS));
+		trim.getValue().run();
+
+		assertEquals(0, cache.getPendingTidyRequests());
+		assertEquals(1, cache.getTidyCount());
+
+		// A second trim against the same listing ages out the unlisted job
+		cache.scheduleTidy(Arrays.asList(kept));
+		verify(cache.scheduler, times(2)).schedule(trim.capture(), anyLong(), eq(TimeUnit.SECONDS));
+		trim.getValue().run();
+		assertSame(kept, cache.get(new JobInstanceKey(kept)));
+		assertNull(cache.get(new JobInstanceKey(removed)));
+	}
+
+	@Test
+	public void rejectedTrimShouldNotBlockLaterOnes() {
+		cache.scheduler = Mockito.mock(ManagedScheduledExecutorService.class);
+		when(cache.scheduler.schedule(any(Runnable.class), anyLong(), eq(TimeUnit.SECONDS)))
+			.thenThrow(new RejectedExecutionException())
+			.thenReturn(null);
+		Job job = createJob("JOB00001");
+
+		cache.scheduleTidy(Arrays.asList(job));
+		assertEquals(0, cache.getPendingTidyRequests());
+
+		cache.scheduleTidy(Arrays.asList(job));
+		verify(cache.scheduler, times(2)).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.SECONDS));
+		assertEquals(1, cache.getPendingTidyRequests());
+	}
+
+	private static Job createJob(String jobId) {
+		return Job.builder().jobId(jobId)
+			.jobName("TESTJOB") //$NON-NLS-1$
+			.owner("TESTUSER") //$NON-NLS-1$
+			.status(JobStatus.OUTPUT)
+			.build();
+	}
+}
@@ -0,0 +1,132 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+package com.ibm.atlas.webservice.services;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.atlas.webservice.services.CircuitBreaker.State;
+
+public class CircuitBreakerTest {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(1000);
+
+	private AtomicLong time;
+	private CircuitBreaker circuitBreaker;
+
+	@Before
+	public void setUp() {
+		time = new AtomicLong();
+		circuitBreaker = new CircuitBreaker(10, 4, 50, 1000, 80, 5000, 2, time::get);
+	}
+
+	@Test
+	public void circuitShouldStayClosedUntilMinimumCalls() {
+		call(true, FAST);
+		call(true, FAST);
+		call(true, FAST);
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+
+		call(true, FAST);
+		assertEquals(State.OPEN, circuitBreaker.getState());
+		assertFalse(circuitBreaker.tryAcquire());
+		assertEquals(1, circuitBreaker.getOpenCount());
+	}
+
+	@Test
+	public void circuitShouldOpenOnFailureRate() {
+		for (int i = 0; i < 10; i++) {
+			call(i % 3 == 2, FAST);
+		}
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+
+		call(true, FAST);
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+		call(true, FAST);
+		assertEquals(State.OPEN, circuitBreaker.getState());
+	}
+
+	@Test
+	public void circuitShouldOpenOnSlowCallRate() {
+		call(false, FAST);
+		for (int i = 0; i < 3; i++) {
+			call(false, SLOW);
+		}
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+
+		call(false, SLOW);
+		assertEquals(State.OPEN, circuitBreaker.getState());
+	}
+
+	@Test
+	public void probesShouldCloseCircuitAfterOpenPeriod() {
+		openCircuit();
+		time.addAndGet(TimeUnit.MILLISECONDS.toNanos(4000));
+		assertFalse(circuitBreaker.tryAcquire());
+		assertEquals(1000, circuitBreaker.getRemainingOpenMillis());
+
+		time.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+		assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+		assertTrue(circuitBreaker.tryAcquire());
+		assertTrue(circuitBreaker.tryAcquire());
+		assertFalse(circuitBreaker.tryAcquire());
+
+		circuitBreaker.onResult(false, FAST);
+		assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+		circuitBreaker.onResult(false, FAST);
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+
+		call(true, FAST);
+		call(true, FAST);
+		call(true, FAST);
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+	}
+
+	@Test
+	public void failedProbeShouldReopenCircuit() {
+		openCircuit();
+		time.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+		assertTrue(circuitBreaker.tryAcquire());
+		circuitBreaker.onResult(true, FAST);
+
+		assertEquals(State.OPEN, circuitBreaker.getState());
+		assertEquals(5000, circuitBreaker.getRemainingOpenMillis());
+		assertEquals(2, circuitBreaker.getOpenCount());
+	}
+
+	@Test
+	public void releasedProbeShouldBeGivenBack() {
+		openCircuit();
+		time.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+		assertTrue(circuitBreaker.tryAcquire());
+		assertTrue(circuitBreaker.tryAcquire());
+		circuitBreaker.release();
+
+		assertTrue(circuitBreaker.tryAcquire());
+	}
+
+	private void openCircuit() {
+		for (int i = 0; i < 4; i++) {
+			call(true, FAST);
+		}
+		assertEquals(State.OPEN, circuitBreaker.getState());
+	}
+
+	private void call(boolean failed, long durationNanos) {
+		assertTrue(circuitBreaker.tryAcquire());
+		circuitBreaker.onResult(failed, durationNanos);
+	}
+}
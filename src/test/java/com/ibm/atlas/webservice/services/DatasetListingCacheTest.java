@@ -0,0 +1,115 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+package com.ibm.atlas.webservice.services;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.atlas.webservice.services.DatasetListingCache.Listing;
+
+public class DatasetListingCacheTest {
+
+	private static final String[] MEMBERS = { "A", "B", "C" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	private static final String[] DATASETS = { "USER.JCL", "USER.LOAD" }; //$NON-NLS-1$ //$NON-NLS-2$
+
+	private AtomicLong time;
+	private DatasetListingCache cache;
+
+	@Before
+	public void setUp() {
+		time = new AtomicLong();
+		cache = new DatasetListingCache(30, 100, time::get);
+	}
+
+	@Test
+	public void listingsShouldBeKeptPerUserUntilTheyExpire() {
+		cache.put("USER", Listing.MEMBERS, "USER.JCL", MEMBERS, cache.getGeneration()); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertSame(MEMBERS, cache.get("USER", Listing.MEMBERS, "USER.JCL")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(cache.get("OTHER", Listing.MEMBERS, "USER.JCL")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(cache.get("USER", Listing.DATASETS, "USER.JCL")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		time.addAndGet(TimeUnit.SECONDS.toNanos(30));
+		assertNull(cache.get("USER", Listing.MEMBERS, "USER.JCL")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getTotalNames());
+	}
+
+	@Test
+	public void memberWritesShouldEvictMemberListingsOfEveryUser() {
+		cache.put("USER", Listing.MEMBERS, "USER.JCL", MEMBERS, cache.getGeneration()); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("OTHER", Listing.MEMBERS, "user.jcl", MEMBERS, cache.getGeneration()); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("USER", Listing.MEMBERS, "USER.PROCLIB", MEMBERS, cache.getGeneration()); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("USER", Listing.DATASETS, "USER.**", DATASETS, cache.getGeneration()); //$NON-NLS-1$ //$NON-NLS-2$
+
+		cache.evictMembers("USER.JCL(NEW)"); //$NON-NLS-1$
+
+		assertNull(cache.get("USER", Listing.MEMBERS, "USER.JCL")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(cache.get("OTHER", Listing.MEMBERS, "user.jcl")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame(MEMBERS, cache.get("USER", Listing.MEMBERS, "USER.PROCLIB")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame(DATASETS, cache.get("USER", Listing.DATASETS, "USER.**")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void datasetWritesShouldEvictListingsWhoseFilterMayMatch() {
+		cache.put("USER", Listing.DATASETS, "USER.**", DATASETS, cache.getGeneration()); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("USER", Listing.DATASETS, "USER", DATASETS, cache.getGeneration()); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("USER", Listing.DATASETS, "**.JCL", DATASETS, cache.getGeneration()); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("USER", Listing.DATASETS, "SYS1.**", DATASETS, cache.getGeneration()); //$NON-NLS-1$ //$NON-NLS-2$
+
+		cache.evictDatasets("USER.NEW.JCL"); //$NON-NLS-1$
+
+		assertNull(cache.get("USER", Listing.DATASETS, "USER.**")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(cache.get("USER", Listing.DATASETS, "USER")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(cache.get("USER", Listing.DATASETS, "**.JCL")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame(DATASETS, cache.get("USER", Listing.DATASETS, "SYS1.**")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void listingReadBeforeAnEvictionShouldNotBeKept() {
+		long generation = cache.getGeneration();
+		cache.evictMembers("OTHER.JCL"); //$NON-NLS-1$
+
+		cache.put("USER", Listing.MEMBERS, "USER.JCL", MEMBERS, generation); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertNull(cache.get("USER", Listing.MEMBERS, "USER.JCL")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void invalidateShouldDropOnlyThatUsersListing() {
+		cache.put("USER", Listing.MEMBERS, "USER.JCL", MEMBERS, cache.getGeneration()); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("OTHER", Listing.MEMBERS, "USER.JCL", MEMBERS, cache.getGeneration()); //$NON-NLS-1$ //$NON-NLS-2$
+
+		cache.invalidate("USER", Listing.MEMBERS, "USER.JCL"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertNull(cache.get("USER", Listing.MEMBERS, "USER.JCL")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame(MEMBERS, cache.get("OTHER", Listing.MEMBERS, "USER.JCL")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void oldestListingsShouldBeDroppedWhenTooManyNamesAreHeld() {
+		String[] large = new String[59];
+		cache.put("USER", Listing.MEMBERS, "FIRST", large, cache.getGeneration()); //$NON-NLS-1$ //$NON-NLS-2$
+		time.incrementAndGet();
+		cache.put("USER", Listing.MEMBERS, "SECOND", large, cache.getGeneration()); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertNull(cache.get("USER", Listing.MEMBERS, "FIRST")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame(large, cache.get("USER", Listing.MEMBERS, "SECOND")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(60, cache.getTotalNames());
+
+		cache.put("USER", Listing.MEMBERS, "HUGE", new String[100], cache.getGeneration()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(cache.get("USER", Listing.MEMBERS, "HUGE")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
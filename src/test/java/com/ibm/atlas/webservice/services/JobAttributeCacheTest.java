@@ -0,0 +1,163 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.enterprise.concurrent.ManagedExecutorService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.ibm.atlas.model.jobs.Job;
+import com.ibm.atlas.model.jobs.JobStatus;
+import com.ibm.atlas.webservice.services.SubsystemResult.Outcome;
+
+public class JobAttributeCacheTest {
+
+	private static final int CALLERS = 8;
+	private static final int PARALLELISM = 2;
+	private static final long DEADLINE_MILLIS = 100;
+
+	CountDownLatch release;
+	AtomicInteger fetches;
+	SubsystemResult fetchResult;
+	JobAttributeCache jobAttributeCache;
+
+	@Before
+	public void setUp() {
+		release = new CountDownLatch(0);
+		fetches = new AtomicInteger();
+		fetchResult = SubsystemResult.of("CICS");
+		jobAttributeCache = new JobAttributeCache(PARALLELISM, DEADLINE_MILLIS);
+		jobAttributeCache.log = Mockito.mock(Logger.class);
+		jobAttributeCache.cachedJobInstances = new Cache(100, 60, 3, System::nanoTime);
+		jobAttributeCache.negativeResults = new NegativeResultCache(60, 60, System::nanoTime);
+		jobAttributeCache.principal = () -> "TESTUSER";
+		jobAttributeCache.zosmfService = new ZosmfJobsService() {
+			@Override
+			public SubsystemResult lookupJobSubsystem(String jobName, String jobId) {
+				fetches.incrementAndGet();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return fetchResult;
+			}
+		};
+	}
+
+	@Test
+	public void concurrentCallersForSameJobShouldShareOneFetch() throws Exception {
+		release = new CountDownLatch(1);
+		List<Job> jobs = new ArrayList<>();
+		List<Thread> callers = new ArrayList<>();
+		for (int i = 0; i < CALLERS; i++) {
+			Job job = createJob();
+			jobs.add(job);
+			Thread caller = new Thread(() -> jobAttributeCache.getAdditionalAttributes(job));
+			callers.add(caller);
+			caller.start();
+		}
+
+		SingleFlight<?, ?> loads = jobAttributeCache.cachedJobInstances.getSubsystemLoads();
+		long deadline = System.currentTimeMillis() + 10000;
+		while (loads.getSharedCount() < CALLERS - 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		release.countDown();
+		for (Thread caller : callers) {
+			caller.join(10000);
+		}
+
+		assertEquals(1, fetches.get());
+		assertEquals(CALLERS - 1, loads.getSharedCount());
+		assertEquals(0, loads.getInFlightCount());
+		for (Job job : jobs) {
+			assertEquals("CICS", job.getSubsystem());
+		}
+	}
+
+	@Test
+	public void cachedSubsystemShouldNotBeFetchedAgain() {
+		assertEquals("CICS", jobAttributeCache.getAdditionalAttributes(createJob()).getSubsystem());
+		assertEquals("CICS", jobAttributeCache.getAdditionalAttributes(createJob()).getSubsystem());
+		assertEquals(1, fetches.get());
+	}
+
+	@Test
+	public void permissionFailureShouldNotBeFetchedAgain() {
+		fetchResult = SubsystemResult.of(Outcome.NOT_AUTHORIZED);
+
+		assertEquals("", jobAttributeCache.getAdditionalAttributes(createJob()).getSubsystem());
+		assertEquals("", jobAttributeCache.getAdditionalAttributes(createJob()).getSubsystem());
+		assertEquals(1, fetches.get());
+		assertEquals(0, jobAttributeCache.cachedJobInstances.size());
+	}
+
+	@Test
+	public void lookupsPastTheDeadlineShouldBeLeftWithoutASubsystem() throws Exception {
+		release = new CountDownLatch(1);
+		List<Thread> workers = new ArrayList<>();
+		jobAttributeCache.executor = Mockito.mock(ManagedExecutorService.class);
+		doAnswer(invocation -> {
+			Thread worker = new Thread((Runnable) invocation.getArguments()[0]);
+			workers.add(worker);
+			worker.start();
+			return null;
+		}).when(jobAttributeCache.executor).execute(any(Runnable.class));
+		List<Job> jobs = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			jobs.add(createJob(String.format("STC%05d", i)));
+		}
+
+		jobAttributeCache.getAdditionalAttributes(jobs);
+
+		assertEquals(PARALLELISM, workers.size());
+		for (Job job : jobs) {
+			assertNull(job.getSubsystem());
+		}
+
+		// The lookups carry on and fill the cache for the next request
+		release.countDown();
+		for (Thread worker : workers) {
+			worker.join(10000);
+		}
+		assertEquals(3, fetches.get());
+		for (Job job : jobs) {
+			assertEquals("CICS", jobAttributeCache.getAdditionalAttributes(createJob(job.getJobId())).getSubsystem());
+		}
+		assertNull(jobs.get(0).getSubsystem());
+	}
+
+	private static Job createJob() {
+		return createJob("STC00001");
+	}
+
+	private static Job createJob(String jobId) {
+		return Job.builder().jobId(jobId)
+			.jobName("TESTJOB") //$NON-NLS-1$
+			.owner("TESTUSER") //$NON-NLS-1$
+			.status(JobStatus.ACTIVE)
+			.build();
+	}
+}
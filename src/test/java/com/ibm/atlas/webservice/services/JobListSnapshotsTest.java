@@ -0,0 +1,130 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.atlas.model.jobs.Job;
+import com.ibm.atlas.webservice.resource.jobs.entity.JobNameList;
+import com.ibm.atlas.webservice.services.JobListSnapshots.Snapshot;
+
+public class JobListSnapshotsTest {
+
+	private static final int MAXIMUM_JOBS = 4;
+	private static final long EXPIRY_SECONDS = 60;
+
+	long now;
+	JobListSnapshots snapshots;
+
+	@Before
+	public void setUp() {
+		now = 0;
+		snapshots = new JobListSnapshots(MAXIMUM_JOBS, EXPIRY_SECONDS, () -> now);
+	}
+
+	@Test
+	public void pagesShouldBeSortedByJobName() {
+		Snapshot snapshot = snapshots.create("USERA", createListing("JOBC", "JOBA", "JOBD", "JOBB"));
+
+		assertEquals(4, snapshot.size());
+		assertEquals(Arrays.asList("JOBA", "JOBB"), names(snapshot.page(0, 2)));
+		assertEquals(Arrays.asList("JOBC", "JOBD"), names(snapshot.page(2, 2)));
+		assertEquals(Arrays.asList("JOBD"), names(snapshot.page(3, 2)));
+		assertTrue(snapshot.page(4, 2).isEmpty());
+	}
+
+	@Test
+	public void pageShouldEndWithTheSnapshotWhateverTheLimit() {
+		Snapshot snapshot = snapshots.create("USERA", createListing("JOBA", "JOBB", "JOBC"));
+
+		assertEquals(Arrays.asList("JOBB", "JOBC"), names(snapshot.page(1, Integer.MAX_VALUE)));
+	}
+
+	@Test
+	public void pagesShouldNotShareJobsWithTheSnapshot() {
+		JobNameList listed = new JobNameList("JOBA");
+		listed.addJobInstance(Job.builder().jobName("JOBA").jobId("JOB00001").subsystem("CICS").build());
+		Snapshot snapshot = snapshots.create("USERA", Arrays.asList(listed));
+
+		snapshot.page(0, 1).get(0).getJobInstances().get(0).setSubsystem(null);
+
+		assertEquals("CICS", snapshot.page(0, 1).get(0).getJobInstances().get(0).getSubsystem());
+		assertEquals("CICS", listed.getJobInstances().get(0).getSubsystem());
+	}
+
+	@Test
+	public void snapshotShouldOnlyBeVisibleToItsUser() {
+		Snapshot snapshot = snapshots.create("USERA", createListing("JOBA"));
+
+		assertSame(snapshot, snapshots.get(snapshot.getId(), "USERA"));
+		assertNull(snapshots.get(snapshot.getId(), "USERB"));
+		assertNull(snapshots.get("UNKNOWN", "USERA"));
+	}
+
+	@Test
+	public void snapshotShouldExpire() {
+		Snapshot snapshot = snapshots.create("USERA", createListing("JOBA"));
+		now += TimeUnit.SECONDS.toNanos(EXPIRY_SECONDS);
+
+		assertNull(snapshots.get(snapshot.getId(), "USERA"));
+	}
+
+	@Test
+	public void oldestSnapshotsShouldBeReplacedWhenTooManyJobsAreHeld() {
+		Snapshot first = snapshots.create("USERA", createListing("JOBA"));
+		Snapshot second = snapshots.create("USERA", createListing("JOBB", "JOBC"));
+		Snapshot third = snapshots.create("USERA", createListing("JOBD", "JOBE"));
+
+		assertEquals(2, snapshots.size());
+		assertEquals(MAXIMUM_JOBS, snapshots.getTotalJobs());
+		assertNull(snapshots.get(first.getId(), "USERA"));
+		assertSame(second, snapshots.get(second.getId(), "USERA"));
+		assertSame(third, snapshots.get(third.getId(), "USERA"));
+	}
+
+	@Test
+	public void jobInstancesShouldCountTowardsTheMaximum() {
+		Snapshot small = snapshots.create("USERA", createListing("JOBA"));
+		JobNameList large = new JobNameList("JOBB");
+		for (int i = 0; i < MAXIMUM_JOBS; i++) {
+			large.addJobInstance(Job.builder().jobName("JOBB").jobId(String.format("JOB%05d", i)).build());
+		}
+		Snapshot snapshot = snapshots.create("USERA", Arrays.asList(large));
+
+		assertEquals(1, snapshots.size());
+		assertEquals(MAXIMUM_JOBS, snapshots.getTotalJobs());
+		assertNull(snapshots.get(small.getId(), "USERA"));
+		assertSame(snapshot, snapshots.get(snapshot.getId(), "USERA"));
+	}
+
+	private static List<JobNameList> createListing(String... jobNames) {
+		JobNameList[] listing = new JobNameList[jobNames.length];
+		for (int i = 0; i < jobNames.length; i++) {
+			listing[i] = new JobNameList(jobNames[i]);
+		}
+		return Arrays.asList(listing);
+	}
+
+	private static List<String> names(List<JobNameList> page) {
+		String[] names = new String[page.size()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = page.get(i).getName();
+		}
+		return Arrays.asList(names);
+	}
+}
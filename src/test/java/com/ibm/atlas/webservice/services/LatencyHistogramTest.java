@@ -0,0 +1,66 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void bucketsShouldCoverEveryValueInOrder() {
+		long previousHighest = -1;
+		for (int index = 0; index <= LatencyHistogram.indexOf(Long.MAX_VALUE) - 1; index++) {
+			long highest = LatencyHistogram.highestValueIn(index);
+			assertEquals(index, LatencyHistogram.indexOf(previousHighest + 1));
+			assertEquals(index, LatencyHistogram.indexOf(highest));
+			previousHighest = highest;
+		}
+	}
+
+	@Test
+	public void bucketsShouldBeWithinSevenPercent() {
+		for (long value = 16; value < 1L << 30; value = value * 3 + 1) {
+			long highest = LatencyHistogram.highestValueIn(LatencyHistogram.indexOf(value));
+			assertTrue(highest >= value);
+			assertTrue((highest - value) <= value * 0.07);
+		}
+	}
+
+	@Test
+	public void quantilesShouldComeFromRecordedValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtQuantile(0.5));
+
+		for (int i = 1; i <= 100; i++) {
+			histogram.recordMicros(i * 1000);
+		}
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(5050000, histogram.getSumMicros());
+		assertEquals(100000, histogram.getMaxMicros());
+		assertEquals(50000, histogram.getValueAtQuantile(0.5), 50000 * 0.07);
+		assertEquals(99000, histogram.getValueAtQuantile(0.99), 99000 * 0.07);
+		assertEquals(100000, histogram.getValueAtQuantile(1.0));
+	}
+
+	@Test
+	public void hugeValuesShouldBeCountedInTheLastBucket() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.recordMicros(Long.MAX_VALUE);
+		histogram.recordMicros(-5);
+
+		assertEquals(2, histogram.getCount());
+		assertEquals(0, histogram.getValueAtQuantile(0.5));
+		assertEquals(Long.MAX_VALUE, histogram.getMaxMicros());
+	}
+}
@@ -0,0 +1,93 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+package com.ibm.atlas.webservice.services;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.atlas.webservice.services.MemberStatistics.SortKey;
+
+public class MemberStatisticsTest {
+
+	private MemberStatistics statistics;
+
+	@Before
+	public void setUp() {
+		statistics = new MemberStatistics();
+		statistics.add("ALPHA", 101, day(2018, 1, 1), second(2018, 6, 1, 10), 20, "IBMUSER"); //$NON-NLS-1$ //$NON-NLS-2$
+		statistics.add("BETA", 100, day(2018, 2, 1), second(2018, 5, 1, 10), 500, "OTHER"); //$NON-NLS-1$ //$NON-NLS-2$
+		statistics.add("LOADMOD", MemberStatistics.UNKNOWN, MemberStatistics.UNKNOWN, MemberStatistics.UNKNOWN_TIME, MemberStatistics.UNKNOWN, null); //$NON-NLS-1$
+		statistics.add("ALTER", 102, day(2018, 3, 1), second(2018, 7, 1, 9), 20, "ibmuser"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void patternsShouldMatchAnyAndSingleCharacters() {
+		assertTrue(MemberStatistics.matches("ALPHA", "AL*")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(MemberStatistics.matches("ALPHA", "*PH*")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(MemberStatistics.matches("ALPHA", "AL%HA")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(MemberStatistics.matches("ALPHA", "AL%")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(MemberStatistics.matches("BETA", "AL*")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void filtersShouldAllApply() {
+		assertArrayEquals(new int[] { 0, 3 }, statistics.select("al*", MemberStatistics.UNKNOWN_TIME, null)); //$NON-NLS-1$
+		assertArrayEquals(new int[] { 0, 3 }, statistics.select(null, second(2018, 6, 1, 0), null));
+		assertArrayEquals(new int[] { 3 }, statistics.select(null, second(2018, 6, 1, 11), "IbmUser")); //$NON-NLS-1$
+		assertArrayEquals(new int[0], statistics.select(null, MemberStatistics.UNKNOWN_TIME, "NOBODY")); //$NON-NLS-1$
+		assertEquals(4, statistics.select(null, MemberStatistics.UNKNOWN_TIME, null).length);
+	}
+
+	@Test
+	public void usersShouldBeInterned() {
+		assertSame(statistics.getUser(0), statistics.getUser(3));
+		assertNull(statistics.getUser(2));
+	}
+
+	@Test
+	public void sortShouldBeStableAndPutUnknownValuesLast() {
+		int[] order = statistics.select(null, MemberStatistics.UNKNOWN_TIME, null);
+
+		statistics.sort(order, SortKey.RECORDS, false);
+		assertArrayEquals(new int[] { 0, 3, 1, 2 }, order);
+
+		statistics.sort(order, SortKey.MODIFIED, true);
+		assertArrayEquals(new int[] { 3, 0, 1, 2 }, order);
+
+		statistics.sort(order, SortKey.NAME, false);
+		assertArrayEquals(new int[] { 0, 3, 1, 2 }, order);
+	}
+
+	@Test
+	public void jsonShouldLeaveOutUnknownStatisticsAndStopAtLimit() throws IOException {
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+
+		statistics.toJson(new int[] { 2, 0, 1 }, 2).write(json);
+
+		assertEquals("[{\"name\":\"LOADMOD\"},{\"name\":\"ALPHA\",\"version\":\"01.01\",\"created\":\"2018-01-01\"," //$NON-NLS-1$
+				+ "\"modified\":\"2018-06-01T10:00:00\",\"records\":20,\"user\":\"IBMUSER\"}]", json.toString("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static int day(int year, int month, int day) {
+		return (int) LocalDate.of(year, month, day).toEpochDay();
+	}
+
+	private static long second(int year, int month, int day, int hour) {
+		return LocalDateTime.of(year, month, day, hour, 0).toEpochSecond(ZoneOffset.UTC);
+	}
+}
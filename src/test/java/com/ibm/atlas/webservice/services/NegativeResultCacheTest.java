@@ -0,0 +1,86 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.atlas.webservice.services.SubsystemResult.Outcome;
+
+public class NegativeResultCacheTest {
+
+	private static final long TTL_SECONDS = 10;
+	private static final long MAXIMUM_TTL_SECONDS = 30;
+	private static final JobInstanceKey KEY = new JobInstanceKey("TESTJOB", "JOB00001");
+
+	long now;
+	NegativeResultCache cache;
+
+	@Before
+	public void setUp() {
+		now = 0;
+		cache = new NegativeResultCache(TTL_SECONDS, MAXIMUM_TTL_SECONDS, () -> now);
+	}
+
+	@Test
+	public void outcomeShouldBeRememberedPerUser() {
+		cache.put("USERA", KEY, Outcome.NOT_AUTHORIZED);
+
+		assertEquals(Outcome.NOT_AUTHORIZED, cache.get("USERA", KEY));
+		assertNull(cache.get("USERB", KEY));
+		assertNull(cache.get("USERA", new JobInstanceKey("TESTJOB", "JOB00002")));
+	}
+
+	@Test
+	public void outcomeShouldExpireAfterTtl() {
+		cache.put("USERA", KEY, Outcome.NOT_FOUND);
+		advance(TTL_SECONDS);
+
+		assertNull(cache.get("USERA", KEY));
+	}
+
+	@Test
+	public void repeatedFailuresShouldBackOffUpToMaximum() {
+		cache.put("USERA", KEY, Outcome.NOT_AUTHORIZED);
+		advance(TTL_SECONDS);
+		cache.put("USERA", KEY, Outcome.NOT_AUTHORIZED);
+		advance(TTL_SECONDS);
+		assertEquals(Outcome.NOT_AUTHORIZED, cache.get("USERA", KEY));
+		advance(TTL_SECONDS);
+		assertNull(cache.get("USERA", KEY));
+
+		cache.put("USERA", KEY, Outcome.NOT_AUTHORIZED);
+		advance(MAXIMUM_TTL_SECONDS - 1);
+		assertEquals(Outcome.NOT_AUTHORIZED, cache.get("USERA", KEY));
+		advance(1);
+		assertNull(cache.get("USERA", KEY));
+	}
+
+	@Test
+	public void invalidateShouldOnlyForgetThatUser() {
+		cache.put("USERA", KEY, Outcome.NOT_AUTHORIZED);
+		cache.put("USERB", KEY, Outcome.NOT_AUTHORIZED);
+
+		cache.invalidate("USERA");
+
+		assertNull(cache.get("USERA", KEY));
+		assertEquals(Outcome.NOT_AUTHORIZED, cache.get("USERB", KEY));
+		assertEquals(0, cache.size("USERA"));
+	}
+
+	private void advance(long seconds) {
+		now += TimeUnit.SECONDS.toNanos(seconds);
+	}
+}
@@ -0,0 +1,127 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+package com.ibm.atlas.webservice.services;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestCoalescerTest {
+
+	private RequestCoalescer coalescer;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		coalescer = new RequestCoalescer();
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void identicalReadsInFlightShouldShareOneRead() throws Exception {
+		AtomicInteger reads = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Future<String> first = executor.submit(() -> coalescer.execute(ZosmfOperation.LIST_DATASETS, "USER", () -> { //$NON-NLS-1$
+			reads.incrementAndGet();
+			started.countDown();
+			await(release);
+			return "result"; //$NON-NLS-1$
+		}, "SYS1.**")); //$NON-NLS-1$
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		String[] second = new String[1];
+		Thread follower = new Thread(() -> second[0] = coalescer.execute(ZosmfOperation.LIST_DATASETS, "USER", () -> { //$NON-NLS-1$
+			reads.incrementAndGet();
+			return "other"; //$NON-NLS-1$
+		}, "SYS1.**")); //$NON-NLS-1$
+		follower.start();
+		waitUntilWaiting(follower);
+		release.countDown();
+
+		assertEquals("result", first.get(5, TimeUnit.SECONDS)); //$NON-NLS-1$
+		follower.join(5000);
+		assertEquals("result", second[0]); //$NON-NLS-1$
+		assertEquals(1, reads.get());
+		assertEquals(1, coalescer.getReadCount(ZosmfOperation.LIST_DATASETS));
+		assertEquals(1, coalescer.getSavedCount(ZosmfOperation.LIST_DATASETS));
+	}
+
+	@Test
+	public void readsOfOtherUsersOrArgumentsShouldNotBeShared() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		Future<String> first = executor.submit(() -> coalescer.execute(ZosmfOperation.LIST_JOBS, "USER", () -> { //$NON-NLS-1$
+			started.countDown();
+			await(release);
+			return "user"; //$NON-NLS-1$
+		}, "PREFIX*")); //$NON-NLS-1$
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		assertEquals("other", coalescer.execute(ZosmfOperation.LIST_JOBS, "OTHER", () -> "other", "PREFIX*")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		assertEquals("prefix", coalescer.execute(ZosmfOperation.LIST_JOBS, "USER", () -> "prefix", "OTHER*")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		release.countDown();
+
+		assertEquals("user", first.get(5, TimeUnit.SECONDS)); //$NON-NLS-1$
+		assertEquals(3, coalescer.getReadCount(ZosmfOperation.LIST_JOBS));
+		assertEquals(0, coalescer.getSavedCount(ZosmfOperation.LIST_JOBS));
+	}
+
+	@Test
+	public void completedReadsShouldNotBeReused() {
+		AtomicInteger reads = new AtomicInteger();
+		coalescer.execute(ZosmfOperation.LIST_MEMBERS, "USER", reads::incrementAndGet, "A.B"); //$NON-NLS-1$ //$NON-NLS-2$
+		coalescer.execute(ZosmfOperation.LIST_MEMBERS, "USER", reads::incrementAndGet, "A.B"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertEquals(2, reads.get());
+		assertEquals(0, coalescer.getInFlightCount());
+	}
+
+	@Test
+	public void failedReadShouldBeCounted() {
+		try {
+			coalescer.execute(ZosmfOperation.GET_ATTRIBUTES, "USER", () -> { //$NON-NLS-1$
+				throw new IllegalStateException("failed"); //$NON-NLS-1$
+			}, "A.B"); //$NON-NLS-1$
+			fail("Expected IllegalStateException"); //$NON-NLS-1$
+		} catch (IllegalStateException e) {
+			assertEquals(1, coalescer.getReadCount(ZosmfOperation.GET_ATTRIBUTES));
+		}
+	}
+
+	private static void waitUntilWaiting(Thread thread) throws InterruptedException {
+		for (int i = 0; i < 500 && thread.getState() != Thread.State.WAITING; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(Thread.State.WAITING, thread.getState());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
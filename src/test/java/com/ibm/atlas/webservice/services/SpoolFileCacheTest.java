@@ -0,0 +1,151 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import javax.enterprise.concurrent.ManagedExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class SpoolFileCacheTest {
+
+	private static final int INDEX_INTERVAL = 4;
+	private static final long MAXIMUM_BYTES = 100;
+
+	Path directory;
+	SpoolFileCache cache;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("spoolcache");
+		cache = new SpoolFileCache(directory, MAXIMUM_BYTES, INDEX_INTERVAL);
+		cache.log = Mockito.mock(Logger.class);
+		cache.executor = Mockito.mock(ManagedExecutorService.class);
+		Mockito.doAnswer(invocation -> {
+			((Runnable) invocation.getArguments()[0]).run();
+			return null;
+		}).when(cache.executor).execute(Mockito.any(Runnable.class));
+		cache.init();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		for (Path path : Files.newDirectoryStream(directory)) {
+			Files.delete(path);
+		}
+		Files.delete(directory);
+	}
+
+	@Test
+	public void rangesShouldBeReadAcrossIndexedRecords() throws IOException {
+		String key = store("JOB00001", 10);
+
+		assertEquals(10, cache.getRecordCount(key));
+		assertEquals("R0\n", cache.getRecords(key, 0, 0));
+		assertEquals("R3\nR4\nR5\nR6\n", cache.getRecords(key, 3, 6));
+		assertEquals("R8\nR9\n", cache.getRecords(key, 8, 100));
+		assertEquals("", cache.getRecords(key, 10, 12));
+	}
+
+	@Test
+	public void tailShouldReturnLastRecords() throws IOException {
+		String key = store("JOB00001", 10);
+
+		assertEquals("R7\nR8\nR9\n", cache.getTail(key, 3));
+		assertEquals(30, cache.getTail(key, 50).length());
+	}
+
+	@Test
+	public void lastRecordWithoutNewlineShouldBeCounted() throws IOException {
+		String key = cache.key("TESTUSER", "TESTJOB", "JOB00001", "2");
+		cache.store(key, new ByteArrayInputStream("R0\nR1".getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(2, cache.getRecordCount(key));
+		assertEquals("R1", cache.getTail(key, 1));
+	}
+
+	@Test
+	public void missingFileShouldNotBeFound() {
+		String key = cache.key("TESTUSER", "TESTJOB", "JOB00001", "2");
+
+		assertEquals(-1, cache.getRecordCount(key));
+		assertNull(cache.getRecords(key, 0, 1));
+		assertNull(cache.getTail(key, 1));
+	}
+
+	@Test
+	public void unsafeNamesShouldNotBeCached() {
+		assertNull(cache.key("TESTUSER", "../JOB", "JOB00001", "2"));
+		assertNull(cache.key(null, "TESTJOB", "JOB00001", "2"));
+	}
+
+	@Test
+	public void leastRecentlyReadFileShouldBeEvicted() throws IOException {
+		String first = store("JOB00001", 15);
+		String second = store("JOB00002", 15);
+		cache.getRecords(first, 0, 0);
+		String third = store("JOB00003", 15);
+
+		assertEquals(2, cache.size());
+		assertEquals(90, cache.getTotalBytes());
+		assertEquals(15, cache.getRecordCount(first));
+		assertEquals(-1, cache.getRecordCount(second));
+		assertEquals(15, cache.getRecordCount(third));
+	}
+
+	@Test
+	public void fileLargerThanBudgetShouldNotBeCached() throws IOException {
+		String key = store("JOB00001", 50);
+
+		assertEquals(-1, cache.getRecordCount(key));
+		assertEquals(0, cache.getTotalBytes());
+	}
+
+	@Test
+	public void fileLargerThanBudgetShouldNotBeCopiedAgain() {
+		String key = cache.key("TESTUSER", "TESTJOB", "JOB00001", "2");
+		AtomicInteger reads = new AtomicInteger();
+		Supplier<InputStream> content = () -> {
+			reads.incrementAndGet();
+			return new ByteArrayInputStream(new byte[(int) MAXIMUM_BYTES + 1]);
+		};
+
+		cache.fill(key, () -> true, content);
+		cache.fill(key, () -> true, content);
+
+		assertEquals(1, reads.get());
+		assertEquals(-1, cache.getRecordCount(key));
+	}
+
+	private String store(String jobId, int records) throws IOException {
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < records; i++) {
+			content.append('R').append(i % 10).append('\n');
+		}
+		String key = cache.key("TESTUSER", "TESTJOB", jobId, "2");
+		cache.store(key, new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8)));
+		return key;
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import javax.enterprise.concurrent.ContextService;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZosmfAsyncExecutorTest {
+
+	ZosmfAsyncExecutor asyncExecutor;
+	List<Runnable> started;
+
+	@Before
+	public void setUp() {
+		asyncExecutor = new ZosmfAsyncExecutor(1, 1, 1000);
+		asyncExecutor.executor = mock(ManagedExecutorService.class);
+		asyncExecutor.contextService = mock(ContextService.class);
+		started = new ArrayList<>();
+		doAnswer(invocation -> started.add((Runnable) invocation.getArguments()[0])).when(asyncExecutor.executor).execute(any(Runnable.class));
+		when(asyncExecutor.contextService.createContextualProxy(any(Runnable.class), eq(Runnable.class)))
+			.thenAnswer(invocation -> invocation.getArguments()[0]);
+	}
+
+	@Test
+	public void callsBeyondTheLimitShouldWaitWithoutAThread() throws Exception {
+		CompletableFuture<String> first = asyncExecutor.supplyAsync(() -> "first").toCompletableFuture(); //$NON-NLS-1$
+		CompletableFuture<String> second = asyncExecutor.supplyAsync(() -> "second").toCompletableFuture(); //$NON-NLS-1$
+
+		assertEquals(1, started.size());
+		assertEquals(1, asyncExecutor.getActive());
+		assertEquals(1, asyncExecutor.getQueued());
+		verify(asyncExecutor.contextService).createContextualProxy(any(Runnable.class), eq(Runnable.class));
+
+		started.get(0).run();
+		assertEquals("first", first.get()); //$NON-NLS-1$
+		assertEquals(2, started.size());
+		assertEquals(0, asyncExecutor.getQueued());
+
+		started.get(1).run();
+		assertEquals("second", second.get()); //$NON-NLS-1$
+		assertEquals(0, asyncExecutor.getActive());
+	}
+
+	@Test
+	public void callsBeyondTheQueueShouldFailWithServiceUnavailable() throws Exception {
+		asyncExecutor.supplyAsync(() -> "first"); //$NON-NLS-1$
+		asyncExecutor.supplyAsync(() -> "second"); //$NON-NLS-1$
+		CompletableFuture<String> third = asyncExecutor.supplyAsync(() -> "third").toCompletableFuture(); //$NON-NLS-1$
+
+		try {
+			third.get();
+			fail("Expected ExecutionException"); //$NON-NLS-1$
+		} catch (ExecutionException e) {
+			assertEquals(Status.SERVICE_UNAVAILABLE.getStatusCode(), ((WebApplicationException) e.getCause()).getResponse().getStatus());
+		}
+		assertEquals(1, started.size());
+		assertEquals(1, asyncExecutor.getQueued());
+	}
+}
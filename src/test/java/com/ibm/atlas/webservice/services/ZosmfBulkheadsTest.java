@@ -0,0 +1,180 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+package com.ibm.atlas.webservice.services;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.Test;
+
+import com.ibm.atlas.webservice.services.CircuitBreaker.State;
+
+public class ZosmfBulkheadsTest {
+
+	private final AtomicLong time = new AtomicLong();
+
+	private ZosmfBulkheads createBulkheads(int maximumConcurrent, int maximumQueued) {
+		return new ZosmfBulkheads(maximumConcurrent, maximumQueued, 10,
+				() -> new CircuitBreaker(4, 2, 50, 60000, 100, 1000, 1, time::get));
+	}
+
+	@Test
+	public void gatewayErrorsShouldOpenOnlyThatCircuit() throws Exception {
+		ZosmfBulkheads bulkheads = createBulkheads(2, 0);
+		AtomicInteger calls = new AtomicInteger();
+
+		bulkheads.execute(ZosmfServiceFamily.FILES, () -> response(Status.GATEWAY_TIMEOUT, calls));
+		bulkheads.execute(ZosmfServiceFamily.FILES, () -> response(Status.BAD_GATEWAY, calls));
+
+		assertEquals(State.OPEN, bulkheads.getState(ZosmfServiceFamily.FILES));
+		assertEquals(State.CLOSED, bulkheads.getState(ZosmfServiceFamily.JOBS));
+		try {
+			bulkheads.execute(ZosmfServiceFamily.FILES, () -> response(Status.OK, calls));
+			fail("Expected WebApplicationException"); //$NON-NLS-1$
+		} catch (WebApplicationException e) {
+			assertEquals(Status.SERVICE_UNAVAILABLE.getStatusCode(), e.getResponse().getStatus());
+		}
+		assertEquals(2, calls.get());
+		assertEquals(1, bulkheads.getRejectedOpenCount(ZosmfServiceFamily.FILES));
+
+		bulkheads.execute(ZosmfServiceFamily.JOBS, () -> response(Status.OK, calls));
+		assertEquals(3, calls.get());
+	}
+
+	@Test
+	public void internalServerErrorsShouldNotOpenCircuit() throws Exception {
+		ZosmfBulkheads bulkheads = createBulkheads(2, 0);
+		AtomicInteger calls = new AtomicInteger();
+
+		for (int i = 0; i < 4; i++) {
+			bulkheads.execute(ZosmfServiceFamily.DATASETS, () -> response(Status.INTERNAL_SERVER_ERROR, calls));
+		}
+
+		assertEquals(State.CLOSED, bulkheads.getState(ZosmfServiceFamily.DATASETS));
+	}
+
+	@Test
+	public void exceptionsShouldCountAsFailuresAndProbeShouldRestore() throws Exception {
+		ZosmfBulkheads bulkheads = createBulkheads(2, 0);
+		AtomicInteger calls = new AtomicInteger();
+		for (int i = 0; i < 2; i++) {
+			try {
+				bulkheads.execute(ZosmfServiceFamily.JOBS, () -> {
+					throw new IllegalStateException("hung"); //$NON-NLS-1$
+				});
+				fail("Expected IllegalStateException"); //$NON-NLS-1$
+			} catch (IllegalStateException e) {
+				// expected
+			}
+		}
+		assertEquals(State.OPEN, bulkheads.getState(ZosmfServiceFamily.JOBS));
+
+		time.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		bulkheads.execute(ZosmfServiceFamily.JOBS, () -> response(Status.OK, calls));
+
+		assertEquals(State.CLOSED, bulkheads.getState(ZosmfServiceFamily.JOBS));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void fullBulkheadShouldRejectWithoutBlockingOtherServices() throws Exception {
+		ZosmfBulkheads bulkheads = createBulkheads(1, 0);
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Response> hung = executor.submit(() -> bulkheads.execute(ZosmfServiceFamily.DATASETS, () -> {
+				started.countDown();
+				release.await();
+				return response(Status.OK, calls);
+			}));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			assertEquals(1, bulkheads.getActive(ZosmfServiceFamily.DATASETS));
+
+			try {
+				bulkheads.execute(ZosmfServiceFamily.DATASETS, () -> response(Status.OK, calls));
+				fail("Expected WebApplicationException"); //$NON-NLS-1$
+			} catch (WebApplicationException e) {
+				assertEquals(Status.SERVICE_UNAVAILABLE.getStatusCode(), e.getResponse().getStatus());
+			}
+			assertEquals(1, bulkheads.getRejectedFullCount(ZosmfServiceFamily.DATASETS));
+
+			bulkheads.execute(ZosmfServiceFamily.JOBS, () -> response(Status.OK, calls));
+			assertEquals(1, calls.get());
+
+			release.countDown();
+			hung.get(5, TimeUnit.SECONDS);
+			assertEquals(0, bulkheads.getActive(ZosmfServiceFamily.DATASETS));
+			assertEquals(0, bulkheads.getWaiting(ZosmfServiceFamily.DATASETS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void hungServiceShouldNotOpenAnotherServicesCircuit() throws Exception {
+		ZosmfBulkheads bulkheads = createBulkheads(2, 0);
+		ZosmfRequestLimiter requestLimiter = new ZosmfRequestLimiter(1, 10);
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Response> hung = executor.submit(() -> bulkheads.execute(ZosmfServiceFamily.DATASETS, () -> requestLimiter.execute(443, () -> {
+				started.countDown();
+				release.await();
+				return response(Status.OK, calls);
+			})));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+
+			for (int i = 0; i < 4; i++) {
+				try {
+					bulkheads.execute(ZosmfServiceFamily.JOBS, () -> requestLimiter.execute(443, () -> response(Status.OK, calls)));
+					fail("Expected WebApplicationException"); //$NON-NLS-1$
+				} catch (WebApplicationException e) {
+					assertEquals(Status.SERVICE_UNAVAILABLE.getStatusCode(), e.getResponse().getStatus());
+				}
+			}
+			assertEquals(State.CLOSED, bulkheads.getState(ZosmfServiceFamily.JOBS));
+			assertEquals(0, bulkheads.getActive(ZosmfServiceFamily.JOBS));
+
+			release.countDown();
+			hung.get(5, TimeUnit.SECONDS);
+			bulkheads.execute(ZosmfServiceFamily.JOBS, () -> requestLimiter.execute(443, () -> response(Status.OK, calls)));
+			assertEquals(2, calls.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void servicesTogetherShouldStayWithinTheRouteMaximum() {
+		assertEquals(6, ZosmfBulkheads.maximumConcurrent(ZosmfBulkheads.DEFAULT_MAXIMUM_CONCURRENT, ZosmfRequestLimiter.DEFAULT_MAXIMUM_PER_ROUTE));
+		assertEquals(2, ZosmfBulkheads.maximumConcurrent(2, 20));
+		assertEquals(1, ZosmfBulkheads.maximumConcurrent(8, 2));
+	}
+
+	private static Response response(Status status, AtomicInteger calls) {
+		calls.incrementAndGet();
+		return Response.status(status).build();
+	}
+}
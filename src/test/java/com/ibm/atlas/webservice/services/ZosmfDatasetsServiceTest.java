@@ -12,16 +12,33 @@ package com.ibm.atlas.webservice.services;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 
+import javax.ws.rs.HttpMethod;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.ibm.atlas.model.datasets.DataSetContentResponse;
 import com.ibm.json.java.JSONObject;
 
 public class ZosmfDatasetsServiceTest extends AbstractZosmfServiceTest<ZosmfService> {
@@ -31,6 +48,7 @@ public class ZosmfDatasetsServiceTest extends AbstractZosmfServiceTest<ZosmfServ
 	@Before
 	public void setUp() {
 		this.zosmfService = new ZosmfDatasetsService();
+		this.zosmfService.listings = new DatasetListingCache();
 		super.init(zosmfService);
 	}
 	
@@ -262,6 +280,205 @@ public class ZosmfDatasetsServiceTest extends AbstractZosmfServiceTest<ZosmfServ
 		} catch (WebApplicationException wea) {
 			fail(wea.getMessage());
 		}
-	}	
+	}
+
+	@Test
+	public void memberPageShouldStopAtLimitAndGiveNextStart() throws IOException {
+		String listing = "{\"items\":[{\"member\":\"A\",\"vers\":1},{\"member\":\"B\"},{\"member\":\"C\"}],\"returnedRows\":3,\"moreRows\":true}"; //$NON-NLS-1$
+		ByteArrayOutputStream page = new ByteArrayOutputStream();
+
+		ZosmfDatasetsService.writeMemberPage(new ByteArrayInputStream(listing.getBytes(StandardCharsets.UTF_8)), page, 2);
+
+		assertEquals("{\"items\":[\"A\",\"B\"],\"nextStart\":\"C\"}", page.toString("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void lastMemberPageShouldHaveNoNextStart() throws IOException {
+		String listing = "{\"items\":[{\"member\":\"A\"},{\"member\":\"B\"}],\"returnedRows\":2}"; //$NON-NLS-1$
+		ByteArrayOutputStream page = new ByteArrayOutputStream();
+
+		ZosmfDatasetsService.writeMemberPage(new ByteArrayInputStream(listing.getBytes(StandardCharsets.UTF_8)), page, 2);
+
+		assertEquals("{\"items\":[\"A\",\"B\"]}", page.toString("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void datasetPageShouldStopAtLimitAndGiveNextStart() throws IOException {
+		String listing = "{\"items\":[{\"dsname\":\"USER.A\"},{\"dsname\":\"USER.B\"},{\"dsname\":\"USER.C\"}],\"returnedRows\":3,\"moreRows\":true}"; //$NON-NLS-1$
+		ByteArrayOutputStream page = new ByteArrayOutputStream();
+
+		ZosmfDatasetsService.writeDatasetPage(new ByteArrayInputStream(listing.getBytes(StandardCharsets.UTF_8)), page, 2);
+
+		assertEquals("{\"items\":[\"USER.A\",\"USER.B\"],\"nextStart\":\"USER.C\"}", page.toString("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void datasetAttributesShouldBeCopiedAsTheyAreRead() throws IOException {
+		String listing = "{\"items\":[{\"dsname\":\"USER.JCL\",\"blksz\":\"6160\",\"catnm\":\"CAT\",\"dsorg\":\"PO\",\"lrecl\":\"80\",\"recfm\":\"FB\"}," //$NON-NLS-1$
+				+ "{\"dsname\":\"USER.MIGRATED\",\"migr\":\"YES\"}],\"returnedRows\":2}"; //$NON-NLS-1$
+		ByteArrayOutputStream all = new ByteArrayOutputStream();
+		ByteArrayOutputStream page = new ByteArrayOutputStream();
+
+		ZosmfDatasetsService.writeDatasetAttributes(new ByteArrayInputStream(listing.getBytes(StandardCharsets.UTF_8)), all, Integer.MAX_VALUE, false);
+		ZosmfDatasetsService.writeDatasetAttributes(new ByteArrayInputStream(listing.getBytes(StandardCharsets.UTF_8)), page, 1, true);
+
+		assertEquals("[{\"name\":\"USER.JCL\",\"blksize\":\"6160\",\"lrecl\":\"80\",\"recfm\":\"FB\",\"dsorg\":\"PO\"}," //$NON-NLS-1$
+				+ "{\"name\":\"USER.MIGRATED\"}]", all.toString("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("{\"items\":[{\"name\":\"USER.JCL\",\"blksize\":\"6160\",\"lrecl\":\"80\",\"recfm\":\"FB\",\"dsorg\":\"PO\"}]," //$NON-NLS-1$
+				+ "\"nextStart\":\"USER.MIGRATED\"}", page.toString("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void memberStatisticsShouldBeReadFromBaseAttributes() throws IOException {
+		String listing = "{\"items\":[{\"member\":\"JOB\",\"vers\":1,\"mod\":3,\"c4date\":\"2018/01/02\",\"m4date\":\"2018/06/07\"," //$NON-NLS-1$
+				+ "\"mtime\":\"13:45\",\"msec\":\"09\",\"cnorc\":42,\"inorc\":40,\"mnorc\":0,\"sclm\":\"N\",\"user\":\"ibmuser \"}," //$NON-NLS-1$
+				+ "{\"member\":\"LOADMOD\"}],\"returnedRows\":2,\"totalRows\":2,\"JSONversion\":1}"; //$NON-NLS-1$
+
+		MemberStatistics statistics = ZosmfDatasetsService.readMemberStatistics(new ByteArrayInputStream(listing.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(2, statistics.size());
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+		statistics.toJson(new int[] { 0, 1 }, 2).write(json);
+		assertEquals("[{\"name\":\"JOB\",\"version\":\"01.03\",\"created\":\"2018-01-02\",\"modified\":\"2018-06-07T13:45:09\"," //$NON-NLS-1$
+				+ "\"records\":42,\"user\":\"IBMUSER\"},{\"name\":\"LOADMOD\"}]", json.toString("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void recordsShouldBeSlicedLikeSplitLines() throws IOException {
+		assertEquals("b\nc\n", ZosmfDatasetsService.readRecords(new StringReader("a\nb\nc\nd\n"), 1, 2)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("c\n", ZosmfDatasetsService.readRecords(new StringReader("a\nb\nc"), 2, 10)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("a\n\n", ZosmfDatasetsService.readRecords(new StringReader("a\n\nb\n"), 0, 1)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("a\n", ZosmfDatasetsService.readRecords(new StringReader("a\n\n\n"), 0, 5)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void readingRecordsShouldStopAfterTheRange() throws IOException {
+		Reader content = new StringReader("a\nb\nc\n") { //$NON-NLS-1$
+			private int read;
+
+			@Override
+			public int read() throws IOException {
+				if (++read > 5) {
+					throw new IOException("Read past the range"); //$NON-NLS-1$
+				}
+				return super.read();
+			}
+		};
+
+		assertEquals("a\nb\n", ZosmfDatasetsService.readRecords(content, 0, 1)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void memberPageOfMaximumLimitShouldNotAskForANegativeCount() throws Exception {
+		Builder builder = mockClient("restfiles/ds/USER.PDS/member"); //$NON-NLS-1$
+		when(builder.header("X-IBM-Max-Items", "2147483647")).thenReturn(builder); //$NON-NLS-1$ //$NON-NLS-2$
+		mockGetRequestResponse(builder, mockContentResponse(Status.OK, "{\"items\":[{\"member\":\"MEMBER1\"}]}")); //$NON-NLS-1$
+
+		StreamingOutput page = zosmfService.listDatasetMembersPage("USER.PDS", null, Integer.MAX_VALUE); //$NON-NLS-1$
 
+		verify(builder).header("X-IBM-Max-Items", "2147483647"); //$NON-NLS-1$ //$NON-NLS-2$
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		page.write(output);
+		assertEquals("{\"items\":[\"MEMBER1\"]}", output.toString("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void datasetPageOfMaximumLimitShouldNotAskForANegativeCount() throws Exception {
+		Builder builder = mockClient("restfiles/ds", "dslevel", "USER.*"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		when(builder.header("X-IBM-Max-Items", "2147483647")).thenReturn(builder); //$NON-NLS-1$ //$NON-NLS-2$
+		mockGetRequestResponse(builder, mockContentResponse(Status.OK, "{\"items\":[{\"dsname\":\"USER.DS\"}]}")); //$NON-NLS-1$
+
+		zosmfService.listDatasetsPage("USER.*", null, Integer.MAX_VALUE); //$NON-NLS-1$
+
+		verify(builder).header("X-IBM-Max-Items", "2147483647"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void recordRangeShouldBeAskedOfZosmf() throws Exception {
+		Builder builder = mockTextContent();
+		when(builder.header("X-IBM-Record-Range", "2-4")).thenReturn(builder); //$NON-NLS-1$ //$NON-NLS-2$
+		mockGetRequestResponse(builder, mockContentResponse(Status.OK, "c\nd\ne\n")); //$NON-NLS-1$
+
+		DataSetContentResponse content = zosmfService.getConvertedContentByRange("USER.TEXT", "2", "4"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		assertEquals("c\nd\ne\n", content.getRecords()); //$NON-NLS-1$
+		verify(builder).header("X-IBM-Record-Range", "2-4"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void rejectedRecordRangeShouldBeRetriedWithoutIt() throws Exception {
+		Builder builder = mockTextContent();
+		when(builder.header("X-IBM-Record-Range", "2-4")).thenReturn(builder); //$NON-NLS-1$ //$NON-NLS-2$
+		Response rejected = mockContentResponse(Status.BAD_REQUEST, ""); //$NON-NLS-1$
+		Response full = mockContentResponse(Status.OK, "a\nb\nc\nd\ne\nf\n"); //$NON-NLS-1$
+		when(zosmfService.client.sendRequest(builder, HttpMethod.GET)).thenReturn(rejected, full);
+
+		DataSetContentResponse content = zosmfService.getConvertedContentByRange("USER.TEXT", "2", "4"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		assertEquals("c\nd\ne\n", content.getRecords()); //$NON-NLS-1$
+		verify(rejected).close();
+		verify(zosmfService.client, times(2)).sendRequest(builder, HttpMethod.GET);
+		verify(builder, times(1)).header("X-IBM-Record-Range", "2-4"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void binaryRangeShouldBeSentAsPartialContent() throws Exception {
+		mockBinaryContent("0123456789", 10); //$NON-NLS-1$
+
+		Response response = zosmfService.getBinaryContent("USER.BIN", "bytes=2-5"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertEquals(Status.PARTIAL_CONTENT.getStatusCode(), response.getStatus());
+		assertEquals("bytes 2-5/10", response.getHeaderString("Content-Range")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("2345", writeEntity(response)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void binaryRangeBeyondTheContentShouldNotBeSatisfiable() throws Exception {
+		mockBinaryContent("0123456789", 10); //$NON-NLS-1$
+
+		Response response = zosmfService.getBinaryContent("USER.BIN", "bytes=10-19"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertEquals(Status.REQUESTED_RANGE_NOT_SATISFIABLE.getStatusCode(), response.getStatus());
+		assertEquals("bytes */10", response.getHeaderString("Content-Range")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void binaryRangeOfUnknownLengthShouldSendAllTheContent() throws Exception {
+		mockBinaryContent("0123456789", -1); //$NON-NLS-1$
+
+		Response response = zosmfService.getBinaryContent("USER.BIN", "bytes=0-3"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertEquals(Status.OK.getStatusCode(), response.getStatus());
+		assertNull(response.getHeaderString("Content-Range")); //$NON-NLS-1$
+		assertEquals("0123456789", writeEntity(response)); //$NON-NLS-1$
+	}
+
+	private Builder mockTextContent() throws Exception {
+		Builder builder = mockClient("restfiles/ds/USER.TEXT"); //$NON-NLS-1$
+		when(builder.header("X-IBM-Data-Type", "text")).thenReturn(builder); //$NON-NLS-1$ //$NON-NLS-2$
+		return builder;
+	}
+
+	private static Response mockContentResponse(Status status, String content) {
+		Response response = mock(Response.class);
+		when(response.getStatus()).thenReturn(status.getStatusCode());
+		when(response.readEntity(InputStream.class)).thenReturn(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+		return response;
+	}
+
+	private void mockBinaryContent(String content, long length) throws Exception {
+		Builder builder = mockClient("restfiles/ds/USER.BIN"); //$NON-NLS-1$
+		when(builder.header("X-IBM-Data-Type", "binary")).thenReturn(builder); //$NON-NLS-1$ //$NON-NLS-2$
+		Response zosmfResponse = mock(Response.class);
+		when(zosmfResponse.getStatus()).thenReturn(Status.OK.getStatusCode());
+		when(zosmfResponse.getLength()).thenReturn((int) length);
+		when(zosmfResponse.readEntity(InputStream.class)).thenReturn(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+		mockGetRequestResponse(builder, zosmfResponse);
+	}
+
+	private static String writeEntity(Response response) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		((StreamingOutput) response.getEntity()).write(output);
+		return output.toString("UTF-8"); //$NON-NLS-1$
+	}
 }
@@ -13,10 +13,14 @@ package com.ibm.atlas.webservice.services;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 
 import javax.ws.rs.HttpMethod;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
@@ -80,14 +84,41 @@ public class ZosmfJobsServiceTest extends AbstractZosmfServiceTest<ZosmfService>
 
 		Response response = mock(Response.class);
 		when(response.getStatus()).thenReturn(Status.OK.getStatusCode());
-		when(response.readEntity(String.class)).thenReturn(loadTestFile("zosmfJobsResponse.json"));
+		when(response.readEntity(InputStream.class)).thenReturn(loadTestFileStream("zosmfJobsResponse.json"));
 		
 		String getJobRelativeUri = "restjobs/jobs";
 		mockRequestResponse(getJobRelativeUri, HttpMethod.GET, response, "prefix", prefix, "owner", owner);
 
 		assertEquals(expected, zosmfService.getJobs(prefix, owner, status));
 	}
+
+	@Test
+	public void getJobsShouldFailOnMalformedResponse() throws Exception {
+		Response response = mock(Response.class);
+		when(response.getStatus()).thenReturn(Status.OK.getStatusCode());
+		when(response.readEntity(InputStream.class)).thenReturn(new ByteArrayInputStream("{\"jobid\":".getBytes(StandardCharsets.UTF_8)));
+		mockRequestResponse("restjobs/jobs", HttpMethod.GET, response, "prefix", "*", "owner", "STEVENH");
+
+		try {
+			zosmfService.getJobs("*", "STEVENH", JobStatus.ALL);
+			fail("Expected WebApplicationException");
+		} catch (WebApplicationException e) {
+			assertEquals(Status.INTERNAL_SERVER_ERROR.getStatusCode(), e.getResponse().getStatus());
+		}
+	}
 	
+	@Test
+	public void getJobFileRecordCountShouldUseFileListing() throws Exception {
+		Response response = mock(Response.class);
+		when(response.getStatus()).thenReturn(Status.OK.getStatusCode());
+		when(response.readEntity(String.class)).thenReturn(
+				"[{\"ddname\":\"JESMSGLG\",\"record-count\":55,\"id\":2},{\"ddname\":\"SYSOUT\",\"record-count\":39020,\"id\":102}]"); //$NON-NLS-1$
+		mockRequestResponse("restjobs/jobs/STEVENH/TSU06342/files", HttpMethod.GET, response);
+
+		assertEquals(39020, zosmfService.getJobFileRecordCount("STEVENH", "TSU06342", "102"));
+		assertEquals(-1, zosmfService.getJobFileRecordCount("STEVENH", "TSU06342", "103"));
+	}
+
 	private static Job createJob(String id, JobStatus status, String phase, String returnCode) {
 		return Job.builder().jobId(id) // $NON-NLS-1$
 			.jobName("STEVENH") // $NON-NLS-1$
@@ -0,0 +1,60 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+
+public class ZosmfMetricsTest {
+
+	@Test
+	public void responsesShouldBeCountedByOperationAndStatus() {
+		ZosmfMetrics metrics = new ZosmfMetrics();
+		metrics.recordResponse(ZosmfOperation.LIST_JOBS, System.nanoTime(), response(200, 1000), -1);
+		metrics.recordResponse(ZosmfOperation.LIST_JOBS, System.nanoTime(), response(200, -1), -1);
+		metrics.recordResponse(ZosmfOperation.LIST_JOBS, System.nanoTime(), response(404, 20), -1);
+		metrics.recordResponse(ZosmfOperation.PUT_CONTENT, System.nanoTime(), response(204, -1), 300);
+
+		Map<Integer, Long> statuses = metrics.getStatusCounts(ZosmfOperation.LIST_JOBS);
+		assertEquals(2, statuses.size());
+		assertEquals(Long.valueOf(2), statuses.get(200));
+		assertEquals(Long.valueOf(1), statuses.get(404));
+		assertEquals(3, metrics.getLatency(ZosmfOperation.LIST_JOBS).getCount());
+		assertEquals(1020, metrics.getResponseBytes(ZosmfOperation.LIST_JOBS));
+		assertEquals(0, metrics.getRequestBytes(ZosmfOperation.LIST_JOBS));
+		assertEquals(300, metrics.getRequestBytes(ZosmfOperation.PUT_CONTENT));
+		assertTrue(metrics.getStatusCounts(ZosmfOperation.GET_SPOOL).isEmpty());
+	}
+
+	@Test
+	public void failuresShouldBeTimedAndCounted() {
+		ZosmfMetrics metrics = new ZosmfMetrics();
+		metrics.recordFailure(ZosmfOperation.GET_SPOOL, System.nanoTime());
+
+		assertEquals(1, metrics.getFailureCount(ZosmfOperation.GET_SPOOL));
+		assertEquals(1, metrics.getLatency(ZosmfOperation.GET_SPOOL).getCount());
+		assertTrue(metrics.getStatusCounts(ZosmfOperation.GET_SPOOL).isEmpty());
+	}
+
+	private static Response response(int status, int length) {
+		Response response = mock(Response.class);
+		when(response.getStatus()).thenReturn(status);
+		when(response.getLength()).thenReturn(length);
+		return response;
+	}
+}
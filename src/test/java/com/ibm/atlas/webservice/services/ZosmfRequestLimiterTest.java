@@ -0,0 +1,92 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.services;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.Test;
+
+public class ZosmfRequestLimiterTest {
+
+	private static final int PORT = 443;
+
+	@Test
+	public void streamedEntityShouldHoldAPermitUntilClosed() throws Exception {
+		ZosmfRequestLimiter requestLimiter = new ZosmfRequestLimiter(2, 0);
+
+		InputStream entity = requestLimiter.hold(PORT, new ByteArrayInputStream(new byte[] { 1 }));
+		assertEquals(1, requestLimiter.getInFlight());
+		assertEquals(1, entity.read());
+
+		entity.close();
+		entity.close();
+		assertEquals(0, requestLimiter.getInFlight());
+		assertEquals(2, requestLimiter.getAvailable());
+	}
+
+	@Test
+	public void permitsShouldBeCountedAndReleased() throws Exception {
+		ZosmfRequestLimiter requestLimiter = new ZosmfRequestLimiter(2, 0);
+		Response ok = Response.ok().build();
+
+		Response response = requestLimiter.execute(PORT, () -> {
+			assertEquals(1, requestLimiter.getInFlight());
+			assertEquals(1, requestLimiter.getAvailable());
+			return ok;
+		});
+
+		assertSame(ok, response);
+		assertEquals(0, requestLimiter.getInFlight());
+		assertEquals(2, requestLimiter.getAvailable());
+		assertEquals(0, requestLimiter.getWaiting());
+	}
+
+	@Test
+	public void requestShouldFailWhenNoPermitBecomesFree() throws Exception {
+		ZosmfRequestLimiter requestLimiter = new ZosmfRequestLimiter(1, 10);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Response> holder = executor.submit(() -> requestLimiter.execute(PORT, () -> {
+				started.countDown();
+				release.await();
+				return Response.ok().build();
+			}));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+
+			try {
+				requestLimiter.execute(PORT, () -> Response.ok().build());
+				fail("Expected WebApplicationException"); //$NON-NLS-1$
+			} catch (WebApplicationException e) {
+				assertEquals(Status.SERVICE_UNAVAILABLE.getStatusCode(), e.getResponse().getStatus());
+			}
+
+			release.countDown();
+			holder.get(5, TimeUnit.SECONDS);
+			assertEquals(1, requestLimiter.getAvailable());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
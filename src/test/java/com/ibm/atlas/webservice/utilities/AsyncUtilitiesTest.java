@@ -0,0 +1,63 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+
+package com.ibm.atlas.webservice.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.ibm.atlas.webservice.services.ZosmfRequestLimiter;
+
+public class AsyncUtilitiesTest {
+
+	private static final int PORT = 443;
+
+	@Test
+	public void streamArrivingAfterTheTimeoutShouldBeClosed() throws Exception {
+		ZosmfRequestLimiter requestLimiter = new ZosmfRequestLimiter();
+		AsyncResponse asyncResponse = mock(AsyncResponse.class);
+		CompletableFuture<Response> stage = new CompletableFuture<>();
+
+		AsyncUtilities.resume(asyncResponse, stage, 1000);
+
+		ArgumentCaptor<TimeoutHandler> handler = ArgumentCaptor.forClass(TimeoutHandler.class);
+		verify(asyncResponse).setTimeoutHandler(handler.capture());
+		verify(asyncResponse).setTimeout(eq(1000L), eq(TimeUnit.MILLISECONDS));
+		handler.getValue().handleTimeout(asyncResponse);
+		verify(asyncResponse).resume(any(WebApplicationException.class));
+
+		// The request has been answered, so the late result is turned away
+		when(asyncResponse.resume(any(Object.class))).thenReturn(false);
+		InputStream records = requestLimiter.hold(PORT, new ByteArrayInputStream(new byte[] { 1 }));
+		assertEquals(1, requestLimiter.getInFlight());
+		stage.complete(Response.ok(StreamUtilities.streamingOutput(records), MediaType.TEXT_PLAIN).build());
+
+		assertEquals(0, requestLimiter.getInFlight());
+		assertEquals(requestLimiter.getMaximumPerRoute(), requestLimiter.getAvailable());
+	}
+}
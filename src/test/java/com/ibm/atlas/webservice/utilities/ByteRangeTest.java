@@ -0,0 +1,69 @@
+/**
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright IBM Corporation 2016, 2018
+ */
+package com.ibm.atlas.webservice.utilities;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class ByteRangeTest {
+
+	@Test
+	public void rangesShouldNeedALength() {
+		assertNull(ByteRange.parse("bytes=10-19", -1)); //$NON-NLS-1$
+		assertNull(ByteRange.parse("bytes=10-", -1)); //$NON-NLS-1$
+		assertNull(ByteRange.parse("bytes=-10", -1)); //$NON-NLS-1$
+
+		ByteRange range = ByteRange.parse("bytes=10-19", 100); //$NON-NLS-1$
+		assertEquals(10, range.getFirst());
+		assertEquals(10, range.getLength());
+		assertEquals("bytes 10-19/100", range.toContentRange(100)); //$NON-NLS-1$
+		assertEquals("bytes 10-99/100", ByteRange.parse("bytes=10-", 100).toContentRange(100)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("bytes 90-99/100", ByteRange.parse("bytes=-10", 100).toContentRange(100)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("bytes 0-99/100", ByteRange.parse("bytes=-500", 100).toContentRange(100)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void rangesShouldBeCutToTheLength() {
+		assertEquals("bytes 50-99/100", ByteRange.parse("bytes=50-500", 100).toContentRange(100)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(ByteRange.parse("bytes=100-200", 100).isSatisfiable(100)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void otherRangesShouldBeIgnored() {
+		assertNull(ByteRange.parse(null, 100));
+		assertNull(ByteRange.parse("bytes=0-9,20-29", 100)); //$NON-NLS-1$
+		assertNull(ByteRange.parse("records=0-9", 100)); //$NON-NLS-1$
+		assertNull(ByteRange.parse("bytes=9-0", 100)); //$NON-NLS-1$
+		assertNull(ByteRange.parse("bytes=x-9", 100)); //$NON-NLS-1$
+		assertNull(ByteRange.parse("bytes=-0", 100)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void copyShouldSkipToTheRangeAndStopAtItsEnd() throws IOException {
+		byte[] content = new byte[100 * 1024];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		long copied = StreamUtilities.copy(new ByteArrayInputStream(content), output, 70000, 20000);
+
+		assertEquals(20000, copied);
+		byte[] part = output.toByteArray();
+		assertEquals(20000, part.length);
+		assertEquals(content[70000], part[0]);
+		assertEquals(content[89999], part[19999]);
+	}
+}